@@ -0,0 +1,78 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.liglab.consgap.dataset.Dataset;
+
+/**
+ * Reading both datasets and building the root occurrence structures
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoaderBenchmark {
+
+	@Param({ "bitset", "list", "lcm-bitset", "lcm-list" })
+	public String structure;
+
+	@Param({ "1", "3" })
+	public int gap;
+
+	@Param({ "50", "150" })
+	public int support;
+
+	// average length of transactions
+	@Param({ "20", "80" })
+	public int length;
+
+	private File positive;
+	private File negative;
+
+	@Setup
+	public void setup() throws IOException {
+		this.positive = SyntheticData.write(SyntheticData.NB_TRANSACTIONS, SyntheticData.NB_ITEMS, this.length, 1);
+		this.negative = SyntheticData.write(SyntheticData.NB_TRANSACTIONS, SyntheticData.NB_ITEMS, this.length, 2);
+	}
+
+	@Benchmark
+	public Dataset load() throws IOException {
+		return SyntheticData.load(this.structure, this.positive, this.negative, this.support, this.gap);
+	}
+}
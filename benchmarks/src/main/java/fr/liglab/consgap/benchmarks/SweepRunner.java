@@ -0,0 +1,196 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+import fr.liglab.consgap.Main;
+
+/**
+ * End to end benchmark: runs Main in benchmark mode, in a new JVM, for every
+ * combination of thresholds, thread count, dataset class and executor, and
+ * prints one CSV line per run to the standard output.
+ */
+public class SweepRunner {
+	private static final Pattern MINIMAL = Pattern.compile("total minimal emerging sequences = (\\d+)");
+	private static final Pattern COLLECTED = Pattern.compile("total sequences collected = (\\d+)");
+	private static final Pattern TIMES = Pattern
+			.compile("execution time (\\d+) ms including \\d+ ms removing redundant results, performed (\\d+) iterations");
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Options options = new Options();
+		CommandLineParser parser = new PosixParser();
+
+		options.addOption("h", false, "Show help");
+		options.addOption("minsup", true, "Comma separated MINSUP_IN_POS values (defaults to 10)");
+		options.addOption("maxsup", true, "Comma separated MAXSUP_IN_NEG values (defaults to 0)");
+		options.addOption("gap", true, "Comma separated MAX_GAP values (defaults to 2)");
+		options.addOption("threads", true, "Comma separated thread counts (defaults to 1)");
+		options.addOption("styles", true,
+				"Comma separated dataset classes among bitset, list, lcm-bitset, lcm-list (defaults to all)");
+		options.addOption("executors", true, "Comma separated executors among depth, breadth (defaults to both)");
+		options.addOption("repeat", true, "Runs of each combination (defaults to 1)");
+		options.addOption("extra", true, "Other options given to Main, space separated");
+		options.addOption("jvm", true, "Options given to the JVM running Main, space separated");
+		try {
+			CommandLine cmd = parser.parse(options, args);
+
+			if (cmd.getArgs().length != 2 || cmd.hasOption('h')) {
+				printMan(options);
+			} else {
+				sweep(cmd);
+			}
+		} catch (ParseException e) {
+			printMan(options);
+		}
+	}
+
+	private static void printMan(Options options) {
+		String syntax = "java fr.liglab.consgap.benchmarks.SweepRunner [OPTIONS] INPUT_POS_DATASET INPUT_NEG_DATASET";
+		String header = "\nOptions are :";
+
+		HelpFormatter formatter = new HelpFormatter();
+		formatter.printHelp(80, syntax, header, options, "");
+	}
+
+	private static void sweep(CommandLine cmd) throws IOException, InterruptedException {
+		final String[] minsups = cmd.getOptionValue("minsup", "10").split(",");
+		final String[] maxsups = cmd.getOptionValue("maxsup", "0").split(",");
+		final String[] gaps = cmd.getOptionValue("gap", "2").split(",");
+		final String[] threads = cmd.getOptionValue("threads", "1").split(",");
+		final String[] styles = cmd.getOptionValue("styles", "bitset,list,lcm-bitset,lcm-list").split(",");
+		final String[] executors = cmd.getOptionValue("executors", "depth,breadth").split(",");
+		final int repeat = Integer.parseInt(cmd.getOptionValue("repeat", "1"));
+		System.out.println("style,executor,threads,minsup,maxsup,gap,run,wall_ms,mining_ms,minimal,collected,iterations");
+		for (String style : styles) {
+			for (String executor : executors) {
+				for (String nbThreads : threads) {
+					for (String minsup : minsups) {
+						for (String maxsup : maxsups) {
+							for (String gap : gaps) {
+								for (int run = 0; run < repeat; run++) {
+									List<String> command = new ArrayList<String>();
+									command.add(System.getProperty("java.home") + File.separator + "bin"
+											+ File.separator + "java");
+									if (cmd.hasOption("jvm")) {
+										command.addAll(Arrays.asList(cmd.getOptionValue("jvm").trim().split(" +")));
+									}
+									command.add("-cp");
+									command.add(System.getProperty("java.class.path"));
+									command.add(Main.class.getName());
+									command.add("-b");
+									command.addAll(styleOptions(style));
+									command.addAll(executorOptions(executor));
+									command.add("-t");
+									command.add(nbThreads);
+									if (cmd.hasOption("extra")) {
+										command.addAll(Arrays.asList(cmd.getOptionValue("extra").trim().split(" +")));
+									}
+									command.add(cmd.getArgs()[0]);
+									command.add(cmd.getArgs()[1]);
+									command.add(minsup);
+									command.add(maxsup);
+									command.add(gap);
+									System.out.println(style + "," + executor + "," + nbThreads + "," + minsup + ","
+											+ maxsup + "," + gap + "," + run + "," + runMain(command));
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static List<String> styleOptions(String style) {
+		switch (style) {
+		case "bitset":
+			return Arrays.asList();
+		case "list":
+			return Arrays.asList("-s");
+		case "lcm-bitset":
+			return Arrays.asList("-l");
+		case "lcm-list":
+			return Arrays.asList("-l", "-s");
+		default:
+			throw new IllegalArgumentException("unknown dataset style " + style);
+		}
+	}
+
+	private static List<String> executorOptions(String executor) {
+		switch (executor) {
+		case "depth":
+			return Arrays.asList();
+		case "breadth":
+			return Arrays.asList("-w");
+		default:
+			throw new IllegalArgumentException("unknown executor " + executor);
+		}
+	}
+
+	// @return the CSV fields of the run, from wall_ms to iterations
+	private static String runMain(List<String> command) throws IOException, InterruptedException {
+		long start = System.currentTimeMillis();
+		ProcessBuilder pb = new ProcessBuilder(command);
+		pb.redirectErrorStream(true);
+		Process process = pb.start();
+		String minimal = "";
+		String collected = "";
+		String miningTime = "";
+		String iterations = "";
+		BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		String line;
+		while ((line = br.readLine()) != null) {
+			Matcher m;
+			if ((m = MINIMAL.matcher(line)).find()) {
+				minimal = m.group(1);
+			} else if ((m = COLLECTED.matcher(line)).find()) {
+				collected = m.group(1);
+			} else if ((m = TIMES.matcher(line)).find()) {
+				miningTime = m.group(1);
+				iterations = m.group(2);
+			} else {
+				System.err.println(line);
+			}
+		}
+		br.close();
+		if (process.waitFor() != 0) {
+			System.err.println("failed: " + command);
+		}
+		long wallTime = System.currentTimeMillis() - start;
+		return wallTime + "," + miningTime + "," + minimal + "," + collected + "," + iterations;
+	}
+}
@@ -0,0 +1,121 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import fr.liglab.consgap.collector.PostFilteringResultsCollector;
+import fr.liglab.consgap.dataset.AtomicItemSet;
+import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.Dataset.DeadEndException;
+import fr.liglab.consgap.dataset.Dataset.EmergingExpansionException;
+import fr.liglab.consgap.dataset.Dataset.EmergingParentException;
+import fr.liglab.consgap.dataset.Dataset.InfrequentException;
+import fr.liglab.consgap.dataset.consgapstyle.BitSetDataset;
+import fr.liglab.consgap.dataset.consgapstyle.ListDataset;
+import fr.liglab.consgap.dataset.lcmstyle.TransBasedBitSetDataset;
+import fr.liglab.consgap.dataset.lcmstyle.TransBasedListDataset;
+import fr.liglab.consgap.tools.ContrastDatasetGenerator;
+
+/**
+ * Random datasets for benchmarks. Items are drawn from a Zipf law so that a
+ * few of them are frequent enough to build long sequences.
+ */
+public final class SyntheticData {
+	public static final int NB_TRANSACTIONS = 1000;
+	public static final int NB_ITEMS = 100;
+	// no sequence is emerging, so nothing gets collected while benchmarking
+	public static final int NEG_FREQ_UPPER_BOUND = -1;
+
+	private SyntheticData() {
+	}
+
+	/**
+	 * @return a temporary file, deleted on exit, of nbTransactions transactions
+	 *         whose length is uniform around avgLength
+	 */
+	public static File write(int nbTransactions, int nbItems, int avgLength, long seed) throws IOException {
+		File file = File.createTempFile("consgap-bench", ".txt");
+		file.deleteOnExit();
+		new ContrastDatasetGenerator(seed, nbItems, 1., avgLength / 2, avgLength / 2 + avgLength, 0, 0, 0).write(
+				file, nbTransactions, 0., "\t");
+		return file;
+	}
+
+	/**
+	 * @param style
+	 *            bitset or list for the consgap style datasets, lcm-bitset or
+	 *            lcm-list for the transactions based ones
+	 */
+	public static Dataset load(String style, File positive, File negative, int support, int gap) throws IOException {
+		PostFilteringResultsCollector collector = new PostFilteringResultsCollector();
+		switch (style) {
+		case "bitset":
+			return new BitSetDataset(collector, positive.getPath(), negative.getPath(), support,
+					NEG_FREQ_UPPER_BOUND, gap);
+		case "list":
+			return new ListDataset(collector, positive.getPath(), negative.getPath(), support, NEG_FREQ_UPPER_BOUND,
+					gap);
+		case "lcm-bitset":
+			return new TransBasedBitSetDataset(collector, positive.getPath(), negative.getPath(), support,
+					NEG_FREQ_UPPER_BOUND, gap);
+		case "lcm-list":
+			return new TransBasedListDataset(collector, positive.getPath(), negative.getPath(), support,
+					NEG_FREQ_UPPER_BOUND, gap);
+		default:
+			throw new IllegalArgumentException("unknown dataset style " + style);
+		}
+	}
+
+	/**
+	 * Explores dataset depth first until reaching a sequence of the requested
+	 * length
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if there is no such sequence
+	 */
+	public static Dataset descend(Dataset dataset, int length) {
+		Dataset found = recursiveDescend(dataset, length);
+		if (found == null) {
+			throw new IllegalArgumentException("no frequent sequence of length " + length
+					+ ", lower the support or raise the gap");
+		}
+		return found;
+	}
+
+	private static Dataset recursiveDescend(Dataset dataset, int length) {
+		if (dataset.getSequence().length == length) {
+			return dataset;
+		}
+		for (int extension : dataset.getExtensions()) {
+			try {
+				Dataset found = recursiveDescend(dataset.expand(extension, new AtomicItemSet(0)), length);
+				if (found != null) {
+					return found;
+				}
+			} catch (EmergingParentException | EmergingExpansionException | InfrequentException
+					| DeadEndException e) {
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.liglab.consgap.benchmarks.SyntheticData;
+
+/**
+ * Subsequence lookups of the collectors' tries, with random contents and
+ * queries over SyntheticData.NB_ITEMS items
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubsetCheckBenchmark {
+	private static final int NB_QUERIES = 1000;
+
+	@Param({ "packed", "concurrent" })
+	public String trie;
+
+	// number of sequences in the trie
+	@Param({ "1000", "100000" })
+	public int nbSequences;
+
+	// length of sequences in the trie
+	@Param({ "2", "4" })
+	public int trieLength;
+
+	// length of queries
+	@Param({ "4", "16" })
+	public int length;
+
+	private SequenceTrie packed;
+	private ConcurrentSequenceTrie concurrent;
+	private int[][] queries;
+
+	@Setup
+	public void setup() {
+		Random rnd = new Random(1);
+		this.packed = new SequenceTrie();
+		this.concurrent = new ConcurrentSequenceTrie();
+		for (int i = 0; i < this.nbSequences; i++) {
+			int[] seq = randomSequence(rnd, this.trieLength);
+			this.packed.insert(seq);
+			this.concurrent.insert(seq);
+		}
+		this.queries = new int[NB_QUERIES][];
+		for (int i = 0; i < NB_QUERIES; i++) {
+			this.queries[i] = randomSequence(rnd, this.length);
+		}
+	}
+
+	private static int[] randomSequence(Random rnd, int length) {
+		int[] seq = new int[length];
+		for (int i = 0; i < length; i++) {
+			seq[i] = rnd.nextInt(SyntheticData.NB_ITEMS);
+		}
+		return seq;
+	}
+
+	@Benchmark
+	public void subsetCheck(Blackhole bh) {
+		if (this.trie.equals("packed")) {
+			for (int[] query : this.queries) {
+				bh.consume(this.packed.subsetCheck(query));
+			}
+		} else {
+			for (int[] query : this.queries) {
+				bh.consume(this.concurrent.subsetCheck(query));
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.dataset.lcmstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.liglab.consgap.benchmarks.SyntheticData;
+
+/**
+ * Candidates generation of the lcm style datasets, on a node whose sequence
+ * has the given length
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransBasedDatasetBenchmark {
+
+	@Param({ "lcm-bitset", "lcm-list" })
+	public String structure;
+
+	@Param({ "1", "3" })
+	public int gap;
+
+	@Param({ "50", "150" })
+	public int support;
+
+	@Param({ "1", "3" })
+	public int length;
+
+	private ATransactionsBasedDataset<?> node;
+
+	@Setup
+	public void setup() throws IOException {
+		File positive = SyntheticData.write(SyntheticData.NB_TRANSACTIONS, SyntheticData.NB_ITEMS, 20, 1);
+		File negative = SyntheticData.write(SyntheticData.NB_TRANSACTIONS, SyntheticData.NB_ITEMS, 20, 2);
+		this.node = (ATransactionsBasedDataset<?>) SyntheticData.descend(
+				SyntheticData.load(this.structure, positive, negative, this.support, this.gap), this.length);
+	}
+
+	@Benchmark
+	public int[] computePossibleExtensions() {
+		return this.node.computePossibleExtensions();
+	}
+}
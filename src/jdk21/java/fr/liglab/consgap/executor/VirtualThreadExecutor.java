@@ -0,0 +1,120 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.liglab.consgap.dataset.Dataset;
+
+/**
+ * Explores the mining tree with virtual threads: each node whose step has at
+ * least forkThreshold extensions is explored by its own virtual thread, smaller
+ * ones are explored inline by the thread that generated them. Each node opens a
+ * scope in which its subtrees are started and only completes once the scope is
+ * closed, that is once all of them are done; a failing subtree cancels the
+ * others of its scope.
+ * 
+ * A subtree waiting on I/O or on a java.util.concurrent lock releases its
+ * carrier thread to the others. Until Java 24, waiting to enter a synchronized
+ * block still holds it.
+ */
+public class VirtualThreadExecutor implements MiningExecutor {
+	// read once, by the first virtual thread started in the JVM
+	private static final String PARALLELISM = "jdk.virtualThreadScheduler.parallelism";
+
+	private final int forkThreshold;
+	private ExplorationSettings settings = ExplorationSettings.DEFAULT;
+
+	/**
+	 * @param nbThreads
+	 *            number of carrier threads, unless virtual threads were
+	 *            started before or the JVM was given
+	 *            -Djdk.virtualThreadScheduler.parallelism
+	 */
+	public VirtualThreadExecutor(int nbThreads, int forkThreshold) {
+		if (System.getProperty(PARALLELISM) == null) {
+			System.setProperty(PARALLELISM, Integer.toString(nbThreads));
+		}
+		this.forkThreshold = forkThreshold;
+	}
+
+	@Override
+	public void setExplorationSettings(ExplorationSettings settings) {
+		this.settings = settings;
+	}
+
+	@Override
+	public ExplorationSettings getExplorationSettings() {
+		return this.settings;
+	}
+
+	@Override
+	public void mine(Dataset d) {
+		this.mine(new MiningStep(d, this.settings));
+	}
+
+	@Override
+	public void mine(MiningStep initState) {
+		this.explore(initState);
+	}
+
+	private void explore(MiningStep step) {
+		try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<?>> subtrees = new ArrayList<>();
+			MiningStep next;
+			while ((next = step.next()) != null) {
+				if (next.getNbExtensions() >= this.forkThreshold) {
+					final MiningStep subtree = next;
+					subtrees.add(scope.submit(() -> this.explore(subtree)));
+				} else {
+					mineInline(next);
+				}
+			}
+			for (Future<?> subtree : subtrees) {
+				try {
+					subtree.get();
+				} catch (ExecutionException e) {
+					scope.shutdownNow();
+					if (e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					}
+					throw new RuntimeException(e.getCause());
+				} catch (InterruptedException e) {
+					scope.shutdownNow();
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+		}
+	}
+
+	private static void mineInline(MiningStep step) {
+		MiningStep next;
+		while ((next = step.next()) != null) {
+			mineInline(next);
+		}
+	}
+}
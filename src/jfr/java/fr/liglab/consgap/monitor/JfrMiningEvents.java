@@ -0,0 +1,202 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder implementation of the mining hooks, compiled only by the jfr
+ * profile and loaded by reflection from MiningEvents. When no recording has
+ * the event type enabled begin methods return null without allocating.
+ */
+public class JfrMiningEvents extends MiningEvents {
+	private static final EventType LOADING_PHASE = EventType.getEventType(LoadingPhaseEvent.class);
+	private static final EventType EXPAND = EventType.getEventType(ExpandEvent.class);
+	private static final EventType STEAL = EventType.getEventType(StealEvent.class);
+	private static final EventType BARRIER_WAIT = EventType.getEventType(BarrierWaitEvent.class);
+	private static final EventType BATCH_REBUILD = EventType.getEventType(BatchRebuildEvent.class);
+
+	@Name("fr.liglab.consgap.LoadingPhase")
+	@Label("Dataset Loading Phase")
+	@Category("ConSGapMiner")
+	@StackTrace(false)
+	static class LoadingPhaseEvent extends Event {
+		@Label("Phase")
+		String phase;
+		@Label("File")
+		String file;
+	}
+
+	@Name("fr.liglab.consgap.Expand")
+	@Label("Dataset Expansion")
+	@Category("ConSGapMiner")
+	@StackTrace(false)
+	@Threshold("1 ms")
+	static class ExpandEvent extends Event {
+		@Label("Depth")
+		int depth;
+		@Label("Expansion Item")
+		int item;
+		@Label("Outcome")
+		String outcome;
+	}
+
+	@Name("fr.liglab.consgap.Steal")
+	@Label("Work Steal")
+	@Category("ConSGapMiner")
+	@StackTrace(false)
+	static class StealEvent extends Event {
+		@Label("Thief")
+		int thief;
+		@Label("Victim")
+		int victim;
+		@Label("Same Group")
+		boolean sameGroup;
+		@Label("Stolen Level")
+		int level;
+	}
+
+	@Name("fr.liglab.consgap.BarrierWait")
+	@Label("Level Barrier Wait")
+	@Category("ConSGapMiner")
+	@StackTrace(false)
+	static class BarrierWaitEvent extends Event {
+		@Label("Thread")
+		int thread;
+		@Label("Barrier")
+		String barrier;
+	}
+
+	@Name("fr.liglab.consgap.BatchRebuild")
+	@Label("Batch Filter Rebuild")
+	@Category("ConSGapMiner")
+	@StackTrace(false)
+	static class BatchRebuildEvent extends Event {
+		@Label("Batch Size")
+		int batchSize;
+		@Label("Kept")
+		int kept;
+	}
+
+	private static Event begin(Event event) {
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public Object beginLoadingPhase() {
+		return LOADING_PHASE.isEnabled() ? begin(new LoadingPhaseEvent()) : null;
+	}
+
+	@Override
+	public void endLoadingPhase(Object token, String phase, String file) {
+		if (token != null) {
+			LoadingPhaseEvent event = (LoadingPhaseEvent) token;
+			event.end();
+			if (event.shouldCommit()) {
+				event.phase = phase;
+				event.file = file;
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public Object beginExpand() {
+		return EXPAND.isEnabled() ? begin(new ExpandEvent()) : null;
+	}
+
+	@Override
+	public void endExpand(Object token, int depth, int item, String outcome) {
+		if (token != null) {
+			ExpandEvent event = (ExpandEvent) token;
+			event.end();
+			if (event.shouldCommit()) {
+				event.depth = depth;
+				event.item = item;
+				event.outcome = outcome;
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public Object beginSteal() {
+		return STEAL.isEnabled() ? begin(new StealEvent()) : null;
+	}
+
+	@Override
+	public void endSteal(Object token, int thief, int victim, boolean sameGroup, int level) {
+		if (token != null) {
+			StealEvent event = (StealEvent) token;
+			event.end();
+			if (event.shouldCommit()) {
+				event.thief = thief;
+				event.victim = victim;
+				event.sameGroup = sameGroup;
+				event.level = level;
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public Object beginBarrierWait() {
+		return BARRIER_WAIT.isEnabled() ? begin(new BarrierWaitEvent()) : null;
+	}
+
+	@Override
+	public void endBarrierWait(Object token, int thread, String barrier) {
+		if (token != null) {
+			BarrierWaitEvent event = (BarrierWaitEvent) token;
+			event.end();
+			if (event.shouldCommit()) {
+				event.thread = thread;
+				event.barrier = barrier;
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public Object beginBatchRebuild() {
+		return BATCH_REBUILD.isEnabled() ? begin(new BatchRebuildEvent()) : null;
+	}
+
+	@Override
+	public void endBatchRebuild(Object token, int batchSize, int kept) {
+		if (token != null) {
+			BatchRebuildEvent event = (BatchRebuildEvent) token;
+			event.end();
+			if (event.shouldCommit()) {
+				event.batchSize = batchSize;
+				event.kept = kept;
+				event.commit();
+			}
+		}
+	}
+}
@@ -20,8 +20,16 @@
 
 package fr.liglab.consgap;
 
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import javax.management.JMException;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -31,49 +39,139 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 
 import fr.liglab.consgap.collector.BatchFilteringResultsCollector;
+import fr.liglab.consgap.collector.CollectedResults;
+import fr.liglab.consgap.collector.IncrementalFilteringResultsCollector;
 import fr.liglab.consgap.collector.OrderedResultsCollector;
 import fr.liglab.consgap.collector.PostFilteringResultsCollector;
 import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.collector.ResultsSink;
+import fr.liglab.consgap.collector.SpillingResultsCollector;
+import fr.liglab.consgap.collector.SummarizingResultsCollector;
+import fr.liglab.consgap.collector.TopKResultsCollector;
 import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.DatasetIndex;
 import fr.liglab.consgap.dataset.consgapstyle.BitSetDataset;
 import fr.liglab.consgap.dataset.consgapstyle.ListDataset;
 import fr.liglab.consgap.dataset.lcmstyle.TransBasedBitSetDataset;
 import fr.liglab.consgap.dataset.lcmstyle.TransBasedListDataset;
+import fr.liglab.consgap.distributed.Coordinator;
+import fr.liglab.consgap.distributed.Worker;
 import fr.liglab.consgap.executor.BreadthFirstExecutor;
+import fr.liglab.consgap.executor.Checkpoint;
 import fr.liglab.consgap.executor.DepthFirstExecutor;
+import fr.liglab.consgap.executor.ExplorationFilter;
+import fr.liglab.consgap.executor.ExplorationSettings;
+import fr.liglab.consgap.executor.ForkJoinExecutor;
 import fr.liglab.consgap.executor.MiningExecutor;
 import fr.liglab.consgap.executor.MiningStep;
+import fr.liglab.consgap.executor.SearchProfiler;
+import fr.liglab.consgap.executor.VirtualThreads;
+import fr.liglab.consgap.monitor.ProgressMonitor;
+import fr.liglab.consgap.output.BinaryResultsSink;
+import fr.liglab.consgap.output.NullResultsSink;
+import fr.liglab.consgap.output.ResultsSummary;
+import fr.liglab.consgap.output.TextResultsSink;
+import fr.liglab.consgap.service.IncrementalMining;
+import fr.liglab.consgap.service.MiningService;
 
 public class Main {
 
 	public static String separator = "\t";
 
 	public static void main(String[] args) throws IOException {
-		Options options = new Options();
+		Options options = createOptions();
 		CommandLineParser parser = new PosixParser();
+		try {
+			CommandLine cmd = parser.parse(options, args);
 
+			if (cmd.hasOption("worker")) {
+				Worker.run(cmd.getOptionValue("worker"));
+			} else if (cmd.hasOption("serve") && cmd.getArgs().length == 2 && !cmd.hasOption('h')) {
+				if (cmd.hasOption("sep")) {
+					Main.separator = cmd.getOptionValue("sep");
+				}
+				new MiningService(DatasetIndex.load(cmd.getArgs()[0], cmd.getArgs()[1])).serve(System.in,
+						System.out);
+			} else if (cmd.getArgs().length != 5 || cmd.hasOption('h')) {
+				printMan(options);
+			} else {
+				standalone(cmd, args);
+			}
+		} catch (ParseException e) {
+			printMan(options);
+		}
+	}
+
+	private static Options createOptions() {
+		Options options = new Options();
 		options.addOption("s", false, "Sparse: use int lists instead of bitsets to represent positions");
 		options.addOption("b", false, "Benchmark mode : sequences are not outputted at all");
 		options.addOption("h", false, "Show help");
 		options.addOption("w", false, "Use breadth first exploration instead of depth first. Usually less efficient.");
+		options.addOption(
+				"j",
+				true,
+				"Use fork/join exploration instead of depth first, forking subtrees whose node has at least this many extensions (others are explored inline)");
+		options.addOption("vt", true,
+				"Use virtual threads instead of depth first (Java 21 build only), one per subtree whose node has at least this many extensions (others are explored inline)");
+		options.addOption(
+				"g",
+				true,
+				"NUMA-aware depth first exploration: split threads in this many groups (typically one per socket), stealing within the group first");
+		options.addOption("r", false,
+				"With -g, each group explores its share of the root on its own copy of the dataset (run with -XX:+UseNUMA)");
 		options.addOption("t", true, "How many threads will be launched (defaults to your machine's processors count)");
 		options.addOption("l", false, "Use lcm style, read dataset to generate candidates");
 		options.addOption(
 				"f",
 				true,
 				"Sequences filtering frequency, expressed in number of outputs. Recommended value is 100, avoids some redundant explorations.");
+		options.addOption("i", false,
+				"Filter sequences as they are collected, using a concurrent index. Avoids redundant explorations.");
+		options.addOption("p", false,
+				"Stop expanding sequences containing an already collected one (with -w, -f or -i, the others don't index collected sequences)");
+		options.addOption("bloom", false,
+				"With -w or -f, pre-check lookups of collected sequences with a Bloom filter, which only pays off when results are few compared to the square of the number of items");
+		options.addOption("n", false,
+				"Remove redundant results with an inverted index instead of a prefix tree, in parallel (post filtering only)");
+		options.addOption("o", false,
+				"With -w, output results during mining, as soon as they are found, instead of keeping them in memory");
+		options.addOption("spill", true,
+				"Keep at most this many MB of collected sequences in memory, spill the others to temporary files (post filtering only)");
+		options.addOption("prof", true,
+				"Profile the search tree by depth and write the report to this file, as JSON if its name ends with .json, CSV otherwise");
+		options.addOption("progress", true, "Print mining progress to stderr every this many seconds");
+		options.addOption("jmx", false, "Expose mining progress as an MBean (" + ProgressMonitor.OBJECT_NAME + ")");
+		options.addOption("ckpt", true,
+				"Depth first only: periodically save the exploration frontier and the results collected so far to this file");
+		options.addOption("ckptperiod", true, "Seconds between two checkpoints (defaults to 600)");
+		options.addOption("resume", false, "Continue the run saved in the file given with -ckpt, if it exists");
+		options.addOption("coord", true,
+				"Distribute the root's extensions across this many worker processes, which send their results back to this one");
+		options.addOption("port", true, "With -coord, port workers connect to (defaults to any free port)");
+		options.addOption("spawn", false, "With -coord, start the workers as local JVMs");
+		options.addOption("worker", true, "Mine as a worker of the coordinator listening at HOST:PORT");
+		options.addOption("summary", true,
+				"Save the results and their supports to this file, to later answer a higher MINSUP_IN_POS without mining");
+		options.addOption("from", true,
+				"Answer from a file saved with -summary if it has the same MAXSUP_IN_NEG and MAX_GAP and a lower or equal MINSUP_IN_POS, mine otherwise");
+		options.addOption("incr", true,
+				"Keep the datasets' index and the collected sequences in this file, next runs only read transactions appended to the datasets since and only explore what they change");
+		options.addOption("topk", true,
+				"Only output this many minimal emerging sequences with the highest supports in positive, raising MINSUP_IN_POS while mining");
+		options.addOption("serve", false,
+				"Load INPUT_POS_DATASET and INPUT_NEG_DATASET once, then read requests from standard input, one per line: [OPTIONS] MINSUP_IN_POS MAXSUP_IN_NEG MAX_GAP");
 		options.addOption("sep", true, "separator in the dataset files (defaults to tabulation)");
-		try {
-			CommandLine cmd = parser.parse(options, args);
+		options.addOption("out", true, "Output file (defaults to standard output)");
+		options.addOption("bin", false,
+				"Binary output: item names dictionary, then each sequence as its length followed by item ids");
+		options.addOption("gz", false, "Compress output with gzip");
+		options.addOption("enc", true, "Output encoding for item names (defaults to the platform's)");
+		return options;
+	}
 
-			if (cmd.getArgs().length != 5 || cmd.hasOption('h')) {
-				printMan(options);
-			} else {
-				standalone(cmd);
-			}
-		} catch (ParseException e) {
-			printMan(options);
-		}
+	public static CommandLine parse(String[] args) throws ParseException {
+		return new PosixParser().parse(createOptions(), args);
 	}
 
 	private static void printMan(Options options) {
@@ -85,27 +183,104 @@ public class Main {
 		formatter.printHelp(80, syntax, header, options, footer);
 	}
 
-	private static void standalone(CommandLine cmd) throws IOException {
-		if (cmd.hasOption("sep")) {
-			Main.separator = cmd.getOptionValue("sep");
+	/**
+	 * @param stdout
+	 *            where results go without -out
+	 */
+	public static ResultsSink createSink(CommandLine cmd, OutputStream stdout) throws IOException {
+		if (cmd.hasOption('b')) {
+			return new NullResultsSink();
 		}
-		int nbThreads = Runtime.getRuntime().availableProcessors();
-		if (cmd.hasOption('t')) {
-			nbThreads = Math.max(1, Integer.parseInt(cmd.getOptionValue('t')));
+		OutputStream out;
+		if (cmd.hasOption("out")) {
+			out = new FileOutputStream(cmd.getOptionValue("out"));
+		} else {
+			out = stdout;
+		}
+		if (cmd.hasOption("gz")) {
+			out = new GZIPOutputStream(out, 1 << 16);
+		}
+		if (cmd.hasOption("bin")) {
+			return new BinaryResultsSink(out);
+		} else if (cmd.hasOption("enc")) {
+			return new TextResultsSink(out, Charset.forName(cmd.getOptionValue("enc")));
+		} else {
+			return new TextResultsSink(out, Charset.defaultCharset());
 		}
+	}
+
+	public static ResultsCollector createCollector(CommandLine cmd, ResultsSink sink, int nbThreads) {
 		ResultsCollector collector;
-		MiningExecutor executor;
-		if (cmd.hasOption('w')) {
-			collector = new OrderedResultsCollector();
-			executor = new BreadthFirstExecutor(nbThreads);
+		// results from several workers don't come shorter first
+		if (cmd.hasOption('w') && !cmd.hasOption("coord")) {
+			if (cmd.hasOption('o')) {
+				collector = new OrderedResultsCollector(sink, cmd.hasOption("bloom"));
+			} else {
+				collector = new OrderedResultsCollector(null, cmd.hasOption("bloom"));
+			}
 		} else {
-			executor = new DepthFirstExecutor(nbThreads);
-			if (cmd.hasOption('f')) {
-				collector = new BatchFilteringResultsCollector(Integer.parseInt(cmd.getOptionValue('f')));
+			if (cmd.hasOption('i')) {
+				collector = new IncrementalFilteringResultsCollector(nbThreads);
+			} else if (cmd.hasOption('f')) {
+				collector = new BatchFilteringResultsCollector(Integer.parseInt(cmd.getOptionValue('f')), nbThreads,
+						cmd.hasOption("bloom"));
+			} else if (cmd.hasOption("spill")) {
+				collector = new SpillingResultsCollector(new File(System.getProperty("java.io.tmpdir")),
+						Long.parseLong(cmd.getOptionValue("spill")) << 20, nbThreads);
+			} else if (cmd.hasOption("summary") || cmd.hasOption("incr")) {
+				collector = new SummarizingResultsCollector(cmd.hasOption('n'), nbThreads);
 			} else {
-				collector = new PostFilteringResultsCollector();
+				collector = new PostFilteringResultsCollector(cmd.hasOption('n'), nbThreads);
 			}
 		}
+		collector.setEmergingSubseqPruning(cmd.hasOption('p'));
+		return collector;
+	}
+
+	// results only depend on the datasets' content, the gap and how items
+	// are split
+	private static String getSummarySignature(CommandLine cmd) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2; i++) {
+			File dataset = new File(cmd.getArgs()[i]);
+			sb.append(dataset.getAbsolutePath()).append(' ').append(dataset.length()).append(' ')
+					.append(dataset.lastModified()).append(' ');
+		}
+		return sb.append(cmd.getArgs()[4]).append(' ').append(cmd.getOptionValue("sep", Main.separator)).toString();
+	}
+
+	// the datasets' content changes between incremental runs
+	private static String getIncrementalSignature(CommandLine cmd) {
+		return new File(cmd.getArgs()[0]).getAbsolutePath() + " " + new File(cmd.getArgs()[1]).getAbsolutePath() + " "
+				+ Arrays.toString(Arrays.copyOfRange(cmd.getArgs(), 2, 5)) + " " + Main.separator;
+	}
+
+	public static int getNbThreads(CommandLine cmd) {
+		if (cmd.hasOption('t')) {
+			return Math.max(1, Integer.parseInt(cmd.getOptionValue('t')));
+		} else {
+			return Runtime.getRuntime().availableProcessors();
+		}
+	}
+
+	public static MiningExecutor createExecutor(CommandLine cmd, int nbThreads) {
+		if (cmd.hasOption('w')) {
+			return new BreadthFirstExecutor(nbThreads);
+		} else if (cmd.hasOption('j')) {
+			return new ForkJoinExecutor(nbThreads, Integer.parseInt(cmd.getOptionValue('j')));
+		} else if (cmd.hasOption("vt")) {
+			return VirtualThreads.newExecutor(nbThreads, Integer.parseInt(cmd.getOptionValue("vt")));
+		} else if (cmd.hasOption('g')) {
+			return new DepthFirstExecutor(nbThreads, Integer.parseInt(cmd.getOptionValue('g')), cmd.hasOption('r'));
+		} else {
+			return new DepthFirstExecutor(nbThreads);
+		}
+	}
+
+	public static Dataset createDataset(CommandLine cmd, ResultsCollector collector) throws IOException {
+		if (cmd.hasOption("sep")) {
+			Main.separator = cmd.getOptionValue("sep");
+		}
 		Dataset dataset;
 		if (cmd.hasOption('l')) {
 			if (cmd.hasOption('s')) {
@@ -126,25 +301,304 @@ public class Main {
 						.getArgs()[2]), Integer.parseInt(cmd.getArgs()[3]), Integer.parseInt(cmd.getArgs()[4]));
 			}
 		}
+		return dataset;
+	}
 
+	/**
+	 * Derives the root from index instead of reading the datasets
+	 */
+	public static Dataset createDataset(CommandLine cmd, ResultsCollector collector, DatasetIndex index,
+			int posFreqLowerBound, int negFreqUpperBound, int gapConstraint) {
+		if (cmd.hasOption('l')) {
+			if (cmd.hasOption('s')) {
+				return new TransBasedListDataset(collector, index, posFreqLowerBound, negFreqUpperBound,
+						gapConstraint);
+			} else {
+				return new TransBasedBitSetDataset(collector, index, posFreqLowerBound, negFreqUpperBound,
+						gapConstraint);
+			}
+		} else {
+			if (cmd.hasOption('s')) {
+				return new ListDataset(collector, index, posFreqLowerBound, negFreqUpperBound, gapConstraint);
+			} else {
+				return new BitSetDataset(collector, index, posFreqLowerBound, negFreqUpperBound, gapConstraint);
+			}
+		}
+	}
+
+	// top-k runs collect sequences with their supports
+	public static boolean supportsTopK(CommandLine cmd) {
+		return !cmd.hasOption('i') && !cmd.hasOption('f') && !cmd.hasOption("spill") && !cmd.hasOption('p');
+	}
+
+	/**
+	 * Checks options which can't be combined, before anything is read or
+	 * written
+	 * 
+	 * @return the error message, null if cmd is valid
+	 */
+	private static String validate(CommandLine cmd) {
+		if (cmd.hasOption("vt") && !VirtualThreads.isAvailable()) {
+			return "-vt needs virtual threads, available from Java 21";
+		}
+		if (cmd.hasOption("topk")
+				&& (!supportsTopK(cmd) || cmd.hasOption("coord") || cmd.hasOption("ckpt") || cmd.hasOption("summary")
+						|| cmd.hasOption("from") || cmd.hasOption("incr"))) {
+			return "top-k runs collect sequences with their supports, "
+					+ "without -i, -f, -spill, -p, -coord, -ckpt, -summary, -from or -incr";
+		}
+		// as chosen by createCollector
+		if ((cmd.hasOption("summary") || cmd.hasOption("incr"))
+				&& (!supportsTopK(cmd) || cmd.hasOption('w') || cmd.hasOption("coord") || cmd.hasOption("ckpt"))) {
+			return "summaries and incremental runs need all collected sequences with their supports, "
+					+ "without -w, -i, -f, -spill, -p, -coord or -ckpt";
+		}
+		// as chosen by createExecutor and createCollector
+		if (cmd.hasOption("ckpt")
+				&& (cmd.hasOption('w') || cmd.hasOption('j') || cmd.hasOption("vt") || cmd.hasOption("spill")
+						|| cmd.hasOption("coord") || cmd.hasOption("incr"))) {
+			return "checkpoints need the default depth first exploration, without -w, -j, -vt, -spill, -coord or -incr";
+		}
+		return null;
+	}
+
+	private static void fail(String message) {
+		System.err.println(message);
+		System.exit(1);
+	}
+
+	private static void standalone(CommandLine cmd, String[] args) throws IOException {
+		String error = validate(cmd);
+		if (error != null) {
+			fail(error);
+		}
+		if (cmd.hasOption("sep")) {
+			Main.separator = cmd.getOptionValue("sep");
+		}
+		int nbThreads = getNbThreads(cmd);
+		if (cmd.hasOption("topk")) {
+			topK(cmd, nbThreads);
+		} else if (!cmd.hasOption("from") || !answerFromSummary(cmd, nbThreads)) {
+			mine(cmd, args, nbThreads);
+		}
+	}
+
+	private static void topK(CommandLine cmd, int nbThreads) throws IOException {
+		int k = Integer.parseInt(cmd.getOptionValue("topk"));
+		int posFreqLowerBound = Integer.parseInt(cmd.getArgs()[2]);
+		int negFreqUpperBound = Integer.parseInt(cmd.getArgs()[3]);
+		int gapConstraint = Integer.parseInt(cmd.getArgs()[4]);
+		// emerging items' supports and subsequences of results are looked up
+		DatasetIndex index = DatasetIndex.load(cmd.getArgs()[0], cmd.getArgs()[1]);
+		ResultsSink sink = createSink(cmd, new FileOutputStream(FileDescriptor.out));
 		long startTime = System.currentTimeMillis();
-		executor.mine(dataset);
+		TopKResultsCollector collector = new TopKResultsCollector(k, index, posFreqLowerBound, negFreqUpperBound,
+				gapConstraint, cmd.hasOption('n'), nbThreads);
+		MiningExecutor executor = createExecutor(cmd, nbThreads);
+		// a sibling may only emerge for a threshold lower than the final one
+		executor.setExplorationSettings(new ExplorationSettings(null, false, null));
+		executor.mine(createDataset(cmd, collector, index, posFreqLowerBound, negFreqUpperBound, gapConstraint));
 		long removeRedundantStart = System.currentTimeMillis();
-		List<String[]> minimalEmerging = dataset.getResultsCollector().getNonRedundant();
+		int nbMinimalEmerging = collector.writeNonRedundant(sink);
+		sink.close();
+		long endTime = System.currentTimeMillis();
+		System.err.println("total minimal emerging sequences = " + nbMinimalEmerging
+				+ "\ntotal sequences collected = " + collector.getNbCollected() + "\ntop-" + k
+				+ " reached MINSUP_IN_POS = " + collector.getPosFreqLowerBound());
+		System.err.println("execution time " + (endTime - startTime) + " ms including "
+				+ (endTime - removeRedundantStart) + " ms removing redundant results, performed "
+				+ MiningStep.loopCounts.get() + " iterations");
+	}
 
-		if (!cmd.hasOption('b')) {
-			for (String[] seq : minimalEmerging) {
-				for (int i = 0; i < seq.length; i++) {
-					System.out.print(seq[i] + "\t");
-				}
-				System.out.println();
+	/**
+	 * @return false if the summary given with -from can't answer these
+	 *         thresholds, which must then be mined
+	 */
+	private static boolean answerFromSummary(CommandLine cmd, int nbThreads) throws IOException {
+		File summaryFile = new File(cmd.getOptionValue("from"));
+		ResultsSummary saved = ResultsSummary.read(summaryFile);
+		int posFreqLowerBound = Integer.parseInt(cmd.getArgs()[2]);
+		if (!saved.getSignature().equals(getSummarySignature(cmd))) {
+			fail(summaryFile + " was saved for other datasets, gap or separator");
+		}
+		if (!saved.canAnswer(posFreqLowerBound, Integer.parseInt(cmd.getArgs()[3]))) {
+			System.err.println(summaryFile + " only answers MAXSUP_IN_NEG " + saved.getNegFreqUpperBound()
+					+ " with MINSUP_IN_POS " + saved.getPosFreqLowerBound() + " or more, mining");
+			return false;
+		}
+		ResultsSink sink = createSink(cmd, new FileOutputStream(FileDescriptor.out));
+		long startTime = System.currentTimeMillis();
+		ResultsSummary answer = saved.filter(posFreqLowerBound);
+		int nbMinimalEmerging = answer.writeNonRedundant(sink, nbThreads);
+		sink.close();
+		if (cmd.hasOption("summary")) {
+			answer.write(new File(cmd.getOptionValue("summary")));
+		}
+		System.err.println("total minimal emerging sequences = " + nbMinimalEmerging + "\nanswered from "
+				+ summaryFile + " in " + (System.currentTimeMillis() - startTime) + " ms");
+		return true;
+	}
+
+	/**
+	 * @return the state saved at -incr with the transactions appended since,
+	 *         or a new one if there is none
+	 */
+	private static IncrementalMining loadIncremental(CommandLine cmd) throws IOException {
+		File stateFile = new File(cmd.getOptionValue("incr"));
+		String signature = getIncrementalSignature(cmd);
+		if (!stateFile.exists()) {
+			return new IncrementalMining(signature, Integer.parseInt(cmd.getArgs()[2]),
+					Integer.parseInt(cmd.getArgs()[3]), Integer.parseInt(cmd.getArgs()[4]), cmd.getArgs()[0],
+					cmd.getArgs()[1]);
+		}
+		IncrementalMining incremental = IncrementalMining.read(stateFile);
+		if (!incremental.getSignature().equals(signature)) {
+			fail(stateFile + " was saved for " + incremental.getSignature() + ", can't use it for " + signature);
+		}
+		incremental.appendTransactions(cmd.getArgs()[0], cmd.getArgs()[1]);
+		System.err.println(incremental.getNbAppendedPositive() + " positive and "
+				+ incremental.getNbAppendedNegative() + " negative transactions appended since " + stateFile
+				+ " was saved");
+		return incremental;
+	}
+
+	/**
+	 * @return the checkpoint saved at -ckpt if the run must resume from it,
+	 *         null otherwise
+	 */
+	private static Checkpoint loadCheckpoint(CommandLine cmd, String signature) throws IOException {
+		File checkpointFile = new File(cmd.getOptionValue("ckpt"));
+		if (!cmd.hasOption("resume") || !checkpointFile.exists()) {
+			return null;
+		}
+		Checkpoint checkpoint = Checkpoint.read(checkpointFile);
+		if (!checkpoint.getSignature().equals(signature)) {
+			fail(checkpointFile + " was saved for " + checkpoint.getSignature() + ", can't resume with " + signature);
+		}
+		System.err.println("resuming " + checkpoint.getNbSteps() + " steps and " + checkpoint.getNbResults()
+				+ " results from " + checkpointFile);
+		return checkpoint;
+	}
+
+	private static ProgressMonitor startMonitor(CommandLine cmd, ResultsCollector collector, MiningExecutor executor) {
+		if (!cmd.hasOption("progress") && !cmd.hasOption("jmx")) {
+			return null;
+		}
+		ProgressMonitor monitor = new ProgressMonitor(collector, executor);
+		if (cmd.hasOption("progress")) {
+			monitor.startTicker(Integer.parseInt(cmd.getOptionValue("progress")));
+		}
+		if (cmd.hasOption("jmx")) {
+			try {
+				monitor.registerMBean();
+			} catch (JMException e) {
+				System.err.println("could not register the progress MBean: " + e);
 			}
 		}
+		return monitor;
+	}
+
+	private static void mine(CommandLine cmd, String[] args, int nbThreads) throws IOException {
+		// saved states are checked before the output is opened
+		IncrementalMining incremental = null;
+		if (cmd.hasOption("incr")) {
+			incremental = loadIncremental(cmd);
+		}
+		File checkpointFile = null;
+		Checkpoint checkpoint = null;
+		// thresholds are part of the arguments, the separator changes item
+		// names
+		String checkpointSignature = Arrays.toString(cmd.getArgs()) + " " + Main.separator;
+		if (cmd.hasOption("ckpt")) {
+			checkpointFile = new File(cmd.getOptionValue("ckpt"));
+			checkpoint = loadCheckpoint(cmd, checkpointSignature);
+		}
+
+		ResultsSink sink = createSink(cmd, new FileOutputStream(FileDescriptor.out));
+		ResultsCollector collector = createCollector(cmd, sink, nbThreads);
+		MiningExecutor executor = createExecutor(cmd, nbThreads);
+		ExplorationFilter explorationFilter = null;
+		Dataset dataset;
+		if (incremental != null) {
+			dataset = createDataset(cmd, collector, incremental.getIndex(), Integer.parseInt(cmd.getArgs()[2]),
+					Integer.parseInt(cmd.getArgs()[3]), Integer.parseInt(cmd.getArgs()[4]));
+			explorationFilter = incremental.prepare((SummarizingResultsCollector) collector);
+		} else {
+			dataset = createDataset(cmd, collector);
+		}
+		if (checkpointFile != null) {
+			DepthFirstExecutor dfe = (DepthFirstExecutor) executor;
+			if (checkpoint != null) {
+				dfe.setResume(checkpoint);
+			}
+			long period = 600;
+			if (cmd.hasOption("ckptperiod")) {
+				period = Math.max(1, Long.parseLong(cmd.getOptionValue("ckptperiod")));
+			}
+			dfe.setCheckpointing(checkpointFile, period, checkpointSignature, (CollectedResults) collector);
+		}
+		SearchProfiler profiler = null;
+		if (cmd.hasOption("prof")) {
+			profiler = new SearchProfiler();
+		}
+		// summaries and incremental runs need all emerging sequences, not only
+		// those which can be minimal
+		boolean siblingsPruning = !cmd.hasOption("summary") && !cmd.hasOption("incr");
+		executor.setExplorationSettings(new ExplorationSettings(profiler, siblingsPruning, explorationFilter));
+		ProgressMonitor monitor = startMonitor(cmd, collector, executor);
+		long startTime = System.currentTimeMillis();
+		if (cmd.hasOption("coord")) {
+			int port = 0;
+			if (cmd.hasOption("port")) {
+				port = Integer.parseInt(cmd.getOptionValue("port"));
+			}
+			Coordinator coordinator = new Coordinator(port, Integer.parseInt(cmd.getOptionValue("coord")), args,
+					collector);
+			System.err.println("waiting for " + cmd.getOptionValue("coord") + " workers on port "
+					+ coordinator.getPort());
+			if (cmd.hasOption("spawn")) {
+				coordinator.spawnLocalWorkers();
+			}
+			coordinator.mine();
+		} else {
+			executor.mine(dataset);
+		}
+		if (monitor != null) {
+			try {
+				monitor.stop();
+			} catch (JMException e) {
+				System.err.println("could not unregister the progress MBean: " + e);
+			}
+		}
+		long removeRedundantStart = System.currentTimeMillis();
+		int nbMinimalEmerging = dataset.getResultsCollector().writeNonRedundant(sink);
+		sink.close();
+		if (checkpointFile != null) {
+			// the run is complete, its checkpoint must not be resumed
+			checkpointFile.delete();
+		}
 		long endTime = System.currentTimeMillis();
-		System.err.println("total minimal emerging sequences = " + minimalEmerging.size()
+		System.err.println("total minimal emerging sequences = " + nbMinimalEmerging
 				+ "\ntotal sequences collected = " + dataset.getResultsCollector().getNbCollected());
 		System.err.println("execution time " + (endTime - startTime) + " ms including "
 				+ (endTime - removeRedundantStart) + " ms removing redundant results, performed "
 				+ MiningStep.loopCounts.get() + " iterations");
+		if (profiler != null) {
+			profiler.writeReport(new File(cmd.getOptionValue("prof")));
+		}
+		if (cmd.hasOption("summary")) {
+			ResultsSummary summary = ResultsSummary.summarize(getSummarySignature(cmd),
+					Integer.parseInt(cmd.getArgs()[2]), Integer.parseInt(cmd.getArgs()[3]),
+					(SummarizingResultsCollector) collector);
+			summary.write(new File(cmd.getOptionValue("summary")));
+		}
+		if (incremental != null) {
+			incremental.write(new File(cmd.getOptionValue("incr")), (SummarizingResultsCollector) collector);
+		}
+		if (cmd.hasOption('g') && executor instanceof DepthFirstExecutor) {
+			DepthFirstExecutor dfe = (DepthFirstExecutor) executor;
+			System.err.println("steals within groups " + dfe.getLocalSteals() + ", across groups "
+					+ dfe.getRemoteSteals());
+		}
 	}
 }
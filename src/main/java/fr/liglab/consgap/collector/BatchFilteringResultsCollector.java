@@ -20,27 +20,50 @@
 
 package fr.liglab.consgap.collector;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 
-public class BatchFilteringResultsCollector extends ResultsCollector {
+import fr.liglab.consgap.monitor.MiningEvents;
+
+public class BatchFilteringResultsCollector extends ResultsCollector implements CollectedResults {
 
 	private List<int[]> collectedSeq;
-	private TreeNode filteringTree;
+	private volatile SequenceTrie filteringTree;
+	// built along with filteringTree and published before it, if asked for
+	private volatile SubsequenceBloomFilter filteringSignatures;
+	private final boolean signatures;
+	// sequences collected since last batch, older ones are found in
+	// filteringTree
+	private volatile SequenceInterner interner;
 	private int nbCollected;
 	private int collectSinceBatch;
 	private final int interBatchDelay;
 	private boolean batchInProgress;
+	private final int nbFilteringThreads;
 
 	// in this class, we build tree and check from the last item in the sequence
 	// to detect collision in prefix first as it gives more pruning
 	public BatchFilteringResultsCollector(int interBatchDelay) {
+		this(interBatchDelay, 1);
+	}
+
+	// the final filtering uses nbFilteringThreads, batches are filtered by the
+	// mining thread that triggers them
+	public BatchFilteringResultsCollector(int interBatchDelay, int nbFilteringThreads) {
+		this(interBatchDelay, nbFilteringThreads, false);
+	}
+
+	// with signatures, lookups are pre-checked by a Bloom filter of each batch
+	public BatchFilteringResultsCollector(int interBatchDelay, int nbFilteringThreads, boolean signatures) {
+		this.nbFilteringThreads = nbFilteringThreads;
+		this.signatures = signatures;
 		this.collectedSeq = new ArrayList<>();
 		this.nbCollected = 0;
 		this.filteringTree = null;
+		this.filteringSignatures = null;
+		this.interner = new SequenceInterner();
 		this.collectSinceBatch = 0;
 		this.interBatchDelay = interBatchDelay;
 		this.batchInProgress = false;
@@ -53,20 +76,17 @@ public class BatchFilteringResultsCollector extends ResultsCollector {
 	 */
 	@Override
 	public EmergingStatus collect(int[] sequence, int expansionItem) {
+		EmergingStatus known = this.lookupEmergingSubseq(sequence, expansionItem);
+		if (known != EmergingStatus.NO_EMERGING_SUBSET) {
+			return known;
+		}
+		// same sequence reached from another path since last batch
+		if (!this.interner.add(sequence, expansionItem)) {
+			return EmergingStatus.NEW_EMERGING;
+		}
 		int[] fullSeq = new int[sequence.length + 1];
 		System.arraycopy(sequence, 0, fullSeq, 1, sequence.length);
 		fullSeq[0] = expansionItem;
-		TreeNode root = this.filteringTree;
-		if (root != null) {
-			int lastPos = recursiveSubsetCheck(root, fullSeq, fullSeq.length - 1);
-			if (lastPos >= 0) {
-				if (lastPos == 0) {
-					return EmergingStatus.EMERGING_WITH_EXPANSION;
-				} else {
-					return EmergingStatus.EMERGING_WITHOUT_EXPANSION;
-				}
-			}
-		}
 		List<int[]> batchSeq = null;
 		synchronized (this) {
 			collectedSeq.add(fullSeq);
@@ -77,14 +97,27 @@ public class BatchFilteringResultsCollector extends ResultsCollector {
 					this.batchInProgress = true;
 					batchSeq = this.collectedSeq;
 					this.collectedSeq = new ArrayList<int[]>();
+					// duplicates collected until the new tree is published
+					// are dropped by the next filtering
+					this.interner = new SequenceInterner();
 					this.collectSinceBatch = 0;
 				}
 			}
 		}
 		if (batchSeq != null) {
-			TreeNode newRoot = new TreeNode();
-			List<int[]> filtered = getNonRedundant(newRoot, batchSeq);
-			this.filteringTree = newRoot;
+			final Object event = MiningEvents.INSTANCE.beginBatchRebuild();
+			final int batchSize = batchSeq.size();
+			SequenceTrie newTree = new SequenceTrie();
+			List<int[]> filtered = getNonRedundant(newTree, batchSeq, 1);
+			if (this.signatures) {
+				SubsequenceBloomFilter newSignatures = new SubsequenceBloomFilter(filtered.size());
+				for (int[] seq : filtered) {
+					newSignatures.add(seq);
+				}
+				this.filteringSignatures = newSignatures;
+			}
+			this.filteringTree = newTree;
+			MiningEvents.INSTANCE.endBatchRebuild(event, batchSize, filtered.size());
 			synchronized (this) {
 				this.collectedSeq.addAll(filtered);
 				this.batchInProgress = false;
@@ -93,6 +126,17 @@ public class BatchFilteringResultsCollector extends ResultsCollector {
 		return EmergingStatus.NEW_EMERGING;
 	}
 
+	// the tree of the last batch is never modified once published
+	@Override
+	protected EmergingStatus lookupEmergingSubseq(int[] sequence, int expansionItem) {
+		SequenceTrie tree = this.filteringTree;
+		SubsequenceBloomFilter signatures = this.filteringSignatures;
+		if (tree == null || (signatures != null && !signatures.mightContainSubsequence(sequence, expansionItem))) {
+			return EmergingStatus.NO_EMERGING_SUBSET;
+		}
+		return subseqStatus(tree.subsetCheck(sequence, expansionItem));
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -100,91 +144,28 @@ public class BatchFilteringResultsCollector extends ResultsCollector {
 	 */
 	@Override
 	public int getNbCollected() {
-		return this.nbCollected++;
+		return this.nbCollected;
+	}
+
+	@Override
+	public void getCollected(List<int[]> sequences) {
+		synchronized (this) {
+			sequences.addAll(this.collectedSeq);
+		}
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see fr.liglab.consgap.internals.ResultsCollector#getNonRedundant()
+	 * @see fr.liglab.consgap.internals.ResultsCollector#writeNonRedundant(ResultsSink)
 	 */
 	@Override
-	public List<String[]> getNonRedundant() {
-		List<int[]> filtered = getNonRedundant(new TreeNode(), this.collectedSeq);
-		List<String[]> output = new ArrayList<String[]>(filtered.size() + this.emergingItems.size());
-		Iterator<String> iter = this.emergingItems.iterator();
-		while (iter.hasNext()) {
-			output.add(new String[] { iter.next() });
-		}
-		for (int[] s : filtered) {
-			String[] rebased = new String[s.length];
-			for (int i = 0; i < s.length; i++) {
-				rebased[i] = this.rebasing[s[i]];
-			}
-			output.add(rebased);
-		}
-		return output;
-	}
-
-	private static List<int[]> getNonRedundant(TreeNode rootNode, List<int[]> sequences) {
-		// sort sequences by size and then lexico
-		Collections.sort(sequences, new Comparator<int[]>() {
-
-			@Override
-			public int compare(int[] o1, int[] o2) {
-				int diffSize = o1.length - o2.length;
-				if (diffSize != 0) {
-					return diffSize;
-				} else {
-					for (int i = 0; i < o1.length; i++) {
-						if (o1[i] != o2[i]) {
-							return o1[i] - o2[i];
-						}
-					}
-					return 0;
-				}
-			}
-		});
-		List<int[]> nonRedundant = new ArrayList<>();
-		for (int[] seq : sequences) {
-			if (recursiveSubsetCheck(rootNode, seq, seq.length - 1) < 0) {
-				nonRedundant.add(seq);
-				// insert in tree
-				insertIntoTree(rootNode, seq);
-			}
-		}
-		return nonRedundant;
+	public int writeNonRedundant(ResultsSink sink) throws IOException {
+		return this.writeAll(sink, getNonRedundant(new SequenceTrie(), this.collectedSeq, this.nbFilteringThreads));
 	}
 
-	// checks from left to right
-	static private int recursiveSubsetCheck(TreeNode currentNode, int[] seq, int from) {
-		for (int i = from; i >= 0; i--) {
-			TreeNode nextNode = currentNode.get(seq[i]);
-			if (nextNode != null) {
-				// if it's a leaf, we're done
-				if (nextNode.isEmpty()) {
-					return i;
-				} else {
-					int subSetCheck = recursiveSubsetCheck(nextNode, seq, i - 1);
-					if (subSetCheck >= 0) {
-						return subSetCheck;
-					}
-				}
-			}
-		}
-		return -1;
-	}
-
-	static private void insertIntoTree(TreeNode rootNode, int[] seq) {
-		TreeNode currentNode = rootNode;
-		for (int i = seq.length - 1; i >= 0; i--) {
-			int item = seq[i];
-			TreeNode nextNode = currentNode.get(item);
-			if (nextNode == null) {
-				nextNode = new TreeNode();
-				currentNode.put(item, nextNode);
-			}
-			currentNode = nextNode;
-		}
+	private static List<int[]> getNonRedundant(SequenceTrie tree, List<int[]> sequences, int nbThreads) {
+		Collections.sort(sequences, LengthBucketFilter.SIZE_THEN_LEXICO);
+		return new TrieFilter(tree).filter(sequences, nbThreads);
 	}
 }
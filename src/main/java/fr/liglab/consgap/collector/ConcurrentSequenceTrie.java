@@ -0,0 +1,188 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Lock-free trie of sequences, built and checked from the last item in the
+ * sequence. Children of a node are kept in sorted arrays which are copied and
+ * swapped by CAS on insertion, so lookups never block.
+ */
+final class ConcurrentSequenceTrie {
+	private final Node root = new Node();
+
+	/**
+	 * @return false if the sequence contained (or was) a sequence already in
+	 *         the trie, in which case nothing is inserted
+	 */
+	public boolean insert(int[] seq) {
+		Node currentNode = this.root;
+		for (int i = seq.length - 1; i >= 0; i--) {
+			currentNode = currentNode.getOrCreateChild(seq[i]);
+			if (currentNode.terminal) {
+				return false;
+			}
+		}
+		currentNode.terminal = true;
+		return true;
+	}
+
+	/**
+	 * @return the position in seq of the first item of a sequence of the trie
+	 *         that is a subsequence of seq, -1 if there is none
+	 */
+	public int subsetCheck(int[] seq) {
+		return recursiveSubsetCheck(this.root, seq, seq.length - 1);
+	}
+
+	/**
+	 * Same as subsetCheck on expansionItem followed by sequence, without
+	 * building it
+	 */
+	public int subsetCheck(int[] sequence, int expansionItem) {
+		return recursiveSubsetCheck(this.root, sequence, expansionItem, sequence.length);
+	}
+
+	// position i is expansionItem if 0, sequence[i - 1] otherwise
+	static private int recursiveSubsetCheck(Node currentNode, int[] sequence, int expansionItem, int from) {
+		final Children children = currentNode.children;
+		if (children.items.length == 0) {
+			return -1;
+		}
+		for (int i = from; i >= 0; i--) {
+			Node nextNode = children.get(i == 0 ? expansionItem : sequence[i - 1]);
+			if (nextNode != null) {
+				if (nextNode.terminal) {
+					return i;
+				} else {
+					int subSetCheck = recursiveSubsetCheck(nextNode, sequence, expansionItem, i - 1);
+					if (subSetCheck >= 0) {
+						return subSetCheck;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	// checks from right to left
+	static private int recursiveSubsetCheck(Node currentNode, int[] seq, int from) {
+		final Children children = currentNode.children;
+		if (children.items.length == 0) {
+			return -1;
+		}
+		for (int i = from; i >= 0; i--) {
+			Node nextNode = children.get(seq[i]);
+			if (nextNode != null) {
+				if (nextNode.terminal) {
+					return i;
+				} else {
+					int subSetCheck = recursiveSubsetCheck(nextNode, seq, i - 1);
+					if (subSetCheck >= 0) {
+						return subSetCheck;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	// only call when no insertion is running
+	public void getAll(List<int[]> output) {
+		recursiveGetAll(this.root, new int[0], output);
+	}
+
+	static private void recursiveGetAll(Node currentNode, int[] suffix, List<int[]> output) {
+		if (currentNode.terminal) {
+			output.add(suffix);
+			return;
+		}
+		final Children children = currentNode.children;
+		for (int i = 0; i < children.items.length; i++) {
+			int[] seq = new int[suffix.length + 1];
+			System.arraycopy(suffix, 0, seq, 1, suffix.length);
+			seq[0] = children.items[i];
+			recursiveGetAll(children.nodes[i], seq, output);
+		}
+	}
+
+	static private final class Children {
+		static final Children EMPTY = new Children(new int[0], new Node[0]);
+
+		final int[] items;
+		final Node[] nodes;
+
+		Children(int[] items, Node[] nodes) {
+			this.items = items;
+			this.nodes = nodes;
+		}
+
+		Node get(int item) {
+			int index = Arrays.binarySearch(this.items, item);
+			if (index < 0) {
+				return null;
+			} else {
+				return this.nodes[index];
+			}
+		}
+
+		Children with(int item, Node node) {
+			int insertPos = -(Arrays.binarySearch(this.items, item) + 1);
+			int[] newItems = new int[this.items.length + 1];
+			Node[] newNodes = new Node[this.nodes.length + 1];
+			System.arraycopy(this.items, 0, newItems, 0, insertPos);
+			System.arraycopy(this.nodes, 0, newNodes, 0, insertPos);
+			newItems[insertPos] = item;
+			newNodes[insertPos] = node;
+			System.arraycopy(this.items, insertPos, newItems, insertPos + 1, this.items.length - insertPos);
+			System.arraycopy(this.nodes, insertPos, newNodes, insertPos + 1, this.nodes.length - insertPos);
+			return new Children(newItems, newNodes);
+		}
+	}
+
+	static private final class Node {
+		static final AtomicReferenceFieldUpdater<Node, Children> CHILDREN_UPDATER = AtomicReferenceFieldUpdater
+				.newUpdater(Node.class, Children.class, "children");
+
+		volatile Children children = Children.EMPTY;
+		volatile boolean terminal = false;
+
+		Node getOrCreateChild(int item) {
+			Node created = null;
+			while (true) {
+				Children current = this.children;
+				Node existing = current.get(item);
+				if (existing != null) {
+					return existing;
+				}
+				if (created == null) {
+					created = new Node();
+				}
+				if (CHILDREN_UPDATER.compareAndSet(this, current, current.with(item, created))) {
+					return created;
+				}
+			}
+		}
+	}
+}
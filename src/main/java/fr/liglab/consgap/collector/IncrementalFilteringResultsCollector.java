@@ -0,0 +1,102 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IncrementalFilteringResultsCollector extends ResultsCollector implements CollectedResults {
+
+	private final ConcurrentSequenceTrie filteringTree;
+	private final AtomicInteger nbCollected;
+	private final int nbFilteringThreads;
+
+	public IncrementalFilteringResultsCollector() {
+		this(1);
+	}
+
+	// same as BatchFilteringResultsCollector, but each new sequence goes
+	// straight into a concurrent tree, so no batch and no lock
+	public IncrementalFilteringResultsCollector(int nbFilteringThreads) {
+		this.filteringTree = new ConcurrentSequenceTrie();
+		this.nbCollected = new AtomicInteger();
+		this.nbFilteringThreads = nbFilteringThreads;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see fr.liglab.consgap.internals.ResultsCollector#collect(int[], int)
+	 */
+	@Override
+	public EmergingStatus collect(int[] sequence, int expansionItem) {
+		int lastPos = this.filteringTree.subsetCheck(sequence, expansionItem);
+		if (lastPos >= 0) {
+			return subseqStatus(lastPos);
+		}
+		int[] fullSeq = new int[sequence.length + 1];
+		System.arraycopy(sequence, 0, fullSeq, 1, sequence.length);
+		fullSeq[0] = expansionItem;
+		// a concurrent insertion may have beaten us with a subsequence
+		if (this.filteringTree.insert(fullSeq)) {
+			this.nbCollected.incrementAndGet();
+		}
+		return EmergingStatus.NEW_EMERGING;
+	}
+
+	@Override
+	protected EmergingStatus lookupEmergingSubseq(int[] sequence, int expansionItem) {
+		return subseqStatus(this.filteringTree.subsetCheck(sequence, expansionItem));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see fr.liglab.consgap.internals.ResultsCollector#getNbCollected()
+	 */
+	@Override
+	public int getNbCollected() {
+		return this.nbCollected.get();
+	}
+
+	@Override
+	public void getCollected(List<int[]> sequences) {
+		this.filteringTree.getAll(sequences);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see fr.liglab.consgap.internals.ResultsCollector#writeNonRedundant(ResultsSink)
+	 */
+	@Override
+	public int writeNonRedundant(ResultsSink sink) throws IOException {
+		// sequences may have been inserted before one of their subsequences,
+		// these are the only ones left to filter
+		List<int[]> collectedSeq = new ArrayList<int[]>(this.nbCollected.get());
+		this.filteringTree.getAll(collectedSeq);
+		Collections.sort(collectedSeq, LengthBucketFilter.SIZE_THEN_LEXICO);
+		return this.writeAll(sink, new TrieFilter(new SequenceTrie()).filter(collectedSeq, this.nbFilteringThreads));
+	}
+}
@@ -0,0 +1,125 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimality filter based on an item -> accepted sequences inverted index. An
+ * accepted sequence can only be a subsequence of S if all of its distinct items
+ * are in S, which we detect by counting its occurrences in the postings of S's
+ * items. Only these candidates get a (linear) subsequence check, instead of
+ * the backtracking of the prefix tree.
+ */
+final class InvertedIndexFilter extends LengthBucketFilter {
+	// postings[item] lists the accepted sequences containing item
+	private final TIntArrayList[] postings;
+	private final List<int[]> accepted;
+	private final TIntArrayList acceptedDistinctItems;
+
+	// items in filtered sequences must be in [0, nbItems[
+	public InvertedIndexFilter(int nbItems) {
+		this.postings = new TIntArrayList[nbItems];
+		this.accepted = new ArrayList<int[]>();
+		this.acceptedDistinctItems = new TIntArrayList();
+	}
+
+	@Override
+	protected void check(List<int[]> sequences, int bucketStart, int from, int to, boolean[] redundant) {
+		final int[] counts = new int[this.accepted.size()];
+		final TIntArrayList touched = new TIntArrayList();
+		for (int i = from; i < to; i++) {
+			if (equalsPrevious(sequences, bucketStart, i)) {
+				redundant[i - bucketStart] = true;
+				continue;
+			}
+			redundant[i - bucketStart] = this.hasSubsequence(sequences.get(i), counts, touched);
+			for (int j = 0; j < touched.size(); j++) {
+				counts[touched.getQuick(j)] = 0;
+			}
+			touched.resetQuick();
+		}
+	}
+
+	private boolean hasSubsequence(int[] seq, int[] counts, TIntArrayList touched) {
+		for (int i = 0; i < seq.length; i++) {
+			final int item = seq[i];
+			if (this.postings[item] == null || firstOccurrence(seq, item) != i) {
+				continue;
+			}
+			final TIntArrayList itemPostings = this.postings[item];
+			for (int j = 0; j < itemPostings.size(); j++) {
+				final int candidate = itemPostings.getQuick(j);
+				if (counts[candidate] == 0) {
+					touched.add(candidate);
+				}
+				counts[candidate]++;
+				if (counts[candidate] == this.acceptedDistinctItems.getQuick(candidate)
+						&& isSubsequence(this.accepted.get(candidate), seq)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	protected void add(int[] seq) {
+		final int id = this.accepted.size();
+		this.accepted.add(seq);
+		int distinct = 0;
+		for (int i = 0; i < seq.length; i++) {
+			final int item = seq[i];
+			if (firstOccurrence(seq, item) == i) {
+				distinct++;
+				if (this.postings[item] == null) {
+					this.postings[item] = new TIntArrayList();
+				}
+				this.postings[item].add(id);
+			}
+		}
+		this.acceptedDistinctItems.add(distinct);
+	}
+
+	static private int firstOccurrence(int[] seq, int item) {
+		for (int i = 0;; i++) {
+			if (seq[i] == item) {
+				return i;
+			}
+		}
+	}
+
+	static boolean isSubsequence(int[] sub, int[] seq) {
+		int subPos = 0;
+		for (int i = 0; i < seq.length && seq.length - i >= sub.length - subPos; i++) {
+			if (seq[i] == sub[subPos]) {
+				subPos++;
+				if (subPos == sub.length) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
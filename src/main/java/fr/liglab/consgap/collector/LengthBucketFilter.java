@@ -0,0 +1,146 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Minimality filter over sequences sorted by length. Sequences of the same
+ * length can only be subsequences of each other if they are equal, so each
+ * length bucket is checked in parallel against the index of accepted shorter
+ * sequences, which is frozen meanwhile, then its survivors are added to the
+ * index.
+ */
+abstract class LengthBucketFilter {
+	// under this bucket size, checking in parallel is not worth it
+	private static final int MIN_PARALLEL_BUCKET = 1000;
+
+	// order filter expects, also lexico among sequences of the same length
+	static final Comparator<int[]> SIZE_THEN_LEXICO = new Comparator<int[]>() {
+
+		@Override
+		public int compare(int[] o1, int[] o2) {
+			int diffSize = o1.length - o2.length;
+			if (diffSize != 0) {
+				return diffSize;
+			} else {
+				for (int i = 0; i < o1.length; i++) {
+					if (o1[i] != o2[i]) {
+						return o1[i] - o2[i];
+					}
+				}
+				return 0;
+			}
+		}
+	};
+
+	/**
+	 * Sets redundant[i - bucketStart] for sequences in [from, to[ that have an
+	 * accepted subsequence, or are equal to their predecessor in the bucket.
+	 * Only reads the index, so it can run concurrently on disjoint ranges.
+	 */
+	protected abstract void check(List<int[]> sequences, int bucketStart, int from, int to, boolean[] redundant);
+
+	// called by a single thread, between buckets
+	protected abstract void add(int[] seq);
+
+	/**
+	 * @param sequences
+	 *            sorted by size and then lexico
+	 * @return the sequences that don't have any other as subsequence, among
+	 *         them and those accepted by previous calls, in the same order
+	 */
+	public final List<int[]> filter(final List<int[]> sequences, int nbThreads) {
+		final List<int[]> accepted = new ArrayList<int[]>();
+		ExecutorService pool = null;
+		if (nbThreads > 1) {
+			pool = Executors.newFixedThreadPool(nbThreads);
+		}
+		try {
+			int bucketStart = 0;
+			while (bucketStart < sequences.size()) {
+				final int length = sequences.get(bucketStart).length;
+				int bucketEnd = bucketStart + 1;
+				while (bucketEnd < sequences.size() && sequences.get(bucketEnd).length == length) {
+					bucketEnd++;
+				}
+				final boolean[] redundant = new boolean[bucketEnd - bucketStart];
+				if (pool == null || redundant.length < MIN_PARALLEL_BUCKET) {
+					this.check(sequences, bucketStart, bucketStart, bucketEnd, redundant);
+				} else {
+					List<Future<Void>> futures = new ArrayList<Future<Void>>(nbThreads);
+					final int chunkSize = (redundant.length + nbThreads - 1) / nbThreads;
+					for (int from = bucketStart; from < bucketEnd; from += chunkSize) {
+						final int chunkStart = from;
+						final int chunkEnd = Math.min(bucketEnd, from + chunkSize);
+						final int finalBucketStart = bucketStart;
+						futures.add(pool.submit(new Callable<Void>() {
+
+							@Override
+							public Void call() throws Exception {
+								check(sequences, finalBucketStart, chunkStart, chunkEnd, redundant);
+								return null;
+							}
+						}));
+					}
+					for (Future<Void> f : futures) {
+						f.get();
+					}
+				}
+				for (int i = 0; i < redundant.length; i++) {
+					if (!redundant[i]) {
+						this.add(sequences.get(bucketStart + i));
+						accepted.add(sequences.get(bucketStart + i));
+					}
+				}
+				bucketStart = bucketEnd;
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+		return accepted;
+	}
+
+	static protected boolean equalsPrevious(List<int[]> sequences, int bucketStart, int i) {
+		if (i == bucketStart) {
+			return false;
+		}
+		final int[] seq = sequences.get(i);
+		final int[] previous = sequences.get(i - 1);
+		for (int j = 0; j < seq.length; j++) {
+			if (seq[j] != previous[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
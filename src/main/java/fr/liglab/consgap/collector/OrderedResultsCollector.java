@@ -20,20 +20,42 @@
 
 package fr.liglab.consgap.collector;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 public class OrderedResultsCollector extends ResultsCollector {
+	private static final int INITIAL_SIGNATURES = 1 << 12;
 	// gets results in order of length, shorter first
-	private final List<String[]> collectedSeq;
-	private final TreeNode filteringTree;
+	private final List<int[]> collectedSeq;
+	// concurrent so that lookups from mining threads don't need the lock
+	private final ConcurrentSequenceTrie filteringTree;
+	// most checks find nothing, this rejects them before walking the tree,
+	// null unless asked for
+	private volatile SubsequenceBloomFilter filteringSignatures;
+	// when set, results are minimal as soon as they are collected so we write
+	// them right away instead of keeping them
+	private final ResultsSink streamingSink;
+	private boolean streamingSinkReady;
+	private int nbCollected;
 
 	// in this class, we build tree and check from the last item in the sequence
 	// to detect collision in prefix first as it gives more pruning
 	public OrderedResultsCollector() {
+		this(null);
+	}
+
+	public OrderedResultsCollector(ResultsSink streamingSink) {
+		this(streamingSink, false);
+	}
+
+	public OrderedResultsCollector(ResultsSink streamingSink, boolean signatures) {
 		this.collectedSeq = new ArrayList<>();
-		this.filteringTree = new TreeNode();
+		this.filteringTree = new ConcurrentSequenceTrie();
+		this.filteringSignatures = signatures ? new SubsequenceBloomFilter(INITIAL_SIGNATURES) : null;
+		this.streamingSink = streamingSink;
+		this.streamingSinkReady = false;
+		this.nbCollected = 0;
 	}
 
 	/*
@@ -43,27 +65,65 @@ public class OrderedResultsCollector extends ResultsCollector {
 	 */
 	@Override
 	public synchronized EmergingStatus collect(int[] sequence, int expansionItem) {
-		int[] fullSeq = new int[sequence.length + 1];
-		System.arraycopy(sequence, 0, fullSeq, 1, sequence.length);
-		fullSeq[0] = expansionItem;
-		int lastPos = recursiveSubsetCheck(this.filteringTree, fullSeq, fullSeq.length - 1);
-		if (lastPos >= 0) {
-			if (lastPos == 0) {
-				return EmergingStatus.EMERGING_WITH_EXPANSION;
-			} else {
-				return EmergingStatus.EMERGING_WITHOUT_EXPANSION;
-			}
+		EmergingStatus known = this.lookupEmergingSubseq(sequence, expansionItem);
+		if (known != EmergingStatus.NO_EMERGING_SUBSET) {
+			return known;
 		} else {
-			insertIntoTree(this.filteringTree, fullSeq);
-			String[] rebased = new String[fullSeq.length];
-			for (int i = 0; i < fullSeq.length; i++) {
-				rebased[i] = this.rebasing[fullSeq[i]];
+			int[] fullSeq = new int[sequence.length + 1];
+			System.arraycopy(sequence, 0, fullSeq, 1, sequence.length);
+			fullSeq[0] = expansionItem;
+			this.filteringTree.insert(fullSeq);
+			this.nbCollected++;
+			if (this.filteringSignatures != null) {
+				this.addSignature(fullSeq);
+			}
+			if (this.streamingSink == null) {
+				this.collectedSeq.add(fullSeq);
+			} else {
+				try {
+					this.initStreamingSink();
+					this.streamingSink.write(fullSeq);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
 			}
-			this.collectedSeq.add(rebased);
 			return EmergingStatus.NEW_EMERGING;
 		}
 	}
 
+	// once full, the filter is rebuilt twice as large from the tree, lookups
+	// keep using the previous one meanwhile
+	private void addSignature(int[] fullSeq) {
+		SubsequenceBloomFilter signatures = this.filteringSignatures;
+		if (signatures.shouldGrow(this.nbCollected)) {
+			signatures = new SubsequenceBloomFilter(2 * signatures.getCapacity());
+			List<int[]> indexed = new ArrayList<int[]>();
+			this.filteringTree.getAll(indexed);
+			for (int[] seq : indexed) {
+				signatures.add(seq);
+			}
+			this.filteringSignatures = signatures;
+		} else {
+			signatures.add(fullSeq);
+		}
+	}
+
+	@Override
+	protected EmergingStatus lookupEmergingSubseq(int[] sequence, int expansionItem) {
+		SubsequenceBloomFilter signatures = this.filteringSignatures;
+		if (signatures != null && !signatures.mightContainSubsequence(sequence, expansionItem)) {
+			return EmergingStatus.NO_EMERGING_SUBSET;
+		}
+		return subseqStatus(this.filteringTree.subsetCheck(sequence, expansionItem));
+	}
+
+	private void initStreamingSink() throws IOException {
+		if (!this.streamingSinkReady) {
+			this.streamingSink.init(this.rebasing, this.emergingItems);
+			this.streamingSinkReady = true;
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -71,53 +131,22 @@ public class OrderedResultsCollector extends ResultsCollector {
 	 */
 	@Override
 	public int getNbCollected() {
-		return this.collectedSeq.size();
+		return this.nbCollected;
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see fr.liglab.consgap.internals.ResultsCollector#getNonRedundant()
+	 * @see fr.liglab.consgap.internals.ResultsCollector#writeNonRedundant(ResultsSink)
 	 */
 	@Override
-	public List<String[]> getNonRedundant() {
-		List<String[]> filtered = this.collectedSeq;
-		Iterator<String> iter = this.emergingItems.iterator();
-		while (iter.hasNext()) {
-			filtered.add(new String[] { iter.next() });
-		}
-		return filtered;
-	}
-
-	// checks from left to right
-	static private int recursiveSubsetCheck(TreeNode currentNode, int[] seq, int from) {
-		for (int i = from; i >= 0; i--) {
-			TreeNode nextNode = currentNode.get(seq[i]);
-			if (nextNode != null) {
-				// if it's a leaf, we're done
-				if (nextNode.isEmpty()) {
-					return i;
-				} else {
-					int subSetCheck = recursiveSubsetCheck(nextNode, seq, i - 1);
-					if (subSetCheck >= 0) {
-						return subSetCheck;
-					}
-				}
-			}
-		}
-		return -1;
-	}
-
-	static private void insertIntoTree(TreeNode rootNode, int[] seq) {
-		TreeNode currentNode = rootNode;
-		for (int i = seq.length - 1; i >= 0; i--) {
-			int item = seq[i];
-			TreeNode nextNode = currentNode.get(item);
-			if (nextNode == null) {
-				nextNode = new TreeNode();
-				currentNode.put(item, nextNode);
-			}
-			currentNode = nextNode;
+	public synchronized int writeNonRedundant(ResultsSink sink) throws IOException {
+		if (this.streamingSink == null) {
+			return this.writeAll(sink, this.collectedSeq);
+		} else {
+			// everything already went to the streaming sink
+			this.initStreamingSink();
+			return this.emergingItems.size() + this.nbCollected;
 		}
 	}
 }
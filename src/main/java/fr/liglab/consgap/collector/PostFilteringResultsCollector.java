@@ -20,18 +20,26 @@
 
 package fr.liglab.consgap.collector;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 
-public class PostFilteringResultsCollector extends ResultsCollector {
+public class PostFilteringResultsCollector extends ResultsCollector implements CollectedResults {
 
-	final private List<int[]> collectedSeq;
+	final private SequenceInterner collectedSeq;
+	// filter with an inverted index instead of a prefix tree
+	final private boolean invertedIndex;
+	final private int nbFilteringThreads;
 
 	public PostFilteringResultsCollector() {
-		this.collectedSeq = new ArrayList<>();
+		this(false, 1);
+	}
+
+	public PostFilteringResultsCollector(boolean invertedIndex, int nbFilteringThreads) {
+		this.collectedSeq = new SequenceInterner();
+		this.invertedIndex = invertedIndex;
+		this.nbFilteringThreads = nbFilteringThreads;
 	}
 
 	/*
@@ -41,15 +49,15 @@ public class PostFilteringResultsCollector extends ResultsCollector {
 	 */
 	@Override
 	public EmergingStatus collect(int[] sequence, int expansionItem) {
-		int[] fullSeq = new int[sequence.length + 1];
-		System.arraycopy(sequence, 0, fullSeq, 1, sequence.length);
-		fullSeq[0] = expansionItem;
-		synchronized (this) {
-			collectedSeq.add(fullSeq);
-		}
+		this.add(sequence, expansionItem);
 		return EmergingStatus.NEW_EMERGING;
 	}
 
+	// false if the sequence was already collected
+	protected final boolean add(int[] sequence, int expansionItem) {
+		return this.collectedSeq.add(sequence, expansionItem);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -60,78 +68,28 @@ public class PostFilteringResultsCollector extends ResultsCollector {
 		return this.collectedSeq.size();
 	}
 
+	@Override
+	public void getCollected(List<int[]> sequences) {
+		this.collectedSeq.getAll(sequences);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see fr.liglab.consgap.internals.ResultsCollector#getNonRedundant()
+	 * @see fr.liglab.consgap.internals.ResultsCollector#writeNonRedundant(ResultsSink)
 	 */
 	@Override
-	public List<String[]> getNonRedundant() {
-		// sort sequences by size and then lexico
-		Collections.sort(collectedSeq, new Comparator<int[]>() {
-
-			@Override
-			public int compare(int[] o1, int[] o2) {
-				int diffSize = o1.length - o2.length;
-				if (diffSize != 0) {
-					return diffSize;
-				} else {
-					for (int i = 0; i < o1.length; i++) {
-						if (o1[i] != o2[i]) {
-							return o1[i] - o2[i];
-						}
-					}
-					return 0;
-				}
-			}
-		});
-		List<String[]> nonRedundant = new ArrayList<>();
-		Iterator<String> iter = this.emergingItems.iterator();
-		while (iter.hasNext()) {
-			nonRedundant.add(new String[] { iter.next() });
-		}
-		TreeNode rootNode = new TreeNode();
-		for (int[] seq : collectedSeq) {
-			if (!recursiveSubsetCheck(rootNode, seq, 0)) {
-				String[] rebasedSeq = new String[seq.length];
-				for (int i = 0; i < rebasedSeq.length; i++) {
-					rebasedSeq[i] = this.rebasing[seq[i]];
-				}
-				nonRedundant.add(rebasedSeq);
-				// insert in tree
-				insertIntoTree(rootNode, seq);
-			}
-		}
-		return nonRedundant;
-	}
-
-	static private boolean recursiveSubsetCheck(TreeNode currentNode, int[] seq, int from) {
-		for (int i = from; i < seq.length; i++) {
-			TreeNode nextNode = currentNode.get(seq[i]);
-			if (nextNode != null) {
-				// if it's a leaf, we're done
-				if (nextNode.isEmpty()) {
-					return true;
-				} else {
-					if (recursiveSubsetCheck(nextNode, seq, i + 1)) {
-						return true;
-					}
-				}
-			}
-		}
-		return false;
-	}
-
-	static private void insertIntoTree(TreeNode rootNode, int[] seq) {
-		TreeNode currentNode = rootNode;
-		for (int item : seq) {
-			TreeNode nextNode = currentNode.get(item);
-			if (nextNode == null) {
-				nextNode = new TreeNode();
-				currentNode.put(item, nextNode);
-			}
-			currentNode = nextNode;
+	public int writeNonRedundant(ResultsSink sink) throws IOException {
+		List<int[]> collectedSeq = new ArrayList<>(this.collectedSeq.size());
+		this.collectedSeq.getAll(collectedSeq);
+		Collections.sort(collectedSeq, LengthBucketFilter.SIZE_THEN_LEXICO);
+		LengthBucketFilter filter;
+		if (this.invertedIndex) {
+			filter = new InvertedIndexFilter(this.rebasing.length);
+		} else {
+			filter = new TrieFilter(new SequenceTrie());
 		}
+		return this.writeAll(sink, filter.filter(collectedSeq, this.nbFilteringThreads));
 	}
 
 }
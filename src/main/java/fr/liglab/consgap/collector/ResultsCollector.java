@@ -20,14 +20,15 @@
 
 package fr.liglab.consgap.collector;
 
-import gnu.trove.map.hash.TIntObjectHashMap;
-
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 public abstract class ResultsCollector {
 	String[] rebasing;
 	Collection<String> emergingItems;
+	private boolean emergingSubseqPruning = false;
 
 	public void setRebasing(String[] rebasing) {
 		this.rebasing = rebasing;
@@ -37,16 +38,158 @@ public abstract class ResultsCollector {
 		this.emergingItems = emergingItems;
 	}
 
+	/**
+	 * Called by datasets, which know the supports of emerging items,
+	 * collectors which don't keep them keep this default
+	 * 
+	 * @param supports
+	 *            positive then negative support of each emerging item, in
+	 *            the same order
+	 */
+	public void setEmergingItems(Collection<String> emergingItems, List<int[]> supports) {
+		this.setEmergingItems(emergingItems);
+	}
+
+	public String[] getRebasing() {
+		return this.rebasing;
+	}
+
+	public Collection<String> getEmergingItems() {
+		return this.emergingItems;
+	}
+
 	public abstract EmergingStatus collect(int[] sequence, int expansionItem);
 
+	/**
+	 * Called by datasets, which know the positive support of the emerging
+	 * sequence, collectors which don't rank their results keep this default
+	 */
+	public EmergingStatus collect(int[] sequence, int expansionItem, int posSupport) {
+		return this.collect(sequence, expansionItem);
+	}
+
+	/**
+	 * Called by datasets, negSupport is only exact if countsNegSupport(),
+	 * otherwise they stop counting once it is low enough
+	 */
+	public EmergingStatus collect(int[] sequence, int expansionItem, int posSupport, int negSupport) {
+		return this.collect(sequence, expansionItem, posSupport);
+	}
+
+	/**
+	 * Read by datasets at each emerging expansion, collectors which don't
+	 * keep negative supports keep this default
+	 */
+	public boolean countsNegSupport() {
+		return false;
+	}
+
+	/**
+	 * Read by datasets at each expansion, collectors which don't raise the
+	 * positive support threshold while mining keep this default
+	 * 
+	 * @return the positive support below which sequences can be pruned, at
+	 *         least posFreqLowerBound
+	 */
+	public int getPosFreqLowerBound(int posFreqLowerBound) {
+		return posFreqLowerBound;
+	}
+
+	/**
+	 * When enabled, hasEmergingSubseq looks up collected sequences so that
+	 * datasets can stop expanding sequences which can't lead to minimal ones
+	 */
+	public void setEmergingSubseqPruning(boolean emergingSubseqPruning) {
+		this.emergingSubseqPruning = emergingSubseqPruning;
+	}
+
+	/**
+	 * @return EMERGING_WITH_EXPANSION or EMERGING_WITHOUT_EXPANSION if a
+	 *         collected sequence is a subsequence of expansionItem followed by
+	 *         sequence, depending on whether it uses expansionItem,
+	 *         NO_EMERGING_SUBSET otherwise or if pruning is disabled
+	 */
+	public final EmergingStatus hasEmergingSubseq(int[] sequence, int expansionItem) {
+		if (this.emergingSubseqPruning) {
+			return this.lookupEmergingSubseq(sequence, expansionItem);
+		} else {
+			return EmergingStatus.NO_EMERGING_SUBSET;
+		}
+	}
+
+	/**
+	 * Called concurrently with collect by mining threads, collectors which
+	 * don't index what they collected keep this default
+	 */
+	protected EmergingStatus lookupEmergingSubseq(int[] sequence, int expansionItem) {
+		return EmergingStatus.NO_EMERGING_SUBSET;
+	}
+
+	/**
+	 * @param lastPos
+	 *            as returned by subset checks, position of the first item of
+	 *            the matching subsequence
+	 */
+	static EmergingStatus subseqStatus(int lastPos) {
+		if (lastPos < 0) {
+			return EmergingStatus.NO_EMERGING_SUBSET;
+		} else if (lastPos == 0) {
+			return EmergingStatus.EMERGING_WITH_EXPANSION;
+		} else {
+			return EmergingStatus.EMERGING_WITHOUT_EXPANSION;
+		}
+	}
+
 	public abstract int getNbCollected();
 
-	public abstract List<String[]> getNonRedundant();
+	/**
+	 * Writes the minimal emerging sequences to sink, including emerging items
+	 * 
+	 * @return the number of sequences written
+	 */
+	public abstract int writeNonRedundant(ResultsSink sink) throws IOException;
 
-	public static enum EmergingStatus {
-		NEW_EMERGING, EMERGING_WITHOUT_EXPANSION, EMERGING_WITH_EXPANSION, NO_EMERGING_SUBSET
+	public List<String[]> getNonRedundant() {
+		final List<String[]> output = new ArrayList<String[]>();
+		try {
+			this.writeNonRedundant(new ResultsSink() {
+
+				@Override
+				public void init(String[] rebasing, Collection<String> emergingItems) {
+					for (String item : emergingItems) {
+						output.add(new String[] { item });
+					}
+				}
+
+				@Override
+				public void write(int[] seq) {
+					String[] rebased = new String[seq.length];
+					for (int i = 0; i < seq.length; i++) {
+						rebased[i] = rebasing[seq[i]];
+					}
+					output.add(rebased);
+				}
+
+				@Override
+				public void close() {
+				}
+			});
+		} catch (IOException e) {
+			// we don't do any IO
+			throw new RuntimeException(e);
+		}
+		return output;
 	}
 
-	public static class TreeNode extends TIntObjectHashMap<TreeNode> {
+	protected final int writeAll(ResultsSink sink, List<int[]> sequences) throws IOException {
+		sink.init(this.rebasing, this.emergingItems);
+		for (int[] seq : sequences) {
+			sink.write(seq);
+		}
+		return this.emergingItems.size() + sequences.size();
+	}
+
+	public static enum EmergingStatus {
+		NEW_EMERGING, EMERGING_WITHOUT_EXPANSION, EMERGING_WITH_EXPANSION, NO_EMERGING_SUBSET
 	}
 }
\ No newline at end of file
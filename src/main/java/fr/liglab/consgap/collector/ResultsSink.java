@@ -0,0 +1,44 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Destination of the minimal emerging sequences
+ */
+public interface ResultsSink extends Closeable {
+
+	/**
+	 * Called once, before any sequence is written
+	 * 
+	 * @param rebasing
+	 *            original name of each rebased item
+	 * @param emergingItems
+	 *            items that are emerging by themselves, they are results too
+	 */
+	public void init(String[] rebasing, Collection<String> emergingItems) throws IOException;
+
+	// seq is made of rebased items
+	public void write(int[] seq) throws IOException;
+}
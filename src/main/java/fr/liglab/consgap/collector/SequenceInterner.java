@@ -0,0 +1,186 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Concurrent set of sequences, used to drop duplicates at collection time.
+ * Sequences are packed in int slabs (length, then items) and indexed by open
+ * addressing tables storing slab offsets. The set is split in segments
+ * according to the hash of sequences, each segment having its own lock, slab
+ * and table, so that collecting threads rarely contend.
+ */
+public final class SequenceInterner {
+	private static final int NB_SEGMENTS = 64;
+
+	private final Segment[] segments;
+
+	public SequenceInterner() {
+		this.segments = new Segment[NB_SEGMENTS];
+		for (int i = 0; i < NB_SEGMENTS; i++) {
+			this.segments[i] = new Segment();
+		}
+	}
+
+	/**
+	 * @return true if the sequence made of expansionItem followed by sequence
+	 *         was not in the set yet
+	 */
+	public boolean add(int[] sequence, int expansionItem) {
+		final int hash = hash(sequence, expansionItem);
+		return this.segments[hash >>> 26].add(hash, sequence, expansionItem);
+	}
+
+	/**
+	 * @return true if the sequence made of expansionItem followed by sequence
+	 *         is in the set
+	 */
+	public boolean contains(int[] sequence, int expansionItem) {
+		final int hash = hash(sequence, expansionItem);
+		return this.segments[hash >>> 26].contains(hash, sequence, expansionItem);
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment s : this.segments) {
+			synchronized (s) {
+				size += s.size;
+			}
+		}
+		return size;
+	}
+
+	// only call when no add is running
+	public void getAll(List<int[]> output) {
+		for (Segment s : this.segments) {
+			s.getAll(output);
+		}
+	}
+
+	static private int hash(int[] sequence, int expansionItem) {
+		int h = expansionItem;
+		for (int item : sequence) {
+			h = 31 * h + item;
+		}
+		return spread(h);
+	}
+
+	// high bits choose the segment, low bits the slot
+	static private int spread(int h) {
+		h *= 0x9E3779B9;
+		return h ^ ((h >>> 16) & 0x03FFFFFF);
+	}
+
+	static private final class Segment {
+		private int[] slab = new int[256];
+		private int slabSize = 0;
+		// slab offsets of sequences, -1 if empty
+		private int[] table = newTable(16);
+		private int size = 0;
+
+		synchronized boolean add(int hash, int[] sequence, int expansionItem) {
+			final int mask = this.table.length - 1;
+			int slot = hash & mask;
+			while (this.table[slot] >= 0) {
+				if (this.equals(this.table[slot], sequence, expansionItem)) {
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+			final int length = sequence.length + 1;
+			if (this.slabSize + length + 1 > this.slab.length) {
+				this.slab = Arrays.copyOf(this.slab, Math.max(this.slab.length << 1, this.slabSize + length + 1));
+			}
+			final int offset = this.slabSize;
+			this.slab[offset] = length;
+			this.slab[offset + 1] = expansionItem;
+			System.arraycopy(sequence, 0, this.slab, offset + 2, sequence.length);
+			this.slabSize += length + 1;
+			this.table[slot] = offset;
+			this.size++;
+			// keep load factor under 1/2
+			if (this.size << 1 > this.table.length) {
+				this.rehash();
+			}
+			return true;
+		}
+
+		synchronized boolean contains(int hash, int[] sequence, int expansionItem) {
+			final int mask = this.table.length - 1;
+			int slot = hash & mask;
+			while (this.table[slot] >= 0) {
+				if (this.equals(this.table[slot], sequence, expansionItem)) {
+					return true;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return false;
+		}
+
+		private boolean equals(int offset, int[] sequence, int expansionItem) {
+			if (this.slab[offset] != sequence.length + 1 || this.slab[offset + 1] != expansionItem) {
+				return false;
+			}
+			for (int i = 0; i < sequence.length; i++) {
+				if (this.slab[offset + 2 + i] != sequence[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void rehash() {
+			final int[] newTable = newTable(this.table.length << 1);
+			final int mask = newTable.length - 1;
+			for (int offset : this.table) {
+				if (offset >= 0) {
+					int h = this.slab[offset + 1];
+					for (int i = offset + 2; i < offset + 1 + this.slab[offset]; i++) {
+						h = 31 * h + this.slab[i];
+					}
+					int slot = spread(h) & mask;
+					while (newTable[slot] >= 0) {
+						slot = (slot + 1) & mask;
+					}
+					newTable[slot] = offset;
+				}
+			}
+			this.table = newTable;
+		}
+
+		synchronized void getAll(List<int[]> output) {
+			int offset = 0;
+			while (offset < this.slabSize) {
+				final int length = this.slab[offset];
+				output.add(Arrays.copyOfRange(this.slab, offset + 1, offset + 1 + length));
+				offset += length + 1;
+			}
+		}
+
+		static private int[] newTable(int size) {
+			int[] table = new int[size];
+			Arrays.fill(table, -1);
+			return table;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.util.Arrays;
+
+/**
+ * Compact trie of item sequences. Nodes are int ids, and the children of a
+ * node are packed in a single int[] of (item, child node) pairs sorted by item.
+ * A node without children is a leaf. Not thread safe.
+ */
+final class SequenceTrie {
+	static final int ROOT = 0;
+	static final int NO_NODE = -1;
+
+	// children[node] holds sorted (item, child) pairs, null for leaves
+	private int[][] children;
+	// number of valid pairs in each children array
+	private int[] nbChildren;
+	private int nbNodes;
+
+	public SequenceTrie() {
+		this.children = new int[64][];
+		this.nbChildren = new int[64];
+		this.nbNodes = 1;
+	}
+
+	// built from the last item in the sequence, to detect collision in prefix
+	// first as it gives more pruning
+	public void insert(int[] seq) {
+		int currentNode = ROOT;
+		for (int i = seq.length - 1; i >= 0; i--) {
+			currentNode = this.getOrCreateChild(currentNode, seq[i]);
+		}
+	}
+
+	/**
+	 * @return the position in seq of the first item of a sequence of the trie
+	 *         that is a subsequence of seq, -1 if there is none
+	 */
+	public int subsetCheck(int[] seq) {
+		return this.recursiveSubsetCheck(ROOT, seq, seq.length - 1);
+	}
+
+	/**
+	 * Same as subsetCheck on expansionItem followed by sequence, without
+	 * building it
+	 */
+	public int subsetCheck(int[] sequence, int expansionItem) {
+		return this.recursiveSubsetCheck(ROOT, sequence, expansionItem, sequence.length);
+	}
+
+	// position i is expansionItem if 0, sequence[i - 1] otherwise
+	private int recursiveSubsetCheck(int currentNode, int[] sequence, int expansionItem, int from) {
+		for (int i = from; i >= 0; i--) {
+			int nextNode = this.getChild(currentNode, i == 0 ? expansionItem : sequence[i - 1]);
+			if (nextNode != NO_NODE) {
+				if (this.isLeaf(nextNode)) {
+					return i;
+				} else {
+					int subSetCheck = this.recursiveSubsetCheck(nextNode, sequence, expansionItem, i - 1);
+					if (subSetCheck >= 0) {
+						return subSetCheck;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	// checks from right to left
+	private int recursiveSubsetCheck(int currentNode, int[] seq, int from) {
+		for (int i = from; i >= 0; i--) {
+			int nextNode = this.getChild(currentNode, seq[i]);
+			if (nextNode != NO_NODE) {
+				// if it's a leaf, we're done
+				if (this.isLeaf(nextNode)) {
+					return i;
+				} else {
+					int subSetCheck = this.recursiveSubsetCheck(nextNode, seq, i - 1);
+					if (subSetCheck >= 0) {
+						return subSetCheck;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	public boolean isLeaf(int node) {
+		return this.nbChildren[node] == 0;
+	}
+
+	public int getNbNodes() {
+		return this.nbNodes;
+	}
+
+	public int getChild(int node, int item) {
+		final int[] nodeChildren = this.children[node];
+		if (nodeChildren == null) {
+			return NO_NODE;
+		}
+		int pos = search(nodeChildren, this.nbChildren[node], item);
+		if (pos < 0) {
+			return NO_NODE;
+		} else {
+			return nodeChildren[(pos << 1) + 1];
+		}
+	}
+
+	public int getOrCreateChild(int node, int item) {
+		int[] nodeChildren = this.children[node];
+		final int size = this.nbChildren[node];
+		int pos;
+		if (nodeChildren == null) {
+			nodeChildren = new int[2];
+			this.children[node] = nodeChildren;
+			pos = -1;
+		} else {
+			pos = search(nodeChildren, size, item);
+			if (pos >= 0) {
+				return nodeChildren[(pos << 1) + 1];
+			}
+		}
+		final int insertPos = -(pos + 1);
+		if ((size << 1) == nodeChildren.length) {
+			nodeChildren = Arrays.copyOf(nodeChildren, nodeChildren.length << 1);
+			this.children[node] = nodeChildren;
+		}
+		System.arraycopy(nodeChildren, insertPos << 1, nodeChildren, (insertPos + 1) << 1, (size - insertPos) << 1);
+		final int child = this.newNode();
+		nodeChildren[insertPos << 1] = item;
+		nodeChildren[(insertPos << 1) + 1] = child;
+		this.nbChildren[node] = size + 1;
+		return child;
+	}
+
+	private int newNode() {
+		if (this.nbNodes == this.nbChildren.length) {
+			this.children = Arrays.copyOf(this.children, this.nbNodes << 1);
+			this.nbChildren = Arrays.copyOf(this.nbChildren, this.nbNodes << 1);
+		}
+		return this.nbNodes++;
+	}
+
+	// binary search among the items of the pairs, same return convention as
+	// Arrays.binarySearch
+	static private int search(int[] pairs, int size, int item) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int midItem = pairs[mid << 1];
+			if (midItem < item) {
+				low = mid + 1;
+			} else if (midItem > item) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+}
@@ -0,0 +1,342 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Same as PostFilteringResultsCollector, but collected sequences are kept in
+ * memory up to a budget, after which they are sorted and spilled to disk in
+ * runs partitioned by length. Redundant results are then removed by merging,
+ * for each length in increasing order, all its runs, and checking the merged
+ * sequences against the accepted shorter ones. When a length has more than
+ * maxFanIn runs, groups of maxFanIn runs are first merged into longer ones, so
+ * the number of open files stays bounded.
+ */
+public class SpillingResultsCollector extends ResultsCollector {
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_FAN_IN = 64;
+
+	private final File spillDir;
+	private final long memoryBudget;
+	private final int nbFilteringThreads;
+	private final int maxFanIn;
+	// buffers.get(l) holds sequences of length l
+	private List<List<int[]>> buffers;
+	private long bufferedBytes;
+	// runs.get(l) holds spill files of sequences of length l
+	private final List<List<File>> runs;
+	private int nbCollected;
+
+	/**
+	 * @param memoryBudget
+	 *            approximate size in bytes of collected sequences kept in memory
+	 */
+	public SpillingResultsCollector(File spillDir, long memoryBudget, int nbFilteringThreads) {
+		this(spillDir, memoryBudget, nbFilteringThreads, MAX_FAN_IN);
+	}
+
+	SpillingResultsCollector(File spillDir, long memoryBudget, int nbFilteringThreads, int maxFanIn) {
+		if (maxFanIn < 2) {
+			throw new IllegalArgumentException("maxFanIn must be at least 2");
+		}
+		this.spillDir = spillDir;
+		this.memoryBudget = memoryBudget;
+		this.nbFilteringThreads = nbFilteringThreads;
+		this.maxFanIn = maxFanIn;
+		this.buffers = new ArrayList<List<int[]>>();
+		this.bufferedBytes = 0;
+		this.runs = new ArrayList<List<File>>();
+		this.nbCollected = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see fr.liglab.consgap.internals.ResultsCollector#collect(int[], int)
+	 */
+	@Override
+	public EmergingStatus collect(int[] sequence, int expansionItem) {
+		int[] fullSeq = new int[sequence.length + 1];
+		System.arraycopy(sequence, 0, fullSeq, 1, sequence.length);
+		fullSeq[0] = expansionItem;
+		List<List<int[]>> toSpill = null;
+		synchronized (this) {
+			getOrCreate(this.buffers, fullSeq.length).add(fullSeq);
+			this.nbCollected++;
+			this.bufferedBytes += sizeOf(fullSeq);
+			if (this.bufferedBytes >= this.memoryBudget) {
+				toSpill = this.buffers;
+				this.buffers = new ArrayList<List<int[]>>();
+				this.bufferedBytes = 0;
+			}
+		}
+		if (toSpill != null) {
+			try {
+				this.spill(toSpill);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return EmergingStatus.NEW_EMERGING;
+	}
+
+	// reference + header + content
+	static private long sizeOf(int[] seq) {
+		return 24 + 4 * seq.length;
+	}
+
+	static private <T> List<T> getOrCreate(List<List<T>> byLength, int length) {
+		while (byLength.size() <= length) {
+			byLength.add(null);
+		}
+		List<T> l = byLength.get(length);
+		if (l == null) {
+			l = new ArrayList<T>();
+			byLength.set(length, l);
+		}
+		return l;
+	}
+
+	private void spill(List<List<int[]>> toSpill) throws IOException {
+		for (int length = 0; length < toSpill.size(); length++) {
+			List<int[]> sequences = toSpill.get(length);
+			if (sequences != null) {
+				Collections.sort(sequences, LengthBucketFilter.SIZE_THEN_LEXICO);
+				File run = this.newRun(length);
+				DataOutputStream out = openRun(run);
+				for (int[] seq : sequences) {
+					writeSequence(out, seq);
+				}
+				out.close();
+				synchronized (this.runs) {
+					getOrCreate(this.runs, length).add(run);
+				}
+			}
+		}
+	}
+
+	private File newRun(int length) throws IOException {
+		File run = File.createTempFile("consgap-run-" + length + "-", ".bin", this.spillDir);
+		run.deleteOnExit();
+		return run;
+	}
+
+	static private DataOutputStream openRun(File run) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE));
+	}
+
+	static private void writeSequence(DataOutputStream out, int[] seq) throws IOException {
+		out.writeInt(seq.length);
+		for (int item : seq) {
+			out.writeInt(item);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see fr.liglab.consgap.internals.ResultsCollector#getNbCollected()
+	 */
+	@Override
+	public int getNbCollected() {
+		return this.nbCollected;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see fr.liglab.consgap.internals.ResultsCollector#writeNonRedundant(ResultsSink)
+	 */
+	@Override
+	public int writeNonRedundant(ResultsSink sink) throws IOException {
+		sink.init(this.rebasing, this.emergingItems);
+		int nbWritten = this.emergingItems.size();
+		LengthBucketFilter filter = new TrieFilter(new SequenceTrie());
+		final int chunkSize = (int) Math.max(1000, Math.min(Integer.MAX_VALUE, this.memoryBudget / 64));
+		final int maxLength = Math.max(this.buffers.size(), this.runs.size());
+		for (int length = 0; length < maxLength; length++) {
+			Merge merge = new Merge();
+			if (length < this.buffers.size() && this.buffers.get(length) != null) {
+				List<int[]> inMemory = this.buffers.get(length);
+				Collections.sort(inMemory, LengthBucketFilter.SIZE_THEN_LEXICO);
+				merge.add(new MemoryRun(inMemory));
+			}
+			List<File> files = Collections.emptyList();
+			if (length < this.runs.size() && this.runs.get(length) != null) {
+				// the in-memory run takes one of the slots
+				files = this.reduce(length, this.runs.get(length), this.maxFanIn - 1);
+				for (File run : files) {
+					merge.add(new FileRun(run));
+				}
+			}
+			List<int[]> chunk = new ArrayList<int[]>(Math.min(chunkSize, 1 << 16));
+			for (int[] seq = merge.next(); seq != null; seq = merge.next()) {
+				chunk.add(seq);
+				if (chunk.size() == chunkSize) {
+					nbWritten += this.filterChunk(filter, chunk, sink);
+					chunk.clear();
+				}
+			}
+			nbWritten += this.filterChunk(filter, chunk, sink);
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		this.runs.clear();
+		return nbWritten;
+	}
+
+	/**
+	 * Merges groups of maxFanIn runs into single ones, deleting them, until at
+	 * most maxRuns are left
+	 */
+	private List<File> reduce(int length, List<File> files, int maxRuns) throws IOException {
+		while (files.size() > maxRuns) {
+			List<File> merged = new ArrayList<File>((files.size() + this.maxFanIn - 1) / this.maxFanIn);
+			for (int from = 0; from < files.size(); from += this.maxFanIn) {
+				List<File> group = files.subList(from, Math.min(files.size(), from + this.maxFanIn));
+				Merge merge = new Merge();
+				for (File run : group) {
+					merge.add(new FileRun(run));
+				}
+				File run = this.newRun(length);
+				DataOutputStream out = openRun(run);
+				for (int[] seq = merge.next(); seq != null; seq = merge.next()) {
+					writeSequence(out, seq);
+				}
+				out.close();
+				for (File f : group) {
+					f.delete();
+				}
+				merged.add(run);
+			}
+			files = merged;
+		}
+		return files;
+	}
+
+	// chunks hold sequences of the same length, so they only have to be
+	// checked against those of previous chunks
+	private int filterChunk(LengthBucketFilter filter, List<int[]> chunk, ResultsSink sink) throws IOException {
+		List<int[]> accepted = filter.filter(chunk, this.nbFilteringThreads);
+		for (int[] seq : accepted) {
+			sink.write(seq);
+		}
+		return accepted.size();
+	}
+
+	// k-way merge of sorted runs, without duplicates
+	static private final class Merge {
+		private final PriorityQueue<Run> queue = new PriorityQueue<Run>();
+		private int[] previous = null;
+
+		void add(Run r) throws IOException {
+			if (r.advance()) {
+				this.queue.add(r);
+			}
+		}
+
+		// null once all runs are exhausted
+		int[] next() throws IOException {
+			while (!this.queue.isEmpty()) {
+				Run r = this.queue.poll();
+				int[] seq = r.current;
+				this.add(r);
+				// runs are sorted, so duplicates come out together
+				if (this.previous == null || LengthBucketFilter.SIZE_THEN_LEXICO.compare(this.previous, seq) != 0) {
+					this.previous = seq;
+					return seq;
+				}
+			}
+			return null;
+		}
+	}
+
+	static private abstract class Run implements Comparable<Run> {
+		int[] current;
+
+		// moves current to the next sequence, false (and closes) if none
+		abstract boolean advance() throws IOException;
+
+		@Override
+		public int compareTo(Run o) {
+			return LengthBucketFilter.SIZE_THEN_LEXICO.compare(this.current, o.current);
+		}
+	}
+
+	static private final class MemoryRun extends Run {
+		private final List<int[]> sequences;
+		private int pos = 0;
+
+		MemoryRun(List<int[]> sequences) {
+			this.sequences = sequences;
+		}
+
+		@Override
+		boolean advance() {
+			if (this.pos < this.sequences.size()) {
+				this.current = this.sequences.get(this.pos);
+				this.sequences.set(this.pos, null);
+				this.pos++;
+				return true;
+			} else {
+				return false;
+			}
+		}
+	}
+
+	static private final class FileRun extends Run {
+		private final DataInputStream in;
+
+		FileRun(File f) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), BUFFER_SIZE));
+		}
+
+		@Override
+		boolean advance() throws IOException {
+			int length;
+			try {
+				length = this.in.readInt();
+			} catch (EOFException e) {
+				this.in.close();
+				return false;
+			}
+			this.current = new int[length];
+			for (int i = 0; i < length; i++) {
+				this.current[i] = this.in.readInt();
+			}
+			return true;
+		}
+	}
+}
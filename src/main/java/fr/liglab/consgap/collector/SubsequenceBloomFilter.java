@@ -0,0 +1,121 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Blocked Bloom filter telling whether a sequence may contain one of the
+ * sequences added so far. Added sequences are keyed by their first and last
+ * items: the last item selects a 512 bits block (a cache line), in which the
+ * first item sets a bit. A sequence can only contain an added one if one of its
+ * items has, in its block, the bit of an item found at or before it, so a
+ * lookup reads one block per item. There are only false positives, callers then
+ * run the exact check. Additions are lock-free and can run concurrently with
+ * queries.
+ * 
+ * Blocks are sized for INSERTIONS_PER_BLOCK added sequences each. Once full,
+ * about 27% of 6 items sequences over 1000 items get a false positive, 10%
+ * because they have the first and last items of an added sequence in order:
+ * no size avoids those. Over a few dozen items, most such pairs are taken
+ * after a few thousand results and the filter rejects almost nothing, so
+ * collectors only use it on demand.
+ */
+final class SubsequenceBloomFilter {
+	static final int INSERTIONS_PER_BLOCK = 2;
+	// 4 MB
+	private static final int MAX_BLOCKS = 1 << 16;
+	// 8 longs per block
+	private static final int BLOCK_SHIFT = 3;
+
+	private final AtomicLongArray blocks;
+	private final int blockMask;
+
+	public SubsequenceBloomFilter(int expectedInsertions) {
+		int nbBlocks = 1;
+		while (nbBlocks < MAX_BLOCKS && nbBlocks * INSERTIONS_PER_BLOCK < expectedInsertions) {
+			nbBlocks <<= 1;
+		}
+		this.blocks = new AtomicLongArray(nbBlocks << BLOCK_SHIFT);
+		this.blockMask = nbBlocks - 1;
+	}
+
+	/**
+	 * @return the number of added sequences above which the false positive
+	 *         rate grows past the documented one
+	 */
+	public int getCapacity() {
+		return (this.blockMask + 1) * INSERTIONS_PER_BLOCK;
+	}
+
+	// true if nbAdded is over capacity and a larger filter can be built
+	public boolean shouldGrow(int nbAdded) {
+		return nbAdded > this.getCapacity() && this.blockMask + 1 < MAX_BLOCKS;
+	}
+
+	public void add(int[] seq) {
+		final int word = this.blockOf(seq[seq.length - 1]) | (bitIndex(seq[0]) >>> 6);
+		final long bit = 1L << bitIndex(seq[0]);
+		while (true) {
+			long current = this.blocks.get(word);
+			if ((current & bit) != 0 || this.blocks.compareAndSet(word, current, current | bit)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return false if no added sequence is a subsequence of expansionItem
+	 *         followed by sequence
+	 */
+	public boolean mightContainSubsequence(int[] sequence, int expansionItem) {
+		// bits of the items found so far, candidate first items for the
+		// current one
+		final long[] firsts = new long[1 << BLOCK_SHIFT];
+		// position i is expansionItem if 0, sequence[i - 1] otherwise
+		for (int last = 0; last <= sequence.length; last++) {
+			final int lastItem = last == 0 ? expansionItem : sequence[last - 1];
+			final int bitIndex = bitIndex(lastItem);
+			firsts[bitIndex >>> 6] |= 1L << bitIndex;
+			final int block = this.blockOf(lastItem);
+			for (int i = 0; i < firsts.length; i++) {
+				if (firsts[i] != 0 && (this.blocks.get(block | i) & firsts[i]) != 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// index of the block's first word
+	private int blockOf(int lastItem) {
+		int h = lastItem * 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return (h & this.blockMask) << BLOCK_SHIFT;
+	}
+
+	// 9 bits
+	static private int bitIndex(int item) {
+		return (item * 0x9E3779B9) >>> 23;
+	}
+}
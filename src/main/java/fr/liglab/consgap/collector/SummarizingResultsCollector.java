@@ -0,0 +1,93 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the supports datasets count for each emerging sequence, so that
+ * summaries and incremental runs don't have to count them again. Datasets
+ * then count negative supports entirely instead of stopping once they are
+ * low enough.
+ */
+public class SummarizingResultsCollector extends PostFilteringResultsCollector {
+
+	// full sequences, in the same order as their supports
+	private final List<int[]> sequences = new ArrayList<int[]>();
+	private final List<int[]> sequencesSupports = new ArrayList<int[]>();
+	private List<int[]> emergingItemsSupports;
+
+	public SummarizingResultsCollector(boolean invertedIndex, int nbFilteringThreads) {
+		super(invertedIndex, nbFilteringThreads);
+	}
+
+	@Override
+	public void setEmergingItems(Collection<String> emergingItems, List<int[]> supports) {
+		this.setEmergingItems(emergingItems);
+		this.emergingItemsSupports = supports;
+	}
+
+	@Override
+	public boolean countsNegSupport() {
+		return true;
+	}
+
+	@Override
+	public EmergingStatus collect(int[] sequence, int expansionItem) {
+		throw new IllegalStateException("supports of collected sequences are needed");
+	}
+
+	@Override
+	public EmergingStatus collect(int[] sequence, int expansionItem, int posSupport, int negSupport) {
+		if (this.add(sequence, expansionItem)) {
+			int[] fullSequence = new int[sequence.length + 1];
+			fullSequence[0] = expansionItem;
+			System.arraycopy(sequence, 0, fullSequence, 1, sequence.length);
+			synchronized (this.sequences) {
+				this.sequences.add(fullSequence);
+				this.sequencesSupports.add(new int[] { posSupport, negSupport });
+			}
+		}
+		return EmergingStatus.NEW_EMERGING;
+	}
+
+	/**
+	 * @return positive then negative support of each emerging item, in the
+	 *         same order as getEmergingItems
+	 */
+	public List<int[]> getEmergingItemsSupports() {
+		return this.emergingItemsSupports;
+	}
+
+	/**
+	 * Adds each collected sequence to sequences and its positive then
+	 * negative support to supports. Must not be called while sequences are
+	 * being collected.
+	 */
+	public void getCollected(List<int[]> sequences, List<int[]> supports) {
+		synchronized (this.sequences) {
+			sequences.addAll(this.sequences);
+			supports.addAll(this.sequencesSupports);
+		}
+	}
+}
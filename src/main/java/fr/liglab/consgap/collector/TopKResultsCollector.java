@@ -0,0 +1,470 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import fr.liglab.consgap.dataset.DatasetIndex;
+
+/**
+ * Keeps the minimal emerging sequences with the k highest positive supports.
+ * Once k results are known, the positive support threshold read by datasets
+ * is raised to the lowest of their supports, so that mining prunes harder as
+ * better results are found. Mining must not deny siblings of emerging
+ * expansions, as a sequence emerging for a low threshold may not emerge for
+ * the final one.
+ * 
+ * With gaps, a subsequence can be less frequent than its supersequence, so
+ * minimality depends on the threshold. A sequence only counts among the k
+ * best once none of its subsequences emerges for the current threshold, then
+ * it remains minimal for higher ones. Checks go from the highest supports
+ * down, by batches of k, as sequences below the k-th best don't need them.
+ * Results are those of mining with the highest MINSUP_IN_POS giving at least
+ * k minimal emerging sequences, there can be more than k when supports are
+ * tied.
+ */
+public final class TopKResultsCollector extends ResultsCollector {
+	private final int k;
+	private final DatasetIndex index;
+	private final int negFreqUpperBound;
+	private final int gapConstraint;
+	// lowest supports on top, never more than k of them
+	private final PriorityQueue<Integer> bestSupports;
+	// not checked yet, highest supports on top
+	private final PriorityQueue<Candidate> candidates;
+	private final AtomicBoolean checking;
+	// raw subsequences known not to emerge, nor any of their own
+	// subsequences, for this threshold and the higher ones
+	private final SequenceInterner noneEmerging;
+	// collected sequences found minimal, for the threshold of their check and
+	// the higher ones
+	private final Set<int[]> minimal;
+	private final List<int[]> collected;
+	private final TIntList collectedSupports;
+	private final boolean invertedIndex;
+	private final int nbFilteringThreads;
+	private volatile int posFreqLowerBound;
+	private int[] rawItems;
+	private int[] emergingItemsSupports;
+
+	public TopKResultsCollector(int k, DatasetIndex index, int posFreqLowerBound, int negFreqUpperBound,
+			int gapConstraint, boolean invertedIndex, int nbFilteringThreads) {
+		this.k = k;
+		this.index = index;
+		this.negFreqUpperBound = negFreqUpperBound;
+		this.gapConstraint = gapConstraint;
+		this.bestSupports = new PriorityQueue<Integer>(k + 1);
+		this.candidates = new PriorityQueue<Candidate>(k + 1, new Comparator<Candidate>() {
+
+			@Override
+			public int compare(Candidate o1, Candidate o2) {
+				return o2.posSupport - o1.posSupport;
+			}
+		});
+		this.checking = new AtomicBoolean(false);
+		this.noneEmerging = new SequenceInterner();
+		this.minimal = Collections.newSetFromMap(new IdentityHashMap<int[], Boolean>());
+		this.collected = new ArrayList<int[]>();
+		this.collectedSupports = new TIntArrayList();
+		this.invertedIndex = invertedIndex;
+		this.nbFilteringThreads = nbFilteringThreads;
+		this.posFreqLowerBound = posFreqLowerBound;
+	}
+
+	@Override
+	public void setRebasing(String[] rebasing) {
+		super.setRebasing(rebasing);
+		this.rawItems = new int[rebasing.length];
+		for (int i = 0; i < rebasing.length; i++) {
+			this.rawItems[i] = this.index.getItemId(rebasing[i]);
+		}
+	}
+
+	/**
+	 * Emerging items are minimal by themselves, they count among the k best
+	 */
+	@Override
+	public synchronized void setEmergingItems(Collection<String> emergingItems) {
+		super.setEmergingItems(emergingItems);
+		this.emergingItemsSupports = new int[emergingItems.size()];
+		int i = 0;
+		for (String item : emergingItems) {
+			this.emergingItemsSupports[i] = this.index.getSupports(new String[] { item }, this.gapConstraint)[0];
+			this.offer(this.emergingItemsSupports[i]);
+			i++;
+		}
+	}
+
+	/**
+	 * Counts the positive support of the sequence in the index, datasets
+	 * which know it give it to collect(int[], int, int) instead
+	 */
+	@Override
+	public EmergingStatus collect(int[] sequence, int expansionItem) {
+		int[] rawSeq = new int[sequence.length + 1];
+		rawSeq[0] = this.rawItems[expansionItem];
+		for (int i = 0; i < sequence.length; i++) {
+			rawSeq[i + 1] = this.rawItems[sequence[i]];
+		}
+		return this.collect(sequence, expansionItem, this.index.getSupports(rawSeq, this.gapConstraint, 0, 0)[0]);
+	}
+
+	@Override
+	public EmergingStatus collect(int[] sequence, int expansionItem, int posSupport) {
+		final int posFreqLowerBound = this.posFreqLowerBound;
+		// the threshold may have been raised while this one was expanded
+		if (posSupport >= posFreqLowerBound) {
+			int[] collectedSeq = new int[sequence.length + 1];
+			collectedSeq[0] = expansionItem;
+			System.arraycopy(sequence, 0, collectedSeq, 1, sequence.length);
+			boolean check;
+			synchronized (this) {
+				this.collected.add(collectedSeq);
+				this.collectedSupports.add(posSupport);
+				if (this.isBetter(posSupport)) {
+					this.candidates.add(new Candidate(collectedSeq, posSupport));
+				}
+				check = this.candidates.size() >= this.k;
+			}
+			// a single thread checks, the others keep mining
+			if (check && this.checking.compareAndSet(false, true)) {
+				try {
+					this.checkCandidates();
+				} finally {
+					this.checking.set(false);
+				}
+			}
+		}
+		return EmergingStatus.NEW_EMERGING;
+	}
+
+	private boolean isBetter(int posSupport) {
+		return this.bestSupports.size() < this.k || posSupport > this.bestSupports.peek();
+	}
+
+	private void checkCandidates() {
+		while (true) {
+			final int posFreqLowerBound = this.posFreqLowerBound;
+			Candidate candidate;
+			synchronized (this) {
+				candidate = this.candidates.poll();
+				if (candidate == null) {
+					return;
+				} else if (!this.isBetter(candidate.posSupport)) {
+					// the remaining ones are lower
+					this.candidates.clear();
+					return;
+				}
+			}
+			// the check reads the datasets, don't block collecting threads
+			if (this.isMinimal(candidate.sequence, posFreqLowerBound)) {
+				synchronized (this) {
+					this.minimal.add(candidate.sequence);
+					this.offer(candidate.posSupport);
+				}
+			}
+		}
+	}
+
+	private boolean isMinimal(int[] sequence, int posFreqLowerBound) {
+		int[] rawSeq = new int[sequence.length];
+		for (int i = 0; i < sequence.length; i++) {
+			rawSeq[i] = this.rawItems[sequence[i]];
+		}
+		return this.hasNoEmergingSubseq(rawSeq, true, posFreqLowerBound);
+	}
+
+	/**
+	 * Looks at the subsequences one item shorter, each of their own
+	 * subsequences being checked once thanks to noneEmerging
+	 * 
+	 * @param isSuffix
+	 *            if rawSeq is a suffix of the candidate, its suffixes don't
+	 *            emerge as mining went through them
+	 */
+	private boolean hasNoEmergingSubseq(int[] rawSeq, boolean isSuffix, int posFreqLowerBound) {
+		for (int i = 0; i < rawSeq.length; i++) {
+			// removing one of two equal consecutive items gives the same
+			// subsequence
+			if (i > 0 && rawSeq[i] == rawSeq[i - 1]) {
+				continue;
+			}
+			int[] subseq = new int[rawSeq.length - 1];
+			System.arraycopy(rawSeq, 0, subseq, 0, i);
+			System.arraycopy(rawSeq, i + 1, subseq, i, subseq.length - i);
+			if (!this.isNoneEmerging(subseq, isSuffix && i == 0, posFreqLowerBound)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isNoneEmerging(int[] rawSeq, boolean isSuffix, int posFreqLowerBound) {
+		// items don't emerge, emerging ones aren't part of sequences
+		if (rawSeq.length == 1) {
+			return true;
+		}
+		int[] rawSeqEnd = Arrays.copyOfRange(rawSeq, 1, rawSeq.length);
+		if (this.noneEmerging.contains(rawSeqEnd, rawSeq[0])) {
+			return true;
+		}
+		if (!isSuffix && this.index.isEmerging(rawSeq, this.gapConstraint, posFreqLowerBound, this.negFreqUpperBound)) {
+			return false;
+		}
+		if (!this.hasNoEmergingSubseq(rawSeq, isSuffix, posFreqLowerBound)) {
+			return false;
+		}
+		this.noneEmerging.add(rawSeqEnd, rawSeq[0]);
+		return true;
+	}
+
+	private void offer(int posSupport) {
+		if (this.bestSupports.size() < this.k) {
+			this.bestSupports.add(posSupport);
+		} else if (posSupport > this.bestSupports.peek()) {
+			this.bestSupports.poll();
+			this.bestSupports.add(posSupport);
+		} else {
+			return;
+		}
+		if (this.bestSupports.size() == this.k && this.bestSupports.peek() > this.posFreqLowerBound) {
+			this.posFreqLowerBound = this.bestSupports.peek();
+		}
+	}
+
+	/**
+	 * @return the threshold reached so far, the one of the results once they
+	 *         are written
+	 */
+	public int getPosFreqLowerBound() {
+		return this.posFreqLowerBound;
+	}
+
+	@Override
+	public int getPosFreqLowerBound(int posFreqLowerBound) {
+		return Math.max(posFreqLowerBound, this.posFreqLowerBound);
+	}
+
+	@Override
+	public synchronized int getNbCollected() {
+		return this.collected.size();
+	}
+
+	/**
+	 * Results are filtered once, for the highest threshold giving at least k
+	 * minimal emerging sequences
+	 */
+	@Override
+	public int writeNonRedundant(ResultsSink sink) throws IOException {
+		this.posFreqLowerBound = this.searchThreshold();
+		return this.filter(this.posFreqLowerBound).writeNonRedundant(sink);
+	}
+
+	/**
+	 * Mining reached every emerging sequence for the reached threshold and
+	 * higher ones, so a collected sequence is minimal for thresholds up to its
+	 * support and above the highest support of its collected subsequences.
+	 * Sequences found minimal while mining are so for all of them.
+	 * 
+	 * Each remaining sequence looks up its collected subsequence with the
+	 * highest support in an inverted index, so its cost is the length of the
+	 * postings of its items up to that subsequence, all of them if it has
+	 * none, instead of a scan of all sequences.
+	 * 
+	 * @return the highest threshold, at least the reached one, giving at least
+	 *         k minimal emerging sequences
+	 */
+	private int searchThreshold() {
+		final int reached = this.posFreqLowerBound;
+		List<Candidate> aboveReached = new ArrayList<Candidate>();
+		int maxSupport = reached;
+		for (int i = 0; i < this.collected.size(); i++) {
+			int posSupport = this.collectedSupports.get(i);
+			if (posSupport > reached) {
+				aboveReached.add(new Candidate(this.collected.get(i), posSupport));
+				maxSupport = Math.max(maxSupport, posSupport);
+			}
+		}
+		for (int posSupport : this.emergingItemsSupports) {
+			maxSupport = Math.max(maxSupport, posSupport);
+		}
+		SupportIndex subsequences = new SupportIndex(aboveReached, this.rebasing.length);
+		// nbMinimal[t] - nbMinimal[t - 1] when thresholds range over the
+		// indices
+		int[] nbMinimalDelta = new int[maxSupport + 2];
+		for (int posSupport : this.emergingItemsSupports) {
+			if (posSupport > reached) {
+				nbMinimalDelta[reached + 1]++;
+				nbMinimalDelta[posSupport + 1]--;
+			}
+		}
+		for (Candidate candidate : aboveReached) {
+			int minimalFrom = reached + 1;
+			if (!this.minimal.contains(candidate.sequence)) {
+				minimalFrom = Math.max(minimalFrom, subsequences.getHighestSubseqSupport(candidate.sequence) + 1);
+			}
+			if (minimalFrom <= candidate.posSupport) {
+				nbMinimalDelta[minimalFrom]++;
+				nbMinimalDelta[candidate.posSupport + 1]--;
+			}
+		}
+		int[] nbMinimal = new int[maxSupport + 1];
+		for (int t = reached + 1; t <= maxSupport; t++) {
+			nbMinimal[t] = nbMinimal[t - 1] + nbMinimalDelta[t];
+		}
+		for (int t = maxSupport; t > reached; t--) {
+			if (nbMinimal[t] >= this.k) {
+				return t;
+			}
+		}
+		return reached;
+	}
+
+	private ResultsCollector filter(int posFreqLowerBound) {
+		Collection<String> frequentEmergingItems = new ArrayList<String>();
+		int i = 0;
+		for (String item : this.emergingItems) {
+			if (this.emergingItemsSupports[i] >= posFreqLowerBound) {
+				frequentEmergingItems.add(item);
+			}
+			i++;
+		}
+		PostFilteringResultsCollector filtering = new PostFilteringResultsCollector(this.invertedIndex,
+				this.nbFilteringThreads);
+		filtering.setRebasing(this.rebasing);
+		filtering.setEmergingItems(frequentEmergingItems);
+		for (i = 0; i < this.collected.size(); i++) {
+			if (this.collectedSupports.get(i) >= posFreqLowerBound) {
+				int[] seq = this.collected.get(i);
+				filtering.collect(Arrays.copyOfRange(seq, 1, seq.length), seq[0]);
+			}
+		}
+		return filtering;
+	}
+
+	/**
+	 * Item -> sequences inverted index, sequences being numbered by
+	 * decreasing support. Merging the postings of a sequence's items visits
+	 * its candidate subsequences from the highest support down.
+	 */
+	private static final class SupportIndex {
+		private final List<Candidate> sorted;
+		// postings[item] lists, in increasing order, the ids of sequences
+		// containing item
+		private final TIntArrayList[] postings;
+		private final int[] nbDistinctItems;
+
+		private SupportIndex(List<Candidate> sequences, int nbItems) {
+			this.sorted = new ArrayList<Candidate>(sequences);
+			Collections.sort(this.sorted, new Comparator<Candidate>() {
+
+				@Override
+				public int compare(Candidate o1, Candidate o2) {
+					return o2.posSupport - o1.posSupport;
+				}
+			});
+			this.postings = new TIntArrayList[nbItems];
+			this.nbDistinctItems = new int[this.sorted.size()];
+			for (int id = 0; id < this.sorted.size(); id++) {
+				for (int item : distinctItems(this.sorted.get(id).sequence)) {
+					if (this.postings[item] == null) {
+						this.postings[item] = new TIntArrayList();
+					}
+					this.postings[item].add(id);
+					this.nbDistinctItems[id]++;
+				}
+			}
+		}
+
+		/**
+		 * @return the highest support of an indexed proper subsequence of seq,
+		 *         -1 if there is none
+		 */
+		private int getHighestSubseqSupport(int[] seq) {
+			int[] items = distinctItems(seq);
+			TIntArrayList[] lists = new TIntArrayList[items.length];
+			int[] positions = new int[items.length];
+			for (int i = 0; i < items.length; i++) {
+				lists[i] = this.postings[items[i]];
+				if (lists[i] == null) {
+					lists[i] = new TIntArrayList(0);
+				}
+			}
+			while (true) {
+				int id = Integer.MAX_VALUE;
+				for (int i = 0; i < lists.length; i++) {
+					if (positions[i] < lists[i].size()) {
+						id = Math.min(id, lists[i].getQuick(positions[i]));
+					}
+				}
+				if (id == Integer.MAX_VALUE) {
+					return -1;
+				}
+				// the number of seq's items that sequence id contains
+				int count = 0;
+				for (int i = 0; i < lists.length; i++) {
+					if (positions[i] < lists[i].size() && lists[i].getQuick(positions[i]) == id) {
+						positions[i]++;
+						count++;
+					}
+				}
+				Candidate sub = this.sorted.get(id);
+				if (count == this.nbDistinctItems[id] && sub.sequence.length < seq.length
+						&& InvertedIndexFilter.isSubsequence(sub.sequence, seq)) {
+					return sub.posSupport;
+				}
+			}
+		}
+
+		private static int[] distinctItems(int[] seq) {
+			TIntArrayList items = new TIntArrayList(seq.length);
+			for (int item : seq) {
+				if (!items.contains(item)) {
+					items.add(item);
+				}
+			}
+			return items.toArray();
+		}
+	}
+
+	private static final class Candidate {
+		private final int[] sequence;
+		private final int posSupport;
+
+		private Candidate(int[] sequence, int posSupport) {
+			this.sequence = sequence;
+			this.posSupport = posSupport;
+		}
+	}
+}
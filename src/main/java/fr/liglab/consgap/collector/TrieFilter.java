@@ -0,0 +1,48 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import java.util.List;
+
+/**
+ * Minimality filter checking sequences against a prefix tree of the accepted
+ * ones, which is left filled once filtering is done
+ */
+final class TrieFilter extends LengthBucketFilter {
+	private final SequenceTrie tree;
+
+	public TrieFilter(SequenceTrie tree) {
+		this.tree = tree;
+	}
+
+	@Override
+	protected void check(List<int[]> sequences, int bucketStart, int from, int to, boolean[] redundant) {
+		for (int i = from; i < to; i++) {
+			redundant[i - bucketStart] = equalsPrevious(sequences, bucketStart, i)
+					|| this.tree.subsetCheck(sequences.get(i)) >= 0;
+		}
+	}
+
+	@Override
+	protected void add(int[] seq) {
+		this.tree.insert(seq);
+	}
+}
@@ -0,0 +1,54 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.dataset;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of rebased item ids backed by an atomic bitset, so that siblings can
+ * add denied extensions concurrently while others test membership without
+ * locking
+ */
+public final class AtomicItemSet {
+	private final AtomicLongArray words;
+
+	// capacity is the greatest item that may be added + 1
+	public AtomicItemSet(int capacity) {
+		this.words = new AtomicLongArray((capacity + 63) >>> 6);
+	}
+
+	public void add(int item) {
+		final int wordIndex = item >>> 6;
+		final long mask = 1L << item;
+		long word;
+		do {
+			word = this.words.get(wordIndex);
+			if ((word & mask) != 0) {
+				return;
+			}
+		} while (!this.words.compareAndSet(wordIndex, word, word | mask));
+	}
+
+	public boolean contains(int item) {
+		final int wordIndex = item >>> 6;
+		return wordIndex < this.words.length() && (this.words.get(wordIndex) & (1L << item)) != 0;
+	}
+}
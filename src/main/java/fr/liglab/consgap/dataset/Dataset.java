@@ -21,7 +21,6 @@
 package fr.liglab.consgap.dataset;
 
 import fr.liglab.consgap.collector.ResultsCollector;
-import gnu.trove.set.TIntSet;
 
 public interface Dataset {
 
@@ -29,11 +28,29 @@ public interface Dataset {
 
 	public int[] getExtensions();
 
-	public Dataset expand(final int expansionItem, final TIntSet deniedSiblingsExtensions)
+	public Dataset expand(final int expansionItem, final AtomicItemSet deniedSiblingsExtensions)
 			throws EmergingParentException, EmergingExpansionException, InfrequentException, DeadEndException;
 
 	public int[] getSequence();
 
+	/**
+	 * @return number of positive transactions containing the sequence, -1 for
+	 *         the empty sequence
+	 */
+	public int getPositiveSupport();
+
+	/**
+	 * @return number of negative transactions containing the sequence, -1 for
+	 *         the empty sequence
+	 */
+	public int getNegativeSupport();
+
+	/**
+	 * @return a deep copy of this dataset's occurrence structures, allocated
+	 *         by the calling thread and sharing the same results collector
+	 */
+	public Dataset replicate();
+
 	public static class InfrequentException extends Exception {
 
 		/**
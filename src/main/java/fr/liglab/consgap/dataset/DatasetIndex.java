@@ -0,0 +1,400 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.dataset;
+
+import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import fr.liglab.consgap.Main;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * Both datasets read once and kept with all their items, so that root datasets
+ * for any thresholds can be derived from memory instead of reading the files
+ * again. Items get ids in order of first appearance. Transactions appended to
+ * the datasets can be added to a copy of the index.
+ */
+public final class DatasetIndex {
+	private final TObjectIntMap<String> itemIds;
+	private final String[] itemNames;
+	private final int[][] positive;
+	private final int[][] negative;
+	// number of transactions containing each item
+	private final int[] positiveSupport;
+	private final int[] negativeSupport;
+	private final int maxLength;
+
+	private DatasetIndex(TObjectIntMap<String> itemIds, String[] itemNames, int[][] positive, int[][] negative) {
+		this.itemIds = itemIds;
+		this.itemNames = itemNames;
+		this.positive = positive;
+		this.negative = negative;
+		this.positiveSupport = countSupports(positive, itemNames.length);
+		this.negativeSupport = countSupports(negative, itemNames.length);
+		int maxLength = 0;
+		for (int[][] transactions : new int[][][] { positive, negative }) {
+			for (int[] transaction : transactions) {
+				maxLength = Math.max(maxLength, transaction.length);
+			}
+		}
+		this.maxLength = maxLength;
+	}
+
+	public static DatasetIndex load(String positiveDataset, String negativeDataset) throws IOException {
+		return new DatasetIndex(new TObjectIntHashMap<String>(), new String[0], new int[0][], new int[0][]).append(
+				positiveDataset, 0, negativeDataset, 0);
+	}
+
+	/**
+	 * @return a copy of this index followed by the transactions of both
+	 *         datasets after the given number of bytes, which must be line
+	 *         boundaries
+	 */
+	public DatasetIndex append(String positiveDataset, long positiveOffset, String negativeDataset,
+			long negativeOffset) throws IOException {
+		TObjectIntMap<String> itemIds = new TObjectIntHashMap<String>(this.itemIds);
+		List<String> itemNames = new ArrayList<String>(Arrays.asList(this.itemNames));
+		int[][] positive = read(positiveDataset, positiveOffset, this.positive, itemIds, itemNames);
+		int[][] negative = read(negativeDataset, negativeOffset, this.negative, itemIds, itemNames);
+		return new DatasetIndex(itemIds, itemNames.toArray(new String[itemNames.size()]), positive, negative);
+	}
+
+	private static int[][] read(String dataset, long offset, int[][] previous, TObjectIntMap<String> itemIds,
+			List<String> itemNames) throws IOException {
+		List<int[]> transactions = new ArrayList<int[]>(Arrays.asList(previous));
+		TIntArrayList transactionBuffer = new TIntArrayList();
+		InputStream in = new FileInputStream(dataset);
+		for (long skipped = 0; skipped < offset;) {
+			long n = in.skip(offset - skipped);
+			if (n <= 0) {
+				in.close();
+				throw new IOException(dataset + " is shorter than the " + offset + " bytes already indexed");
+			}
+			skipped += n;
+		}
+		BufferedReader br = new BufferedReader(new InputStreamReader(in));
+		String line;
+		while ((line = br.readLine()) != null) {
+			if (!line.isEmpty()) {
+				for (String item : line.split(Main.separator)) {
+					if (!itemIds.containsKey(item)) {
+						itemIds.put(item, itemNames.size());
+						itemNames.add(item);
+					}
+					transactionBuffer.add(itemIds.get(item));
+				}
+				transactions.add(transactionBuffer.toArray());
+				transactionBuffer.resetQuick();
+			}
+		}
+		br.close();
+		return transactions.toArray(new int[transactions.size()][]);
+	}
+
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(this.itemNames.length);
+		for (String item : this.itemNames) {
+			out.writeUTF(item);
+		}
+		writeTransactions(out, this.positive);
+		writeTransactions(out, this.negative);
+	}
+
+	public static DatasetIndex read(DataInput in) throws IOException {
+		TObjectIntMap<String> itemIds = new TObjectIntHashMap<String>();
+		String[] itemNames = new String[in.readInt()];
+		for (int i = 0; i < itemNames.length; i++) {
+			itemNames[i] = in.readUTF();
+			itemIds.put(itemNames[i], i);
+		}
+		int[][] positive = readTransactions(in);
+		return new DatasetIndex(itemIds, itemNames, positive, readTransactions(in));
+	}
+
+	private static void writeTransactions(DataOutput out, int[][] transactions) throws IOException {
+		out.writeInt(transactions.length);
+		for (int[] transaction : transactions) {
+			out.writeInt(transaction.length);
+			for (int item : transaction) {
+				out.writeInt(item);
+			}
+		}
+	}
+
+	private static int[][] readTransactions(DataInput in) throws IOException {
+		int[][] transactions = new int[in.readInt()][];
+		for (int i = 0; i < transactions.length; i++) {
+			transactions[i] = new int[in.readInt()];
+			for (int j = 0; j < transactions[i].length; j++) {
+				transactions[i][j] = in.readInt();
+			}
+		}
+		return transactions;
+	}
+
+	private static int[] countSupports(int[][] transactions, int nbItems) {
+		int[] supports = new int[nbItems];
+		TIntSet uniqueItems = new TIntHashSet();
+		for (int[] transaction : transactions) {
+			uniqueItems.clear();
+			uniqueItems.addAll(transaction);
+			for (int item : uniqueItems.toArray()) {
+				supports[item]++;
+			}
+		}
+		return supports;
+	}
+
+	public int getNbPositive() {
+		return this.positive.length;
+	}
+
+	public int getNbNegative() {
+		return this.negative.length;
+	}
+
+	public int[][] getPositive() {
+		return this.positive;
+	}
+
+	public int[][] getNegative() {
+		return this.negative;
+	}
+
+	/**
+	 * @return the item's id in this index, -1 if it never appears
+	 */
+	public int getItemId(String item) {
+		if (this.itemIds.containsKey(item)) {
+			return this.itemIds.get(item);
+		} else {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the number of positive then negative transactions containing
+	 *         sequence, with at most gapConstraint items between two
+	 *         consecutive ones
+	 */
+	public int[] getSupports(String[] sequence, int gapConstraint) {
+		int[] rawSequence = new int[sequence.length];
+		for (int i = 0; i < sequence.length; i++) {
+			rawSequence[i] = this.getItemId(sequence[i]);
+			if (rawSequence[i] < 0) {
+				return new int[] { 0, 0 };
+			}
+		}
+		if (rawSequence.length == 1) {
+			return new int[] { this.positiveSupport[rawSequence[0]], this.negativeSupport[rawSequence[0]] };
+		}
+		return this.getSupports(rawSequence, gapConstraint, 0, 0);
+	}
+
+	/**
+	 * Same as getSupports, only counting transactions from the given
+	 * positions, for instance appended ones
+	 */
+	public int[] getSupports(int[] rawSequence, int gapConstraint, int positiveStart, int negativeStart) {
+		boolean[] matches = new boolean[this.maxLength];
+		int[] supports = new int[2];
+		for (int tid = positiveStart; tid < this.positive.length; tid++) {
+			if (contains(this.positive[tid], rawSequence, gapConstraint, matches)) {
+				supports[0]++;
+			}
+		}
+		for (int tid = negativeStart; tid < this.negative.length; tid++) {
+			if (contains(this.negative[tid], rawSequence, gapConstraint, matches)) {
+				supports[1]++;
+			}
+		}
+		return supports;
+	}
+
+	/**
+	 * Same as checking getSupports against the thresholds, stopping as soon
+	 * as the outcome is known
+	 */
+	public boolean isEmerging(int[] rawSequence, int gapConstraint, int posFreqLowerBound, int negFreqUpperBound) {
+		boolean[] matches = new boolean[this.maxLength];
+		int negSupport = 0;
+		for (int tid = 0; tid < this.negative.length; tid++) {
+			if (contains(this.negative[tid], rawSequence, gapConstraint, matches)) {
+				negSupport++;
+				if (negSupport > negFreqUpperBound) {
+					return false;
+				}
+			}
+		}
+		int posSupport = 0;
+		for (int tid = 0; tid < this.positive.length && posSupport < posFreqLowerBound; tid++) {
+			if (posSupport + this.positive.length - tid < posFreqLowerBound) {
+				return false;
+			}
+			if (contains(this.positive[tid], rawSequence, gapConstraint, matches)) {
+				posSupport++;
+			}
+		}
+		return posSupport >= posFreqLowerBound;
+	}
+
+	/**
+	 * @return true if a transaction from the given positions contains
+	 *         rawSequence
+	 */
+	public boolean occursFrom(int[] rawSequence, int gapConstraint, int positiveStart, int negativeStart) {
+		boolean[] matches = new boolean[this.maxLength];
+		for (int tid = positiveStart; tid < this.positive.length; tid++) {
+			if (contains(this.positive[tid], rawSequence, gapConstraint, matches)) {
+				return true;
+			}
+		}
+		for (int tid = negativeStart; tid < this.negative.length; tid++) {
+			if (contains(this.negative[tid], rawSequence, gapConstraint, matches)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param matches
+	 *            at least as long as transaction, overwritten
+	 */
+	private static boolean contains(int[] transaction, int[] sequence, int gapConstraint, boolean[] matches) {
+		// matches[pos] if the sequence's prefix read so far can end at pos
+		boolean found = false;
+		for (int pos = 0; pos < transaction.length; pos++) {
+			matches[pos] = transaction[pos] == sequence[0];
+			found |= matches[pos];
+		}
+		for (int i = 1; i < sequence.length && found; i++) {
+			found = false;
+			int lastMatch = -1;
+			for (int pos = 0; pos < transaction.length; pos++) {
+				boolean previousMatched = matches[pos];
+				matches[pos] = transaction[pos] == sequence[i] && lastMatch >= 0
+						&& pos - lastMatch <= gapConstraint + 1;
+				found |= matches[pos];
+				if (previousMatched) {
+					lastMatch = pos;
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Filters items as dataset constructors do: items frequent in the positive
+	 * dataset and infrequent in the negative one are emerging by themselves,
+	 * the other frequent ones are kept and renamed by increasing negative then
+	 * positive support
+	 */
+	public Rebasing rebase(int posFreqLowerBound, int negFreqUpperBound) {
+		List<Integer> kept = new ArrayList<Integer>();
+		Collection<String> emergingItems = new ArrayList<String>();
+		List<int[]> emergingItemsSupports = new ArrayList<int[]>();
+		for (int item = 0; item < this.itemNames.length; item++) {
+			if (this.positiveSupport[item] >= posFreqLowerBound) {
+				if (this.negativeSupport[item] <= negFreqUpperBound) {
+					emergingItems.add(this.itemNames[item]);
+					emergingItemsSupports.add(new int[] { this.positiveSupport[item], this.negativeSupport[item] });
+				} else {
+					kept.add(item);
+				}
+			}
+		}
+		Integer[] keptItems = kept.toArray(new Integer[kept.size()]);
+		Arrays.sort(keptItems, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int negSupportDiff = negativeSupport[o1] - negativeSupport[o2];
+				if (negSupportDiff != 0) {
+					return negSupportDiff;
+				} else {
+					int posSupportDiff = positiveSupport[o1] - positiveSupport[o2];
+					if (posSupportDiff != 0) {
+						return posSupportDiff;
+					} else {
+						return itemNames[o1].compareTo(itemNames[o2]);
+					}
+				}
+			}
+		});
+		int[] renaming = new int[this.itemNames.length];
+		Arrays.fill(renaming, -1);
+		String[] rebasing = new String[keptItems.length];
+		for (int i = 0; i < keptItems.length; i++) {
+			renaming[keptItems[i]] = i;
+			rebasing[i] = this.itemNames[keptItems[i]];
+		}
+		return new Rebasing(renaming, rebasing, emergingItems, emergingItemsSupports);
+	}
+
+	public static final class Rebasing {
+		// new id of each item of the index, -1 if it was filtered out
+		private final int[] renaming;
+		// name of each new id
+		private final String[] rebasing;
+		private final Collection<String> emergingItems;
+		private final List<int[]> emergingItemsSupports;
+
+		private Rebasing(int[] renaming, String[] rebasing, Collection<String> emergingItems,
+				List<int[]> emergingItemsSupports) {
+			this.renaming = renaming;
+			this.rebasing = rebasing;
+			this.emergingItems = emergingItems;
+			this.emergingItemsSupports = emergingItemsSupports;
+		}
+
+		public int[] getRenaming() {
+			return this.renaming;
+		}
+
+		public String[] getRebasing() {
+			return this.rebasing;
+		}
+
+		public Collection<String> getEmergingItems() {
+			return this.emergingItems;
+		}
+
+		// positive then negative support of each emerging item
+		public List<int[]> getEmergingItemsSupports() {
+			return this.emergingItemsSupports;
+		}
+	}
+}
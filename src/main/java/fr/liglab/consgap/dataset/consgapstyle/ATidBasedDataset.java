@@ -27,19 +27,22 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import fr.liglab.consgap.Main;
 import fr.liglab.consgap.collector.ResultsCollector;
 import fr.liglab.consgap.collector.ResultsCollector.EmergingStatus;
+import fr.liglab.consgap.dataset.AtomicItemSet;
 import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.monitor.MiningEvents;
 import gnu.trove.iterator.TObjectIntIterator;
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 import gnu.trove.procedure.TIntObjectProcedure;
-import gnu.trove.set.TIntSet;
 
 abstract class ATidBasedDataset<S> implements Dataset {
 	protected final S[] currentSeqPresencePositive;
@@ -60,6 +63,7 @@ abstract class ATidBasedDataset<S> implements Dataset {
 		this.sequence = new int[] {};
 		this.currentSeqPresencePositive = null;
 		this.currentSeqPresenceNegative = null;
+		Object phase = MiningEvents.INSTANCE.beginLoadingPhase();
 		final TObjectIntMap<String> posFreqCounting = new TObjectIntHashMap<String>();
 		int nbPositiveTransactions = 0;
 		BufferedReader br = new BufferedReader(new FileReader(positiveDataset));
@@ -86,7 +90,9 @@ abstract class ATidBasedDataset<S> implements Dataset {
 				iter.remove();
 			}
 		}
+		MiningEvents.INSTANCE.endLoadingPhase(phase, "count positive", positiveDataset);
 		// compute frequencies in the negative dataset
+		phase = MiningEvents.INSTANCE.beginLoadingPhase();
 		final TObjectIntMap<String> negFreqCounting = new TObjectIntHashMap<String>();
 		int nbNegativeTransactions = 0;
 		br = new BufferedReader(new FileReader(negativeDataset));
@@ -107,16 +113,27 @@ abstract class ATidBasedDataset<S> implements Dataset {
 		// eliminate items that are infrequent in the negative dataset or in the
 		// positive dataset
 		// get items that are emerging by themselves at the same time
+		final TObjectIntMap<String> emergingNegFreq = new TObjectIntHashMap<String>();
 		iter = negFreqCounting.iterator();
 		while (iter.hasNext()) {
 			iter.advance();
 			if (!posFreqCounting.containsKey(iter.key()) || iter.value() <= this.negFreqUpperBound) {
+				if (posFreqCounting.containsKey(iter.key())) {
+					emergingNegFreq.put(iter.key(), iter.value());
+				}
 				iter.remove();
 			}
 		}
 		Collection<String> emergingItems = new ArrayList<String>(posFreqCounting.keySet());
 		emergingItems.removeAll(negFreqCounting.keySet());
+		List<int[]> emergingItemsSupports = new ArrayList<int[]>(emergingItems.size());
+		for (String item : emergingItems) {
+			// 0 if the item isn't in the negative dataset
+			emergingItemsSupports.add(new int[] { posFreqCounting.get(item), emergingNegFreq.get(item) });
+		}
 		posFreqCounting.keySet().removeAll(emergingItems);
+		MiningEvents.INSTANCE.endLoadingPhase(phase, "count negative", negativeDataset);
+		phase = MiningEvents.INSTANCE.beginLoadingPhase();
 		// now do a rebasing using negative dataset support then positive
 		// dataset support, we want to prioritize items with low values
 		// we have to go through Integer because of custom sort
@@ -135,6 +152,8 @@ abstract class ATidBasedDataset<S> implements Dataset {
 			rebasing[i] = keptItems[i];
 		}
 
+		MiningEvents.INSTANCE.endLoadingPhase(phase, "rebase", null);
+		phase = MiningEvents.INSTANCE.beginLoadingPhase();
 		// we have all of our items and their new names, read datasets one last
 		// time and make BitSets
 		this.itemPresenceMapPositive = new TIntObjectHashMap<S[]>(posFreqCounting.size());
@@ -163,6 +182,8 @@ abstract class ATidBasedDataset<S> implements Dataset {
 		}
 		br.close();
 
+		MiningEvents.INSTANCE.endLoadingPhase(phase, "index positive", positiveDataset);
+		phase = MiningEvents.INSTANCE.beginLoadingPhase();
 		this.itemPresenceMapNegative = new TIntObjectHashMap<S[]>(negFreqCounting.size());
 		br = new BufferedReader(new FileReader(negativeDataset));
 		lineNumber = 0;
@@ -188,9 +209,52 @@ abstract class ATidBasedDataset<S> implements Dataset {
 			}
 		}
 		br.close();
+		MiningEvents.INSTANCE.endLoadingPhase(phase, "index negative", negativeDataset);
 		this.resultsCollector = collector;
 		this.resultsCollector.setRebasing(rebasing);
-		this.resultsCollector.setEmergingItems(emergingItems);
+		this.resultsCollector.setEmergingItems(emergingItems, emergingItemsSupports);
+	}
+
+	/**
+	 * Derives the root from an index loaded once, without reading the
+	 * datasets
+	 */
+	public ATidBasedDataset(ResultsCollector collector, DatasetIndex index, int posFreqLowerBound,
+			int negFreqUpperBound, int gapConstraint) {
+		this.posFreqLowerBound = posFreqLowerBound;
+		this.negFreqUpperBound = negFreqUpperBound;
+		this.gapConstraint = gapConstraint;
+		this.sequence = new int[] {};
+		this.currentSeqPresencePositive = null;
+		this.currentSeqPresenceNegative = null;
+		DatasetIndex.Rebasing rebasing = index.rebase(posFreqLowerBound, negFreqUpperBound);
+		this.itemPresenceMapPositive = this.indexOccurences(index.getPositive(), rebasing.getRenaming());
+		this.itemPresenceMapNegative = this.indexOccurences(index.getNegative(), rebasing.getRenaming());
+		this.resultsCollector = collector;
+		this.resultsCollector.setRebasing(rebasing.getRebasing());
+		this.resultsCollector.setEmergingItems(rebasing.getEmergingItems(), rebasing.getEmergingItemsSupports());
+	}
+
+	private TIntObjectMap<S[]> indexOccurences(int[][] transactions, int[] renaming) {
+		TIntObjectMap<S[]> itemPresenceMap = new TIntObjectHashMap<S[]>();
+		for (int tid = 0; tid < transactions.length; tid++) {
+			int[] transaction = transactions[tid];
+			for (int i = 0; i < transaction.length; i++) {
+				int item = renaming[transaction[i]];
+				if (item >= 0) {
+					S[] bsArray = itemPresenceMap.get(item);
+					if (bsArray == null) {
+						bsArray = this.initStructureArray(transactions.length);
+						itemPresenceMap.put(item, bsArray);
+					}
+					if (bsArray[tid] == null) {
+						bsArray[tid] = this.initEmptyStructure();
+					}
+					this.addOccurence(i, bsArray[tid]);
+				}
+			}
+		}
+		return itemPresenceMap;
 	}
 
 	protected abstract S initEmptyStructure();
@@ -215,14 +279,56 @@ abstract class ATidBasedDataset<S> implements Dataset {
 		this.currentSeqPresenceNegative = expandedNegPositionsCompacted;
 	}
 
+	protected ATidBasedDataset(ATidBasedDataset<S> original) {
+		this.posFreqLowerBound = original.posFreqLowerBound;
+		this.negFreqUpperBound = original.negFreqUpperBound;
+		this.gapConstraint = original.gapConstraint;
+		this.sequence = original.sequence.clone();
+		this.resultsCollector = original.resultsCollector;
+		this.itemPresenceMapPositive = this.copyPresenceMap(original.itemPresenceMapPositive);
+		this.itemPresenceMapNegative = this.copyPresenceMap(original.itemPresenceMapNegative);
+		this.currentSeqPresencePositive = this.copyStructureArray(original.currentSeqPresencePositive);
+		this.currentSeqPresenceNegative = this.copyStructureArray(original.currentSeqPresenceNegative);
+	}
+
+	private TIntObjectMap<S[]> copyPresenceMap(TIntObjectMap<S[]> presenceMap) {
+		final TIntObjectMap<S[]> copy = new TIntObjectHashMap<S[]>(presenceMap.size());
+		presenceMap.forEachEntry(new TIntObjectProcedure<S[]>() {
+
+			@Override
+			public boolean execute(int k, S[] v) {
+				copy.put(k, copyStructureArray(v));
+				return true;
+			}
+		});
+		return copy;
+	}
+
+	protected final S[] copyStructureArray(S[] structArray) {
+		if (structArray == null) {
+			return null;
+		}
+		S[] copy = this.initStructureArray(structArray.length);
+		for (int i = 0; i < structArray.length; i++) {
+			if (structArray[i] != null) {
+				copy[i] = this.copyStructure(structArray[i]);
+			}
+		}
+		return copy;
+	}
+
+	protected abstract S copyStructure(S struct);
+
 	@Override
 	final public int[] getExtensions() {
 		return itemPresenceMapPositive.keys();
 	}
 
 	@Override
-	final public ATidBasedDataset<S> expand(final int expansionItem, final TIntSet deniedSiblingsExtensions)
+	final public ATidBasedDataset<S> expand(final int expansionItem, final AtomicItemSet deniedSiblingsExtensions)
 			throws EmergingParentException, EmergingExpansionException, InfrequentException, DeadEndException {
+		// the collector may have raised it since this dataset was built
+		final int posFreqLowerBound = this.getPosFreqLowerBound();
 		// compute support count in positive dataset
 		final S[] expansionItemPosPositions = this.itemPresenceMapPositive.get(expansionItem);
 		final S[] expandedPosPositions = this.initStructureArray(expansionItemPosPositions.length);
@@ -262,6 +368,8 @@ abstract class ATidBasedDataset<S> implements Dataset {
 		boolean emerging = false;
 		S[] expandedNegPositions = null;
 		int[] expandedNegLastPosition = null;
+		// collectors keeping negative supports need them exact
+		final boolean countAll = this.resultsCollector.countsNegSupport();
 		if (expansionItemNegPositions == null) {
 			emerging = true;
 			negSupport = 0;
@@ -270,7 +378,7 @@ abstract class ATidBasedDataset<S> implements Dataset {
 			expandedNegPositions = this.initStructureArray(expansionItemNegPositions.length);
 			// for custom optimization, not in original algorithm
 			expandedNegLastPosition = new int[expansionItemNegPositions.length];
-			for (int i = 0; !emerging && i < expansionItemNegPositions.length; i++) {
+			for (int i = 0; (!emerging || countAll) && i < expansionItemNegPositions.length; i++) {
 				if (expansionItemNegPositions[i] != null) {
 					if (currentSeqPresenceNegative != null) {
 						expandedNegPositions[i] = this.findMatchingPosition(i, false, expansionItemNegPositions[i]);
@@ -300,10 +408,9 @@ abstract class ATidBasedDataset<S> implements Dataset {
 		EmergingStatus es;
 		// System.out.println("emerging " + emerging);
 		if (emerging) {
-			es = this.resultsCollector.collect(this.sequence, expansionItem);
+			es = this.resultsCollector.collect(this.sequence, expansionItem, posSupport, negSupport);
 		} else {
-			es = EmergingStatus.NO_EMERGING_SUBSET;// this.resultsCollector.hasEmergingSubseq(this.sequence,
-			// expansionItem);
+			es = this.resultsCollector.hasEmergingSubseq(this.sequence, expansionItem);
 		}
 
 		switch (es) {
@@ -331,6 +438,9 @@ abstract class ATidBasedDataset<S> implements Dataset {
 
 			@Override
 			public boolean execute(int k, S[] v) {
+				if (deniedSiblingsExtensions.contains(k)) {
+					return true;
+				}
 				S[] newKPresence = initStructureArray(finalPosSupport);
 				int writeIndex = 0;
 				int kSupport = 0;
@@ -353,22 +463,25 @@ abstract class ATidBasedDataset<S> implements Dataset {
 
 		});
 
-		synchronized (deniedSiblingsExtensions) {
-			newItemPresenceMapPositive.keySet().removeAll(deniedSiblingsExtensions);
-		}
-
 		// if there are potential future expansions
 		if (!newItemPresenceMapPositive.isEmpty()) {
 			// we prepare the new presence list of items in negative
 			final TIntObjectMap<S[]> newItemPresenceMapNegative = new TIntObjectHashMap<S[]>(
 					itemPresenceMapNegative.size());
 			final int finalNegSupport = negSupport;
+			// then an item missing from the new map doesn't occur at all, not just rarely
+			final int negSupportKept = countAll ? 0 : negFreqUpperBound;
 			final S[] finalExpandedNegPositions = expandedNegPositions;
 			final int[] finalExpandedNegLastPosition = expandedNegLastPosition;
 			this.itemPresenceMapNegative.forEachEntry(new TIntObjectProcedure<S[]>() {
 
 				@Override
 				public boolean execute(int k, S[] v) {
+					// only keep items that remain possible extensions, this
+					// also drops the denied ones
+					if (!newItemPresenceMapPositive.containsKey(k)) {
+						return true;
+					}
 					S[] newKPresence = initStructureArray(finalNegSupport);
 					int writeIndex = 0;
 					int kSupport = 0;
@@ -383,7 +496,7 @@ abstract class ATidBasedDataset<S> implements Dataset {
 							writeIndex++;
 						}
 					}
-					if (kSupport > negFreqUpperBound) {
+					if (kSupport > negSupportKept) {
 						newItemPresenceMapNegative.put(k, newKPresence);
 					}
 					return true;
@@ -391,10 +504,6 @@ abstract class ATidBasedDataset<S> implements Dataset {
 
 			});
 
-			synchronized (deniedSiblingsExtensions) {
-				newItemPresenceMapNegative.keySet().removeAll(deniedSiblingsExtensions);
-			}
-
 			// we can now shift expanded positions to fill the null entries
 			final S[] expandedPosPositionsCompacted = this.initStructureArray(finalPosSupport);
 			int writeIndex = 0;
@@ -436,6 +545,16 @@ abstract class ATidBasedDataset<S> implements Dataset {
 		return resultsCollector;
 	}
 
+	// positions of item in each positive transaction, may be null if it's not
+	// a possible extension anymore
+	final S[] getItemPresencePositive(int item) {
+		return this.itemPresenceMapPositive.get(item);
+	}
+
+	private final int getPosFreqLowerBound() {
+		return this.resultsCollector.getPosFreqLowerBound(this.posFreqLowerBound);
+	}
+
 	protected final int getGapConstraint() {
 		return gapConstraint;
 	}
@@ -445,6 +564,16 @@ abstract class ATidBasedDataset<S> implements Dataset {
 		return this.sequence;
 	}
 
+	@Override
+	final public int getPositiveSupport() {
+		return this.currentSeqPresencePositive == null ? -1 : this.currentSeqPresencePositive.length;
+	}
+
+	@Override
+	final public int getNegativeSupport() {
+		return this.currentSeqPresenceNegative == null ? -1 : this.currentSeqPresenceNegative.length;
+	}
+
 	@Override
 	public String toString() {
 		return "ATidBasedDataset [sequence=" + Arrays.toString(sequence) + "]";
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.BitSet;
 
 import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.dataset.DatasetIndex;
 import gnu.trove.map.TIntObjectMap;
 
 final public class BitSetDataset extends ATidBasedDataset<BitSet> {
@@ -39,6 +40,13 @@ final public class BitSetDataset extends ATidBasedDataset<BitSet> {
 		this.currentSeqPresenceNegativeShifted = null;
 	}
 
+	public BitSetDataset(ResultsCollector collector, DatasetIndex index, int posFreqLowerBound, int negFreqUpperBound,
+			int gapConstraint) {
+		super(collector, index, posFreqLowerBound, negFreqUpperBound, gapConstraint);
+		this.currentSeqPresencePositiveShifted = null;
+		this.currentSeqPresenceNegativeShifted = null;
+	}
+
 	protected BitSetDataset(BitSetDataset parentDataset, int expansionItem, BitSet[] expandedPosPositionsCompacted,
 			BitSet[] expandedNegPositionsCompacted, TIntObjectMap<BitSet[]> newItemPresenceMapPositive,
 			TIntObjectMap<BitSet[]> newItemPresenceMapNegative) {
@@ -68,6 +76,22 @@ final public class BitSetDataset extends ATidBasedDataset<BitSet> {
 		}
 	}
 
+	protected BitSetDataset(BitSetDataset original) {
+		super(original);
+		this.currentSeqPresencePositiveShifted = this.copyStructureArray(original.currentSeqPresencePositiveShifted);
+		this.currentSeqPresenceNegativeShifted = this.copyStructureArray(original.currentSeqPresenceNegativeShifted);
+	}
+
+	@Override
+	public BitSetDataset replicate() {
+		return new BitSetDataset(this);
+	}
+
+	@Override
+	protected BitSet copyStructure(BitSet struct) {
+		return (BitSet) struct.clone();
+	}
+
 	@Override
 	protected BitSet initEmptyStructure() {
 		return new BitSet();
@@ -23,6 +23,7 @@ package fr.liglab.consgap.dataset.consgapstyle;
 import java.io.IOException;
 
 import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.dataset.DatasetIndex;
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
@@ -35,6 +36,11 @@ final public class ListDataset extends ATidBasedDataset<TIntList> {
 		super(collector, positiveDataset, negativeDataset, posFreqLowerBound, negFreqUpperBound, gapConstraint);
 	}
 
+	public ListDataset(ResultsCollector collector, DatasetIndex index, int posFreqLowerBound, int negFreqUpperBound,
+			int gapConstraint) {
+		super(collector, index, posFreqLowerBound, negFreqUpperBound, gapConstraint);
+	}
+
 	protected ListDataset(ListDataset parentDataset, int expansionItem, TIntList[] expandedPosPositionsCompacted,
 			TIntList[] expandedNegPositionsCompacted, TIntObjectMap<TIntList[]> newItemPresenceMapPositive,
 			TIntObjectMap<TIntList[]> newItemPresenceMapNegative) {
@@ -76,6 +82,20 @@ final public class ListDataset extends ATidBasedDataset<TIntList> {
 		return res;
 	}
 
+	protected ListDataset(ListDataset original) {
+		super(original);
+	}
+
+	@Override
+	public ListDataset replicate() {
+		return new ListDataset(this);
+	}
+
+	@Override
+	protected TIntList copyStructure(TIntList struct) {
+		return new TIntArrayList(struct);
+	}
+
 	@Override
 	protected TIntList initEmptyStructure() {
 		return new TIntArrayList();
@@ -34,7 +34,10 @@ import java.util.Set;
 import fr.liglab.consgap.Main;
 import fr.liglab.consgap.collector.ResultsCollector;
 import fr.liglab.consgap.collector.ResultsCollector.EmergingStatus;
+import fr.liglab.consgap.dataset.AtomicItemSet;
 import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.monitor.MiningEvents;
 import gnu.trove.iterator.TObjectIntIterator;
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
@@ -43,7 +46,6 @@ import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 import gnu.trove.procedure.TIntObjectProcedure;
-import gnu.trove.set.TIntSet;
 
 abstract class ATransactionsBasedDataset<S> implements Dataset {
 	protected final S[] currentSeqPresencePositive;
@@ -67,6 +69,7 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 		this.sequence = new int[] {};
 		this.currentSeqPresencePositive = null;
 		this.currentSeqPresenceNegative = null;
+		Object phase = MiningEvents.INSTANCE.beginLoadingPhase();
 		final TObjectIntMap<String> posFreqCounting = new TObjectIntHashMap<String>();
 		int nbPositiveTransactions = 0;
 		BufferedReader br = new BufferedReader(new FileReader(positiveDataset));
@@ -93,7 +96,9 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 				iter.remove();
 			}
 		}
+		MiningEvents.INSTANCE.endLoadingPhase(phase, "count positive", positiveDataset);
 		// compute frequencies in the negative dataset
+		phase = MiningEvents.INSTANCE.beginLoadingPhase();
 		final TObjectIntMap<String> negFreqCounting = new TObjectIntHashMap<String>();
 		int nbNegativeTransactions = 0;
 		br = new BufferedReader(new FileReader(negativeDataset));
@@ -114,16 +119,27 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 		// eliminate items that are infrequent in the negative dataset or in the
 		// positive dataset
 		// get items that are emerging by themselves at the same time
+		final TObjectIntMap<String> emergingNegFreq = new TObjectIntHashMap<String>();
 		iter = negFreqCounting.iterator();
 		while (iter.hasNext()) {
 			iter.advance();
 			if (!posFreqCounting.containsKey(iter.key()) || iter.value() <= this.negFreqUpperBound) {
+				if (posFreqCounting.containsKey(iter.key())) {
+					emergingNegFreq.put(iter.key(), iter.value());
+				}
 				iter.remove();
 			}
 		}
 		Collection<String> emergingItems = new ArrayList<String>(posFreqCounting.keySet());
 		emergingItems.removeAll(negFreqCounting.keySet());
+		List<int[]> emergingItemsSupports = new ArrayList<int[]>(emergingItems.size());
+		for (String item : emergingItems) {
+			// 0 if the item isn't in the negative dataset
+			emergingItemsSupports.add(new int[] { posFreqCounting.get(item), emergingNegFreq.get(item) });
+		}
 		posFreqCounting.keySet().removeAll(emergingItems);
+		MiningEvents.INSTANCE.endLoadingPhase(phase, "count negative", negativeDataset);
+		phase = MiningEvents.INSTANCE.beginLoadingPhase();
 		// now do a rebasing using negative dataset support then positive
 		// dataset support, we want to prioritize items with low values
 		// we have to go through Integer because of custom sort
@@ -159,6 +175,8 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 			rebasing[i] = keptItems[i];
 		}
 
+		MiningEvents.INSTANCE.endLoadingPhase(phase, "rebase", null);
+		phase = MiningEvents.INSTANCE.beginLoadingPhase();
 		// we have all of our items and their new names, read datasets one last
 		// time and make BitSets
 		this.positiveTransactions = new ArrayList<int[]>(posFreqCounting.size());
@@ -194,6 +212,8 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 		}
 		br.close();
 
+		MiningEvents.INSTANCE.endLoadingPhase(phase, "index positive", positiveDataset);
+		phase = MiningEvents.INSTANCE.beginLoadingPhase();
 		this.itemPresenceMapNegative = new TIntObjectHashMap<S[]>(negFreqCounting.size());
 		br = new BufferedReader(new FileReader(negativeDataset));
 		lineNumber = 0;
@@ -219,14 +239,69 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 			}
 		}
 		br.close();
+		MiningEvents.INSTANCE.endLoadingPhase(phase, "index negative", negativeDataset);
 		this.possibleExtensions = this.itemPresenceMapPositive.keys();
 		this.originalPosTransactionsMapping = null;
 		this.resultsCollector = collector;
 		this.resultsCollector.setRebasing(rebasing);
-		this.resultsCollector.setEmergingItems(emergingItems);
+		this.resultsCollector.setEmergingItems(emergingItems, emergingItemsSupports);
 		System.err.println(this.itemPresenceMapPositive.size() + " frequent non emerging items in dataset");
 	}
 
+	/**
+	 * Derives the root from an index loaded once, without reading the
+	 * datasets
+	 */
+	public ATransactionsBasedDataset(ResultsCollector collector, DatasetIndex index, int posFreqLowerBound,
+			int negFreqUpperBound, int gapConstraint) {
+		this.posFreqLowerBound = posFreqLowerBound;
+		this.negFreqUpperBound = negFreqUpperBound;
+		this.gapConstraint = gapConstraint;
+		this.sequence = new int[] {};
+		this.currentSeqPresencePositive = null;
+		this.currentSeqPresenceNegative = null;
+		DatasetIndex.Rebasing rebasing = index.rebase(posFreqLowerBound, negFreqUpperBound);
+		int[] renaming = rebasing.getRenaming();
+		int[][] positive = index.getPositive();
+		this.positiveTransactions = new ArrayList<int[]>(positive.length);
+		for (int[] transaction : positive) {
+			int[] renamed = new int[transaction.length];
+			for (int i = 0; i < transaction.length; i++) {
+				renamed[i] = renaming[transaction[i]];
+			}
+			this.positiveTransactions.add(renamed);
+		}
+		this.itemPresenceMapPositive = this.indexOccurences(positive, renaming);
+		this.itemPresenceMapNegative = this.indexOccurences(index.getNegative(), renaming);
+		this.possibleExtensions = this.itemPresenceMapPositive.keys();
+		this.originalPosTransactionsMapping = null;
+		this.resultsCollector = collector;
+		this.resultsCollector.setRebasing(rebasing.getRebasing());
+		this.resultsCollector.setEmergingItems(rebasing.getEmergingItems(), rebasing.getEmergingItemsSupports());
+	}
+
+	private TIntObjectMap<S[]> indexOccurences(int[][] transactions, int[] renaming) {
+		TIntObjectMap<S[]> itemPresenceMap = new TIntObjectHashMap<S[]>();
+		for (int tid = 0; tid < transactions.length; tid++) {
+			int[] transaction = transactions[tid];
+			for (int i = 0; i < transaction.length; i++) {
+				int item = renaming[transaction[i]];
+				if (item >= 0) {
+					S[] bsArray = itemPresenceMap.get(item);
+					if (bsArray == null) {
+						bsArray = this.initStructureArray(transactions.length);
+						itemPresenceMap.put(item, bsArray);
+					}
+					if (bsArray[tid] == null) {
+						bsArray[tid] = this.initEmptyStructure();
+					}
+					this.addOccurence(i, bsArray[tid]);
+				}
+			}
+		}
+		return itemPresenceMap;
+	}
+
 	protected abstract S initEmptyStructure();
 
 	protected abstract S[] initStructureArray(int size);
@@ -253,6 +328,56 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 		this.possibleExtensions = this.computePossibleExtensions();
 	}
 
+	protected ATransactionsBasedDataset(ATransactionsBasedDataset<S> original) {
+		this.posFreqLowerBound = original.posFreqLowerBound;
+		this.negFreqUpperBound = original.negFreqUpperBound;
+		this.gapConstraint = original.gapConstraint;
+		this.sequence = original.sequence.clone();
+		this.resultsCollector = original.resultsCollector;
+		this.itemPresenceMapPositive = this.copyPresenceMap(original.itemPresenceMapPositive);
+		this.itemPresenceMapNegative = this.copyPresenceMap(original.itemPresenceMapNegative);
+		this.currentSeqPresencePositive = this.copyStructureArray(original.currentSeqPresencePositive);
+		this.currentSeqPresenceNegative = this.copyStructureArray(original.currentSeqPresenceNegative);
+		this.positiveTransactions = new ArrayList<int[]>(original.positiveTransactions.size());
+		for (int[] transaction : original.positiveTransactions) {
+			this.positiveTransactions.add(transaction.clone());
+		}
+		if (original.originalPosTransactionsMapping == null) {
+			this.originalPosTransactionsMapping = null;
+		} else {
+			this.originalPosTransactionsMapping = original.originalPosTransactionsMapping.clone();
+		}
+		this.possibleExtensions = original.possibleExtensions.clone();
+	}
+
+	private TIntObjectMap<S[]> copyPresenceMap(TIntObjectMap<S[]> presenceMap) {
+		final TIntObjectMap<S[]> copy = new TIntObjectHashMap<S[]>(presenceMap.size());
+		presenceMap.forEachEntry(new TIntObjectProcedure<S[]>() {
+
+			@Override
+			public boolean execute(int k, S[] v) {
+				copy.put(k, copyStructureArray(v));
+				return true;
+			}
+		});
+		return copy;
+	}
+
+	protected final S[] copyStructureArray(S[] structArray) {
+		if (structArray == null) {
+			return null;
+		}
+		S[] copy = this.initStructureArray(structArray.length);
+		for (int i = 0; i < structArray.length; i++) {
+			if (structArray[i] != null) {
+				copy[i] = this.copyStructure(structArray[i]);
+			}
+		}
+		return copy;
+	}
+
+	protected abstract S copyStructure(S struct);
+
 	@Override
 	final public int[] getExtensions() {
 		return this.possibleExtensions;
@@ -261,8 +386,10 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 	abstract protected int[] computePossibleExtensions();
 
 	@Override
-	final public ATransactionsBasedDataset<S> expand(final int expansionItem, final TIntSet deniedSiblingsExtensions)
+	final public ATransactionsBasedDataset<S> expand(final int expansionItem, final AtomicItemSet deniedSiblingsExtensions)
 			throws EmergingParentException, EmergingExpansionException, InfrequentException, DeadEndException {
+		// the collector may have raised it since this dataset was built
+		final int posFreqLowerBound = this.getPosFreqLowerBound();
 		// compute support count in positive dataset
 		final S[] expansionItemPosPositions = this.itemPresenceMapPositive.get(expansionItem);
 		final S[] expandedPosPositions = this.initStructureArray(expansionItemPosPositions.length);
@@ -302,6 +429,8 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 		boolean emerging = false;
 		S[] expandedNegPositions = null;
 		int[] expandedNegLastPosition = null;
+		// collectors keeping negative supports need them exact
+		final boolean countAll = this.resultsCollector.countsNegSupport();
 		if (expansionItemNegPositions == null) {
 			emerging = true;
 			negSupport = 0;
@@ -310,7 +439,7 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 			expandedNegPositions = this.initStructureArray(expansionItemNegPositions.length);
 			// for custom optimization, not in original algorithm
 			expandedNegLastPosition = new int[expansionItemNegPositions.length];
-			for (int i = 0; !emerging && i < expansionItemNegPositions.length; i++) {
+			for (int i = 0; (!emerging || countAll) && i < expansionItemNegPositions.length; i++) {
 				if (expansionItemNegPositions[i] != null) {
 					if (currentSeqPresenceNegative != null) {
 						expandedNegPositions[i] = this.findMatchingPosition(i, false, expansionItemNegPositions[i]);
@@ -340,10 +469,9 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 		EmergingStatus es;
 		// System.out.println("emerging " + emerging);
 		if (emerging) {
-			es = this.resultsCollector.collect(this.sequence, expansionItem);
+			es = this.resultsCollector.collect(this.sequence, expansionItem, posSupport, negSupport);
 		} else {
-			es = EmergingStatus.NO_EMERGING_SUBSET;// this.resultsCollector.hasEmergingSubseq(this.sequence,
-			// expansionItem);
+			es = this.resultsCollector.hasEmergingSubseq(this.sequence, expansionItem);
 		}
 
 		switch (es) {
@@ -371,6 +499,9 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 
 			@Override
 			public boolean execute(int k, S[] v) {
+				if (deniedSiblingsExtensions.contains(k)) {
+					return true;
+				}
 				S[] newKPresence = initStructureArray(finalPosSupport);
 				int writeIndex = 0;
 				int kSupport = 0;
@@ -393,22 +524,25 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 
 		});
 
-		synchronized (deniedSiblingsExtensions) {
-			newItemPresenceMapPositive.keySet().removeAll(deniedSiblingsExtensions);
-		}
-
 		// if there are potential future expansions
 		if (!newItemPresenceMapPositive.isEmpty()) {
 			// we prepare the new presence list of items in negative
 			final TIntObjectMap<S[]> newItemPresenceMapNegative = new TIntObjectHashMap<S[]>(
 					itemPresenceMapNegative.size());
 			final int finalNegSupport = negSupport;
+			// then an item missing from the new map doesn't occur at all, not just rarely
+			final int negSupportKept = countAll ? 0 : negFreqUpperBound;
 			final S[] finalExpandedNegPositions = expandedNegPositions;
 			final int[] finalExpandedNegLastPosition = expandedNegLastPosition;
 			this.itemPresenceMapNegative.forEachEntry(new TIntObjectProcedure<S[]>() {
 
 				@Override
 				public boolean execute(int k, S[] v) {
+					// only keep items that remain possible extensions, this
+					// also drops the denied ones
+					if (!newItemPresenceMapPositive.containsKey(k)) {
+						return true;
+					}
 					S[] newKPresence = initStructureArray(finalNegSupport);
 					int writeIndex = 0;
 					int kSupport = 0;
@@ -423,7 +557,7 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 							writeIndex++;
 						}
 					}
-					if (kSupport > negFreqUpperBound) {
+					if (kSupport > negSupportKept) {
 						newItemPresenceMapNegative.put(k, newKPresence);
 					}
 					return true;
@@ -431,10 +565,6 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 
 			});
 
-			synchronized (deniedSiblingsExtensions) {
-				newItemPresenceMapNegative.keySet().removeAll(deniedSiblingsExtensions);
-			}
-
 			// we can now shift expanded positions to fill the null entries
 			final S[] expandedPosPositionsCompacted = this.initStructureArray(finalPosSupport);
 			final int[] expandedPosTransactionsMapping = new int[finalPosSupport];
@@ -484,6 +614,10 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 		return resultsCollector;
 	}
 
+	protected final int getPosFreqLowerBound() {
+		return this.resultsCollector.getPosFreqLowerBound(this.posFreqLowerBound);
+	}
+
 	protected final int getGapConstraint() {
 		return gapConstraint;
 	}
@@ -492,4 +626,14 @@ abstract class ATransactionsBasedDataset<S> implements Dataset {
 	final public int[] getSequence() {
 		return this.sequence;
 	}
+
+	@Override
+	final public int getPositiveSupport() {
+		return this.currentSeqPresencePositive == null ? -1 : this.currentSeqPresencePositive.length;
+	}
+
+	@Override
+	final public int getNegativeSupport() {
+		return this.currentSeqPresenceNegative == null ? -1 : this.currentSeqPresenceNegative.length;
+	}
 }
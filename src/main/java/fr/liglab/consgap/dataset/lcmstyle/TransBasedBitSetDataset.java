@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.BitSet;
 
 import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.dataset.DatasetIndex;
 import gnu.trove.iterator.TIntIntIterator;
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.map.TIntIntMap;
@@ -45,6 +46,13 @@ final public class TransBasedBitSetDataset extends ATransactionsBasedDataset<Bit
 		this.currentSeqPresenceNegativeShifted = null;
 	}
 
+	public TransBasedBitSetDataset(ResultsCollector collector, DatasetIndex index, int posFreqLowerBound, int negFreqUpperBound,
+			int gapConstraint) {
+		super(collector, index, posFreqLowerBound, negFreqUpperBound, gapConstraint);
+		this.currentSeqPresencePositiveShifted = null;
+		this.currentSeqPresenceNegativeShifted = null;
+	}
+
 	protected TransBasedBitSetDataset(TransBasedBitSetDataset parentDataset, int expansionItem,
 			BitSet[] expandedPosPositionsCompacted, BitSet[] expandedNegPositionsCompacted,
 			TIntObjectMap<BitSet[]> newItemPresenceMapPositive, TIntObjectMap<BitSet[]> newItemPresenceMapNegative,
@@ -98,16 +106,33 @@ final public class TransBasedBitSetDataset extends ATransactionsBasedDataset<Bit
 			}
 			extInTrans.clear();
 		}
+		final int posFreqLowerBound = this.getPosFreqLowerBound();
 		TIntIntIterator occCountIter = occCount.iterator();
 		while (occCountIter.hasNext()) {
 			occCountIter.advance();
-			if (occCountIter.value() < this.posFreqLowerBound) {
+			if (occCountIter.value() < posFreqLowerBound) {
 				occCountIter.remove();
 			}
 		}
 		return occCount.keys();
 	}
 
+	protected TransBasedBitSetDataset(TransBasedBitSetDataset original) {
+		super(original);
+		this.currentSeqPresencePositiveShifted = this.copyStructureArray(original.currentSeqPresencePositiveShifted);
+		this.currentSeqPresenceNegativeShifted = this.copyStructureArray(original.currentSeqPresenceNegativeShifted);
+	}
+
+	@Override
+	public TransBasedBitSetDataset replicate() {
+		return new TransBasedBitSetDataset(this);
+	}
+
+	@Override
+	protected BitSet copyStructure(BitSet struct) {
+		return (BitSet) struct.clone();
+	}
+
 	@Override
 	protected BitSet initEmptyStructure() {
 		return new BitSet();
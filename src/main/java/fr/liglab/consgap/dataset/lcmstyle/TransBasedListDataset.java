@@ -21,6 +21,7 @@
 package fr.liglab.consgap.dataset.lcmstyle;
 
 import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.dataset.DatasetIndex;
 import gnu.trove.iterator.TIntIntIterator;
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.list.TIntList;
@@ -40,6 +41,11 @@ final public class TransBasedListDataset extends ATransactionsBasedDataset<TIntL
 		super(collector, positiveDataset, negativeDataset, posFreqLowerBound, negFreqUpperBound, gapConstraint);
 	}
 
+	public TransBasedListDataset(ResultsCollector collector, DatasetIndex index, int posFreqLowerBound, int negFreqUpperBound,
+			int gapConstraint) {
+		super(collector, index, posFreqLowerBound, negFreqUpperBound, gapConstraint);
+	}
+
 	protected TransBasedListDataset(TransBasedListDataset parentDataset, int expansionItem,
 			TIntList[] expandedPosPositionsCompacted, TIntList[] expandedNegPositionsCompacted,
 			TIntObjectMap<TIntList[]> newItemPresenceMapPositive, TIntObjectMap<TIntList[]> newItemPresenceMapNegative,
@@ -107,16 +113,31 @@ final public class TransBasedListDataset extends ATransactionsBasedDataset<TIntL
 			}
 			extInTrans.clear();
 		}
+		final int posFreqLowerBound = this.getPosFreqLowerBound();
 		TIntIntIterator occCountIter = occCount.iterator();
 		while (occCountIter.hasNext()) {
 			occCountIter.advance();
-			if (occCountIter.value() < this.posFreqLowerBound) {
+			if (occCountIter.value() < posFreqLowerBound) {
 				occCountIter.remove();
 			}
 		}
 		return occCount.keys();
 	}
 
+	protected TransBasedListDataset(TransBasedListDataset original) {
+		super(original);
+	}
+
+	@Override
+	public TransBasedListDataset replicate() {
+		return new TransBasedListDataset(this);
+	}
+
+	@Override
+	protected TIntList copyStructure(TIntList struct) {
+		return new TIntArrayList(struct);
+	}
+
 	@Override
 	protected TIntList initEmptyStructure() {
 		return new TIntArrayList();
@@ -0,0 +1,365 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import fr.liglab.consgap.Main;
+import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.executor.Checkpoint;
+import fr.liglab.consgap.executor.MiningStep;
+
+/**
+ * Splits the root extensions in as many parts as there are workers, the way
+ * NUMA groups do, and gathers the sequences they send into a local collector.
+ * Each worker loads the datasets itself, so they must be readable at the same
+ * paths by all workers.
+ * 
+ * Parts can be very unbalanced, so idle workers get more work: the coordinator
+ * asks the worker which reported the most pending extensions to donate half of
+ * those of the lowest step of one of its stacks, and forwards it. Once all
+ * workers are idle it tells them to stop.
+ * 
+ * The protocol uses big-endian ints. The coordinator first sends the part, the
+ * number of parts and the command line (its length, then each argument as in
+ * DataOutput.writeUTF), then WORK (followed by steps, see Checkpoint.Step),
+ * DONATE or STOP. The worker sends each sequence as its length followed by its
+ * items, IDLE, LOAD (followed by a long), DONATION (followed by steps) and
+ * finally END and its iterations count (as a long).
+ */
+public class Coordinator {
+	// worker to coordinator, sequences have a positive length instead
+	static final int END = -1;
+	static final int IDLE = -2;
+	static final int DONATION = -3;
+	static final int LOAD = -4;
+	// coordinator to worker
+	static final int WORK = 1;
+	static final int DONATE = 2;
+	static final int STOP = 3;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final ServerSocket server;
+	private final int nbWorkers;
+	private final String[] workerArgs;
+	private final ResultsCollector collector;
+	private final List<Process> spawned;
+	private IOException failure = null;
+	// written to by one thread at a time, synchronized on each
+	private final DataOutputStream[] outputs;
+	// balancing state, guarded by this
+	private final boolean[] idle;
+	// a donation was requested and not received yet
+	private final boolean[] asked;
+	private int nbAsked;
+	// as last reported, workers which just got work are assumed busy
+	private final long[] loads;
+	// idle workers, first come first served
+	private final Deque<Integer> waiting;
+	private int nbDonations;
+
+	/**
+	 * @param port
+	 *            0 for any free port
+	 * @param workerArgs
+	 *            command line given to workers, they ignore the options they
+	 *            don't need
+	 */
+	public Coordinator(int port, int nbWorkers, String[] workerArgs, ResultsCollector collector) throws IOException {
+		this.server = new ServerSocket(port);
+		this.nbWorkers = nbWorkers;
+		this.workerArgs = workerArgs;
+		this.collector = collector;
+		this.spawned = new ArrayList<Process>();
+		this.outputs = new DataOutputStream[nbWorkers];
+		this.idle = new boolean[nbWorkers];
+		this.asked = new boolean[nbWorkers];
+		this.nbAsked = 0;
+		this.loads = new long[nbWorkers];
+		Arrays.fill(this.loads, 1);
+		this.waiting = new ArrayDeque<Integer>(nbWorkers);
+		this.nbDonations = 0;
+	}
+
+	public int getPort() {
+		return this.server.getLocalPort();
+	}
+
+	/**
+	 * Starts the workers as JVMs on this machine, with our classpath. Their
+	 * logs are copied to our stderr.
+	 */
+	public void spawnLocalWorkers() throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		for (int i = 0; i < this.nbWorkers; i++) {
+			ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+					Main.class.getName(), "-worker", "localhost:" + this.getPort());
+			pb.redirectErrorStream(true);
+			final Process process = pb.start();
+			this.spawned.add(process);
+			Thread logger = new Thread("WorkerLog" + i) {
+				@Override
+				public void run() {
+					byte[] buffer = new byte[4096];
+					InputStream is = process.getInputStream();
+					try {
+						int read;
+						while ((read = is.read(buffer)) >= 0) {
+							System.err.write(buffer, 0, read);
+						}
+					} catch (IOException e) {
+						// the worker is gone
+					}
+				}
+			};
+			logger.setDaemon(true);
+			logger.start();
+		}
+	}
+
+	/**
+	 * Waits for all workers to connect and to send all their results
+	 */
+	public void mine() throws IOException {
+		List<Thread> connections = new ArrayList<Thread>(this.nbWorkers);
+		try {
+			for (int part = 0; part < this.nbWorkers; part++) {
+				Socket socket = this.server.accept();
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				out.writeInt(part);
+				out.writeInt(this.nbWorkers);
+				out.writeInt(this.workerArgs.length);
+				for (String arg : this.workerArgs) {
+					out.writeUTF(arg);
+				}
+				out.flush();
+				this.outputs[part] = out;
+				connections.add(new WorkerConnection(socket, part));
+			}
+		} finally {
+			this.server.close();
+		}
+		// workers only get balancing messages once all are connected
+		for (Thread t : connections) {
+			t.start();
+		}
+		for (Thread t : connections) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		for (Process p : this.spawned) {
+			try {
+				p.waitFor();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		synchronized (this) {
+			if (this.failure != null) {
+				throw this.failure;
+			}
+		}
+		System.err.println(this.nbDonations + " donations between workers");
+	}
+
+	private void onIdle(int worker) throws IOException {
+		List<Message> messages;
+		synchronized (this) {
+			this.idle[worker] = true;
+			this.loads[worker] = 0;
+			this.waiting.add(worker);
+			messages = this.balance();
+		}
+		this.send(messages);
+	}
+
+	private void onLoad(int worker, long load) throws IOException {
+		List<Message> messages = Collections.emptyList();
+		synchronized (this) {
+			// may have been sent just before becoming idle
+			if (!this.idle[worker]) {
+				this.loads[worker] = load;
+				messages = this.balance();
+			}
+		}
+		this.send(messages);
+	}
+
+	private void onDonation(int donor, List<Checkpoint.Step> steps) throws IOException {
+		List<Message> messages = new ArrayList<Message>();
+		synchronized (this) {
+			this.asked[donor] = false;
+			this.nbAsked--;
+			if (steps.isEmpty()) {
+				// until it reports some load again
+				this.loads[donor] = 0;
+			} else {
+				this.nbDonations++;
+				Integer receiver = this.waiting.poll();
+				if (receiver == null) {
+					// nobody needs it anymore, the donor takes it back
+					receiver = donor;
+				}
+				this.idle[receiver] = false;
+				this.loads[receiver] = 1;
+				messages.add(new Message(receiver, WORK, steps));
+			}
+			messages.addAll(this.balance());
+		}
+		this.send(messages);
+	}
+
+	/**
+	 * Requests one donation per idle worker, from the busiest workers, or
+	 * stops everyone when nobody has work left. Only decides, the messages
+	 * are sent once the lock is released so that a slow worker doesn't block
+	 * the others' connections.
+	 */
+	private List<Message> balance() {
+		List<Message> messages = new ArrayList<Message>();
+		if (this.waiting.size() == this.nbWorkers && this.nbAsked == 0) {
+			for (int w = 0; w < this.nbWorkers; w++) {
+				messages.add(new Message(w, STOP, null));
+			}
+			this.waiting.clear();
+			return messages;
+		}
+		while (this.nbAsked < this.waiting.size()) {
+			int busiest = -1;
+			for (int w = 0; w < this.nbWorkers; w++) {
+				if (!this.idle[w] && !this.asked[w] && this.loads[w] > 0
+						&& (busiest < 0 || this.loads[w] > this.loads[busiest])) {
+					busiest = w;
+				}
+			}
+			if (busiest < 0) {
+				// wait for load reports
+				break;
+			}
+			this.asked[busiest] = true;
+			this.nbAsked++;
+			messages.add(new Message(busiest, DONATE, null));
+		}
+		return messages;
+	}
+
+	// two connections may send their messages to a worker in another order
+	// than decided: a DONATE overtaking WORK gets an empty donation, and STOP
+	// is only decided once every worker went idle after its last WORK
+	private void send(List<Message> messages) throws IOException {
+		for (Message m : messages) {
+			DataOutputStream out = this.outputs[m.worker];
+			synchronized (out) {
+				out.writeInt(m.type);
+				if (m.steps != null) {
+					out.writeInt(m.steps.size());
+					for (Checkpoint.Step step : m.steps) {
+						step.write(out);
+					}
+				}
+				out.flush();
+			}
+		}
+	}
+
+	private static class Message {
+		private final int worker;
+		private final int type;
+		// only for WORK
+		private final List<Checkpoint.Step> steps;
+
+		Message(int worker, int type, List<Checkpoint.Step> steps) {
+			this.worker = worker;
+			this.type = type;
+			this.steps = steps;
+		}
+	}
+
+	private class WorkerConnection extends Thread {
+		private final Socket socket;
+		private final int part;
+
+		WorkerConnection(Socket socket, int part) {
+			super("WorkerConnection" + part);
+			this.socket = socket;
+			this.part = part;
+		}
+
+		@Override
+		public void run() {
+			try {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream(),
+						BUFFER_SIZE));
+				while (true) {
+					int message = in.readInt();
+					if (message > 0) {
+						int expansionItem = in.readInt();
+						int[] sequence = new int[message - 1];
+						for (int i = 0; i < sequence.length; i++) {
+							sequence[i] = in.readInt();
+						}
+						collector.collect(sequence, expansionItem);
+					} else if (message == IDLE) {
+						onIdle(this.part);
+					} else if (message == LOAD) {
+						onLoad(this.part, in.readLong());
+					} else if (message == DONATION) {
+						int nbSteps = in.readInt();
+						List<Checkpoint.Step> steps = new ArrayList<Checkpoint.Step>(nbSteps);
+						for (int i = 0; i < nbSteps; i++) {
+							steps.add(Checkpoint.Step.read(in));
+						}
+						onDonation(this.part, steps);
+					} else if (message == END) {
+						MiningStep.loopCounts.addAndGet(in.readLong());
+						break;
+					} else {
+						throw new IOException("unknown message " + message);
+					}
+				}
+				this.socket.close();
+			} catch (IOException e) {
+				synchronized (Coordinator.this) {
+					if (failure == null) {
+						failure = new IOException("worker " + this.part + " failed", e);
+					}
+				}
+			}
+		}
+	}
+}
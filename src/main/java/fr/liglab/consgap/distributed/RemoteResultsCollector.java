@@ -0,0 +1,88 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.distributed;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.collector.ResultsSink;
+import fr.liglab.consgap.collector.SequenceInterner;
+
+/**
+ * Used by workers: sends each new sequence to the coordinator as soon as it is
+ * collected, the coordinator does the filtering
+ */
+class RemoteResultsCollector extends ResultsCollector {
+	// so that a sequence reached from several paths is only sent once
+	private final SequenceInterner sent;
+	private final DataOutputStream out;
+
+	RemoteResultsCollector(DataOutputStream out) {
+		this.sent = new SequenceInterner();
+		this.out = out;
+	}
+
+	@Override
+	public EmergingStatus collect(int[] sequence, int expansionItem) {
+		if (this.sent.add(sequence, expansionItem)) {
+			try {
+				synchronized (this.out) {
+					this.out.writeInt(sequence.length + 1);
+					this.out.writeInt(expansionItem);
+					for (int item : sequence) {
+						this.out.writeInt(item);
+					}
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return EmergingStatus.NEW_EMERGING;
+	}
+
+	/**
+	 * Tells the coordinator this worker is done
+	 */
+	void finish(long iterations) throws IOException {
+		synchronized (this.out) {
+			this.out.writeInt(Coordinator.END);
+			this.out.writeLong(iterations);
+			this.out.flush();
+		}
+	}
+
+	@Override
+	public int getNbCollected() {
+		return this.sent.size();
+	}
+
+	/**
+	 * Writes nothing: collected sequences were already sent, the coordinator
+	 * filters them and writes them along with emerging items
+	 * 
+	 * @return 0
+	 */
+	@Override
+	public int writeNonRedundant(ResultsSink sink) throws IOException {
+		return 0;
+	}
+}
@@ -0,0 +1,209 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+
+import fr.liglab.consgap.Main;
+import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.executor.Checkpoint;
+import fr.liglab.consgap.executor.DepthFirstExecutor;
+import fr.liglab.consgap.executor.MiningExecutor;
+import fr.liglab.consgap.executor.MiningStep;
+
+/**
+ * Connects to a coordinator, which sends the command line of the run and the
+ * part of the root extensions to explore, then mines them with the executor
+ * selected by that command line. Once done, asks the coordinator for more
+ * work, which comes as steps donated by other workers, until the coordinator
+ * tells it to stop.
+ */
+public class Worker {
+	private static final int BUFFER_SIZE = 1 << 16;
+	// milliseconds between two load reports
+	private static final long LOAD_PERIOD = 500;
+	private static final List<Checkpoint.Step> STOP = Collections.emptyList();
+
+	public static void run(String coordinatorAddress) throws IOException {
+		int colon = coordinatorAddress.lastIndexOf(':');
+		if (colon < 0) {
+			throw new IllegalArgumentException("expected HOST:PORT, got " + coordinatorAddress);
+		}
+		Socket socket = new Socket(coordinatorAddress.substring(0, colon), Integer.parseInt(coordinatorAddress
+				.substring(colon + 1)));
+		try {
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+					BUFFER_SIZE));
+			int part = in.readInt();
+			int nbParts = in.readInt();
+			String[] args = new String[in.readInt()];
+			for (int i = 0; i < args.length; i++) {
+				args[i] = in.readUTF();
+			}
+			CommandLine cmd;
+			try {
+				cmd = Main.parse(args);
+			} catch (ParseException e) {
+				throw new IOException("invalid arguments from coordinator", e);
+			}
+			RemoteResultsCollector collector = new RemoteResultsCollector(out);
+			Dataset dataset = Main.createDataset(cmd, collector);
+			final MiningExecutor executor = Main.createExecutor(cmd, Main.getNbThreads(cmd));
+			final BlockingQueue<List<Checkpoint.Step>> work = new LinkedBlockingQueue<List<Checkpoint.Step>>();
+			final AtomicBoolean mining = new AtomicBoolean(true);
+			Thread listener = new Thread("CoordinatorListener") {
+				@Override
+				public void run() {
+					try {
+						listen(in, out, executor, work);
+					} catch (IOException e) {
+						System.err.println("lost the coordinator: " + e);
+						work.add(STOP);
+					}
+				}
+			};
+			listener.setDaemon(true);
+			listener.start();
+			Thread loadReporter = new Thread("LoadReporter") {
+				@Override
+				public void run() {
+					try {
+						while (true) {
+							Thread.sleep(LOAD_PERIOD);
+							if (mining.get()) {
+								sendLoad(out, executor);
+							}
+						}
+					} catch (InterruptedException | IOException e) {
+						// stopped
+					}
+				}
+			};
+			loadReporter.setDaemon(true);
+			loadReporter.start();
+
+			long startTime = System.currentTimeMillis();
+			int nbDonations = 0;
+			executor.mine(new MiningStep(dataset, part, nbParts, executor.getExplorationSettings()));
+			while (true) {
+				List<Checkpoint.Step> steps = work.poll();
+				if (steps == null) {
+					mining.set(false);
+					synchronized (out) {
+						out.writeInt(Coordinator.IDLE);
+						out.flush();
+					}
+					steps = work.take();
+				}
+				if (steps == STOP) {
+					break;
+				}
+				mining.set(true);
+				nbDonations++;
+				List<MiningStep> replayed = Checkpoint.replay(dataset, steps, executor.getExplorationSettings());
+				if (executor instanceof DepthFirstExecutor) {
+					((DepthFirstExecutor) executor).mine(replayed);
+				} else {
+					for (MiningStep step : replayed) {
+						executor.mine(step);
+					}
+				}
+			}
+			loadReporter.interrupt();
+			collector.finish(MiningStep.loopCounts.get());
+			System.err.println("worker " + part + "/" + nbParts + " sent " + collector.getNbCollected()
+					+ " sequences, mined " + nbDonations + " donations, in "
+					+ (System.currentTimeMillis() - startTime) + " ms");
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			socket.close();
+		}
+	}
+
+	// handles the coordinator's messages until it says to stop
+	private static void listen(DataInputStream in, DataOutputStream out, MiningExecutor executor,
+			BlockingQueue<List<Checkpoint.Step>> work) throws IOException {
+		while (true) {
+			int message = in.readInt();
+			switch (message) {
+			case Coordinator.WORK:
+				int nbSteps = in.readInt();
+				List<Checkpoint.Step> steps = new ArrayList<Checkpoint.Step>(nbSteps);
+				for (int i = 0; i < nbSteps; i++) {
+					steps.add(Checkpoint.Step.read(in));
+				}
+				work.add(steps);
+				break;
+			case Coordinator.DONATE:
+				// only the depth first executor's stacks can be split
+				Checkpoint.Step donated = null;
+				if (executor instanceof DepthFirstExecutor) {
+					donated = ((DepthFirstExecutor) executor).donate();
+				}
+				synchronized (out) {
+					out.writeInt(Coordinator.DONATION);
+					if (donated == null) {
+						out.writeInt(0);
+					} else {
+						out.writeInt(1);
+						donated.write(out);
+					}
+					out.flush();
+				}
+				break;
+			case Coordinator.STOP:
+				work.add(STOP);
+				return;
+			default:
+				throw new IOException("unknown message " + message);
+			}
+		}
+	}
+
+	private static void sendLoad(DataOutputStream out, MiningExecutor executor) throws IOException {
+		// other executors can't donate, so they never look busy
+		long load = 0;
+		if (executor instanceof DepthFirstExecutor) {
+			load = ((DepthFirstExecutor) executor).getPendingExtensions();
+		}
+		synchronized (out) {
+			out.writeInt(Coordinator.LOAD);
+			out.writeLong(load);
+			out.flush();
+		}
+	}
+}
@@ -29,6 +29,7 @@ public class BreadthFirstExecutor implements MiningExecutor {
 	private final int nbThreads;
 	private int voteCount;
 	private boolean running;
+	private ExplorationSettings settings = ExplorationSettings.DEFAULT;
 
 	public BreadthFirstExecutor(int nbThreads) {
 		super();
@@ -36,9 +37,23 @@ public class BreadthFirstExecutor implements MiningExecutor {
 		this.voteCount = 0;
 	}
 
+	@Override
+	public void setExplorationSettings(ExplorationSettings settings) {
+		this.settings = settings;
+	}
+
+	@Override
+	public ExplorationSettings getExplorationSettings() {
+		return this.settings;
+	}
+
 	@Override
 	public void mine(Dataset d) {
-		MiningStep initState = new MiningStep(d);
+		this.mine(new MiningStep(d, this.settings));
+	}
+
+	@Override
+	public void mine(MiningStep initState) {
 		List<BreadthFirstThread> threads = new ArrayList<BreadthFirstThread>(this.nbThreads);
 		for (int id = 0; id < this.nbThreads; id++) {
 			threads.add(new BreadthFirstThread(id, this, threads));
@@ -23,6 +23,8 @@ package fr.liglab.consgap.executor;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import fr.liglab.consgap.monitor.MiningEvents;
+
 class BreadthFirstThread extends Thread {
 	private MiningStep runningJob;
 	private ConcurrentLinkedQueue<MiningStep> toDoJobs;
@@ -76,6 +78,7 @@ class BreadthFirstThread extends Thread {
 				}
 			}
 			// now there is nothing left to be done at this step
+			final Object endWait = MiningEvents.INSTANCE.beginBarrierWait();
 			synchronized (this.executor) {
 				if (this.executor.vote(!nextJobs.isEmpty())) {
 					try {
@@ -86,6 +89,7 @@ class BreadthFirstThread extends Thread {
 					}
 				}
 			}
+			MiningEvents.INSTANCE.endBarrierWait(endWait, this.id, "level end");
 			if (!this.executor.isRunning()) {
 				// System.err.println(this + " exiting");
 				return;
@@ -95,6 +99,7 @@ class BreadthFirstThread extends Thread {
 				this.toDoJobs = nextJobs;
 				nextJobs = swap;
 				// this.level++;
+				final Object startWait = MiningEvents.INSTANCE.beginBarrierWait();
 				synchronized (this.executor) {
 					if (this.executor.vote(true)) {
 						try {
@@ -107,6 +112,7 @@ class BreadthFirstThread extends Thread {
 						// System.err.println("starting level " + this.level);
 					}
 				}
+				MiningEvents.INSTANCE.endBarrierWait(startWait, this.id, "level start");
 			}
 		}
 
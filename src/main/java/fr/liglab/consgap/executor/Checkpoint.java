@@ -0,0 +1,282 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.dataset.AtomicItemSet;
+import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.Dataset.DeadEndException;
+import fr.liglab.consgap.dataset.Dataset.EmergingExpansionException;
+import fr.liglab.consgap.dataset.Dataset.EmergingParentException;
+import fr.liglab.consgap.dataset.Dataset.InfrequentException;
+
+/**
+ * Exploration frontier and results of a depth first run, saved as gzipped
+ * big-endian ints:
+ * 
+ * <pre>
+ * MAGIC, VERSION, signature (as in DataOutput.writeUTF)
+ * nbSteps, then for each step: sequence, extensions, extensionsIndex, denied extensions
+ * nbResults, then each collected sequence
+ * </pre>
+ * 
+ * Arrays are written as their length followed by their items. Steps only keep
+ * their sequence, their datasets are rebuilt on resume by expanding the root
+ * along it.
+ */
+public class Checkpoint {
+	private static final int MAGIC = 0x43534743;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// identifies the input and thresholds, a checkpoint can't be resumed
+	// with others
+	private final String signature;
+	private final List<Step> steps;
+	private final List<int[]> results;
+
+	/**
+	 * A step without its dataset, also used to send work to other workers
+	 */
+	public static final class Step {
+		final int[] sequence;
+		final int[] extensions;
+		final int extensionsIndex;
+		final int[] deniedExtensions;
+
+		Step(int[] sequence, int[] extensions, int extensionsIndex, int[] deniedExtensions) {
+			this.sequence = sequence;
+			this.extensions = extensions;
+			this.extensionsIndex = extensionsIndex;
+			this.deniedExtensions = deniedExtensions;
+		}
+
+		Step(MiningStep step) {
+			this(step.getSequence(), step.getExtensions(), step.getExtensionsIndex(), step.getDeniedExtensions());
+		}
+
+		public void write(DataOutput out) throws IOException {
+			writeArray(out, this.sequence);
+			writeArray(out, this.extensions);
+			out.writeInt(this.extensionsIndex);
+			writeArray(out, this.deniedExtensions);
+		}
+
+		public static Step read(DataInput in) throws IOException {
+			int[] sequence = readArray(in);
+			int[] extensions = readArray(in);
+			int extensionsIndex = in.readInt();
+			return new Step(sequence, extensions, extensionsIndex, readArray(in));
+		}
+	}
+
+	Checkpoint(String signature, List<Step> steps, List<int[]> results) {
+		this.signature = signature;
+		this.steps = steps;
+		this.results = results;
+	}
+
+	public String getSignature() {
+		return this.signature;
+	}
+
+	public int getNbSteps() {
+		return this.steps.size();
+	}
+
+	public int getNbResults() {
+		return this.results.size();
+	}
+
+	/**
+	 * Writes to a temporary file first, so that a crash while writing leaves
+	 * the previous checkpoint untouched
+	 */
+	public void write(File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+				new FileOutputStream(tmp), BUFFER_SIZE), BUFFER_SIZE));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(this.signature);
+			out.writeInt(this.steps.size());
+			for (Step step : this.steps) {
+				step.write(out);
+			}
+			out.writeInt(this.results.size());
+			for (int[] seq : this.results) {
+				writeArray(out, seq);
+			}
+		} finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static Checkpoint read(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(
+				file), BUFFER_SIZE), BUFFER_SIZE));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(file + " is not a checkpoint");
+			}
+			String signature = in.readUTF();
+			int nbSteps = in.readInt();
+			List<Step> steps = new ArrayList<Step>(nbSteps);
+			for (int i = 0; i < nbSteps; i++) {
+				steps.add(Step.read(in));
+			}
+			int nbResults = in.readInt();
+			List<int[]> results = new ArrayList<int[]>(nbResults);
+			for (int i = 0; i < nbResults; i++) {
+				results.add(readArray(in));
+			}
+			return new Checkpoint(signature, steps, results);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void writeArray(DataOutput out, int[] array) throws IOException {
+		out.writeInt(array.length);
+		for (int item : array) {
+			out.writeInt(item);
+		}
+	}
+
+	private static int[] readArray(DataInput in) throws IOException {
+		int[] array = new int[in.readInt()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = in.readInt();
+		}
+		return array;
+	}
+
+	/**
+	 * Gives the saved results back to the root's collector, then rebuilds the
+	 * saved steps by expanding the root along their sequences. Steps which
+	 * can't be rebuilt, because a restored result now prunes them, are
+	 * dropped.
+	 * 
+	 * @return the steps to explore, shorter sequences first
+	 */
+	List<MiningStep> restore(Dataset root, ExplorationSettings settings) {
+		ResultsCollector collector = root.getResultsCollector();
+		for (int[] seq : this.results) {
+			collector.collect(Arrays.copyOfRange(seq, 1, seq.length), seq[0]);
+		}
+		return replay(root, this.steps, settings);
+	}
+
+	/**
+	 * Rebuilds steps by expanding root along their sequences, dropping those
+	 * which can't be rebuilt
+	 * 
+	 * @return the rebuilt steps, shorter sequences first
+	 */
+	public static List<MiningStep> replay(Dataset root, List<Step> steps, ExplorationSettings settings) {
+		List<Step> sorted = new ArrayList<Step>(steps);
+		Collections.sort(sorted, new Comparator<Step>() {
+
+			@Override
+			public int compare(Step o1, Step o2) {
+				return o1.sequence.length - o2.sequence.length;
+			}
+		});
+		Map<SequenceKey, Dataset> replayed = new HashMap<SequenceKey, Dataset>();
+		List<MiningStep> restored = new ArrayList<MiningStep>(sorted.size());
+		for (Step step : sorted) {
+			Dataset dataset = replay(root, step.sequence, replayed);
+			if (dataset != null) {
+				restored.add(new MiningStep(dataset, step.extensions, step.extensionsIndex, step.deniedExtensions,
+						settings));
+			}
+		}
+		return restored;
+	}
+
+	// sequences grow by prepending, so the parent of a sequence is its suffix
+	private static Dataset replay(Dataset root, int[] sequence, Map<SequenceKey, Dataset> replayed) {
+		if (sequence.length == 0) {
+			return root;
+		}
+		SequenceKey key = new SequenceKey(sequence);
+		if (replayed.containsKey(key)) {
+			return replayed.get(key);
+		}
+		Dataset parent = replay(root, Arrays.copyOfRange(sequence, 1, sequence.length), replayed);
+		Dataset dataset = null;
+		if (parent != null) {
+			try {
+				// denied siblings are only an optimization, expanding without
+				// them gives a dataset that covers the saved extensions
+				dataset = parent.expand(sequence[0], new AtomicItemSet(0));
+			} catch (EmergingParentException | EmergingExpansionException | InfrequentException
+					| DeadEndException e) {
+			}
+		}
+		replayed.put(key, dataset);
+		return dataset;
+	}
+
+	private static final class SequenceKey {
+		private final int[] sequence;
+		private final int hash;
+
+		SequenceKey(int[] sequence) {
+			this.sequence = sequence;
+			this.hash = Arrays.hashCode(sequence);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof SequenceKey && Arrays.equals(this.sequence, ((SequenceKey) obj).sequence);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+/**
+ * Lets the checkpointer stop depth first threads between two steps. Threads
+ * only read a volatile flag on each step, and synchronize when it is set.
+ */
+final class CheckpointPause {
+	private volatile boolean requested = false;
+	// threads neither paused nor terminated
+	private int nbRunning;
+
+	CheckpointPause(int nbThreads) {
+		this.nbRunning = nbThreads;
+	}
+
+	boolean isRequested() {
+		return this.requested;
+	}
+
+	/**
+	 * Called by a mining thread between two steps once isRequested, returns
+	 * when the checkpoint is taken
+	 */
+	synchronized void pause() throws InterruptedException {
+		this.nbRunning--;
+		this.notifyAll();
+		while (this.requested) {
+			this.wait();
+		}
+		this.nbRunning++;
+	}
+
+	// called by a mining thread when it has nothing left to explore
+	synchronized void terminate() {
+		this.nbRunning--;
+		this.notifyAll();
+	}
+
+	/**
+	 * Called by the checkpointer, returns once every thread is paused or
+	 * terminated
+	 */
+	synchronized void request() throws InterruptedException {
+		this.requested = true;
+		while (this.nbRunning > 0) {
+			this.wait();
+		}
+	}
+
+	synchronized void release() {
+		this.requested = false;
+		this.notifyAll();
+	}
+}
@@ -20,28 +20,163 @@
 
 package fr.liglab.consgap.executor;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import fr.liglab.consgap.collector.CollectedResults;
 import fr.liglab.consgap.dataset.Dataset;
 
 public class DepthFirstExecutor implements MiningExecutor {
 	private final int nbThreads;
+	// threads are split in groups (typically one per NUMA node) and steal
+	// within their group first
+	private final int nbGroups;
+	// each group explores its share of the root extensions on its own copy of
+	// the root dataset
+	private final boolean replicateRoot;
+	// threads of the current or last run
+	private volatile List<DepthFirstThread> threads = new ArrayList<DepthFirstThread>(0);
+	// checkpointing is disabled unless checkpointFile is set
+	private File checkpointFile = null;
+	private long checkpointPeriod;
+	private String checkpointSignature;
+	private Checkpoint resumeFrom = null;
+	// pauses threads while taking a checkpoint, null when not checkpointing
+	private CheckpointPause checkpointPause = null;
+	private CollectedResults collected;
+	private ExplorationSettings settings = ExplorationSettings.DEFAULT;
 
 	public DepthFirstExecutor(int nbThreads) {
+		this(nbThreads, 1, false);
+	}
+
+	public DepthFirstExecutor(int nbThreads, int nbGroups, boolean replicateRoot) {
 		super();
 		this.nbThreads = nbThreads;
+		this.nbGroups = Math.max(1, Math.min(nbGroups, nbThreads));
+		this.replicateRoot = replicateRoot && this.nbGroups > 1;
+	}
+
+	/**
+	 * Saves the frontier and the collected results to file every period
+	 * seconds while mining, see Checkpoint
+	 * 
+	 * @param signature
+	 *            identifies the input and thresholds, resuming checks it
+	 * @param collected
+	 *            the collector of the mined dataset
+	 */
+	public void setCheckpointing(File file, long period, String signature, CollectedResults collected) {
+		this.collected = collected;
+		this.checkpointFile = file;
+		this.checkpointPeriod = period;
+		this.checkpointSignature = signature;
+	}
+
+	/**
+	 * The next call to mine continues the exploration saved in checkpoint
+	 * instead of starting from the root. The root dataset must have been
+	 * loaded with the same input and thresholds.
+	 */
+	public void setResume(Checkpoint checkpoint) {
+		this.resumeFrom = checkpoint;
+	}
+
+	@Override
+	public void setExplorationSettings(ExplorationSettings settings) {
+		this.settings = settings;
+	}
+
+	@Override
+	public ExplorationSettings getExplorationSettings() {
+		return this.settings;
 	}
 
 	@Override
 	public void mine(Dataset d) {
-		MiningStep initState = new MiningStep(d);
+		List<DepthFirstThread> threads = this.createThreads();
+		if (this.resumeFrom != null) {
+			List<MiningStep> steps = this.resumeFrom.restore(d, this.settings);
+			this.resumeFrom = null;
+			this.distribute(threads, steps);
+		} else if (this.replicateRoot) {
+			CyclicBarrier allRootsReady = new CyclicBarrier(this.nbThreads);
+			GroupRoot[] roots = new GroupRoot[this.nbGroups];
+			for (int g = 0; g < this.nbGroups; g++) {
+				roots[g] = new GroupRoot(d, g, this.nbGroups, this.settings);
+			}
+			int lastGroup = -1;
+			for (DepthFirstThread t : threads) {
+				// the first thread of each group builds its root
+				t.init(roots[t.getGroupId()], t.getGroupId() != lastGroup, allRootsReady);
+				lastGroup = t.getGroupId();
+			}
+		} else {
+			MiningStep initState = new MiningStep(d, this.settings);
+			for (DepthFirstThread t : threads) {
+				t.init(initState);
+			}
+		}
+		this.run(threads);
+	}
+
+	@Override
+	public void mine(MiningStep root) {
+		List<DepthFirstThread> threads = this.createThreads();
+		for (DepthFirstThread t : threads) {
+			t.init(root);
+		}
+		this.run(threads);
+	}
+
+	/**
+	 * Explores several steps at once, for example resumed or donated ones
+	 */
+	public void mine(List<MiningStep> steps) {
+		if (!steps.isEmpty()) {
+			List<DepthFirstThread> threads = this.createThreads();
+			this.distribute(threads, steps);
+			this.run(threads);
+		}
+	}
+
+	// steps should come shorter sequences first, so that each thread explores
+	// its deepest steps first
+	private void distribute(List<DepthFirstThread> threads, List<MiningStep> steps) {
+		for (int i = 0; i < steps.size(); i++) {
+			threads.get(i % this.nbThreads).init(steps.get(i));
+		}
+	}
+
+	private List<DepthFirstThread> createThreads() {
 		List<DepthFirstThread> threads = new ArrayList<DepthFirstThread>(this.nbThreads);
 		for (int id = 0; id < this.nbThreads; id++) {
-			threads.add(new DepthFirstThread(id, threads));
+			threads.add(new DepthFirstThread(id, id * this.nbGroups / this.nbThreads, threads));
+		}
+		return threads;
+	}
+
+	private void run(List<DepthFirstThread> threads) {
+		this.threads = threads;
+		ScheduledExecutorService checkpointer = null;
+		if (this.checkpointFile != null) {
+			this.checkpointPause = new CheckpointPause(threads.size());
+			for (DepthFirstThread t : threads) {
+				t.setCheckpointPause(this.checkpointPause);
+			}
+			checkpointer = this.startCheckpointer();
 		}
 		for (DepthFirstThread t : threads) {
-			t.init(initState);
 			t.start();
 		}
 		for (DepthFirstThread t : threads) {
@@ -51,6 +186,131 @@ public class DepthFirstExecutor implements MiningExecutor {
 				throw new RuntimeException(e);
 			}
 		}
+		if (checkpointer != null) {
+			checkpointer.shutdown();
+			try {
+				checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private ScheduledExecutorService startCheckpointer() {
+		ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Checkpointer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		checkpointer.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					long start = System.currentTimeMillis();
+					Checkpoint checkpoint = checkpoint();
+					checkpoint.write(checkpointFile);
+					System.err.println("checkpoint: " + checkpoint.getNbSteps() + " steps and "
+							+ checkpoint.getNbResults() + " results saved in "
+							+ (System.currentTimeMillis() - start) + " ms");
+				} catch (IOException e) {
+					System.err.println("could not write checkpoint " + checkpointFile + ": " + e);
+				}
+			}
+		}, this.checkpointPeriod, this.checkpointPeriod, TimeUnit.SECONDS);
+		return checkpointer;
+	}
+
+	/**
+	 * Pauses mining threads between two steps, then copies their stacks and
+	 * the collected results
+	 */
+	private Checkpoint checkpoint() {
+		try {
+			this.checkpointPause.request();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		try {
+			// thieves also stack the steps they stole from
+			Set<MiningStep> seen = Collections.newSetFromMap(new IdentityHashMap<MiningStep, Boolean>());
+			List<Checkpoint.Step> steps = new ArrayList<Checkpoint.Step>();
+			for (DepthFirstThread t : this.threads) {
+				for (MiningStep step : t.getStackedJobs()) {
+					if (seen.add(step) && step.getExtensionsIndex() < step.getExtensions().length) {
+						steps.add(new Checkpoint.Step(step));
+					}
+				}
+			}
+			List<int[]> results = new ArrayList<int[]>(this.collected.getNbCollected());
+			this.collected.getCollected(results);
+			return new Checkpoint(this.checkpointSignature, steps, results);
+		} finally {
+			this.checkpointPause.release();
+		}
+	}
+
+	// the following can be called while mining, to monitor progress
+
+	public long getLocalSteals() {
+		long steals = 0;
+		for (DepthFirstThread t : this.threads) {
+			steals += t.getLocalSteals();
+		}
+		return steals;
+	}
+
+	public long getRemoteSteals() {
+		long steals = 0;
+		for (DepthFirstThread t : this.threads) {
+			steals += t.getRemoteSteals();
+		}
+		return steals;
+	}
+
+	public long getStealAttempts() {
+		long attempts = 0;
+		for (DepthFirstThread t : this.threads) {
+			attempts += t.getStealAttempts();
+		}
+		return attempts;
+	}
+
+	/**
+	 * Splits a step from the bottom of a thread's stack, so that another
+	 * worker can explore half of its unexplored extensions
+	 * 
+	 * @return null if there is nothing left to give
+	 */
+	public Checkpoint.Step donate() {
+		for (DepthFirstThread t : this.threads) {
+			Checkpoint.Step donated = t.donate();
+			if (donated != null) {
+				return donated;
+			}
+		}
+		return null;
+	}
+
+	public long getPendingExtensions() {
+		long pending = 0;
+		for (DepthFirstThread t : this.threads) {
+			pending += t.getPendingExtensions();
+		}
+		return pending;
+	}
+
+	public int[] getStackSizes() {
+		List<DepthFirstThread> current = this.threads;
+		int[] sizes = new int[current.size()];
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = current.get(i).getStackSize();
+		}
+		return sizes;
 	}
 
 }
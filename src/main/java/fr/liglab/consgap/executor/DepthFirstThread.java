@@ -22,20 +22,36 @@ package fr.liglab.consgap.executor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import fr.liglab.consgap.monitor.MiningEvents;
+
 class DepthFirstThread extends Thread {
 	private final ReadWriteLock lock;
 	private final List<MiningStep> stackedJobs;
 	private final int id;
+	private final int groupId;
 	private final List<DepthFirstThread> threads;
+	private GroupRoot groupRoot;
+	private boolean buildsGroupRoot;
+	private CyclicBarrier allRootsReady;
+	// when checkpointing, checked between steps so that a checkpoint never
+	// sees a step that is being expanded
+	private CheckpointPause checkpointPause;
+	// only written by this thread, volatile for progress monitoring
+	private volatile long stealAttempts;
+	private volatile long localSteals;
+	private volatile long remoteSteals;
 
-	public DepthFirstThread(final int id, List<DepthFirstThread> threads) {
+	public DepthFirstThread(final int id, final int groupId, List<DepthFirstThread> threads) {
 		super("MiningThread" + id);
 		this.threads = threads;
 		this.stackedJobs = new ArrayList<MiningStep>();
 		this.id = id;
+		this.groupId = groupId;
 		this.lock = new ReentrantReadWriteLock();
 	}
 
@@ -43,6 +59,81 @@ class DepthFirstThread extends Thread {
 		this.stackedJobs.add(initState);
 	}
 
+	// the root is only known once the thread runs, so every thread waits
+	// until all are initialized, otherwise they could find nothing to steal
+	// and exit
+	public void init(GroupRoot groupRoot, boolean buildsGroupRoot, CyclicBarrier allRootsReady) {
+		this.groupRoot = groupRoot;
+		this.buildsGroupRoot = buildsGroupRoot;
+		this.allRootsReady = allRootsReady;
+	}
+
+	void setCheckpointPause(CheckpointPause checkpointPause) {
+		this.checkpointPause = checkpointPause;
+	}
+
+	// only consistent while threads are paused for a checkpoint
+	List<MiningStep> getStackedJobs() {
+		return this.stackedJobs;
+	}
+
+	/**
+	 * Gives away half of the unexplored extensions of the lowest step of our
+	 * stack which has some, like a thief would take them
+	 * 
+	 * @return null if there was nothing left to give
+	 */
+	Checkpoint.Step donate() {
+		this.lock.readLock().lock();
+		try {
+			for (MiningStep step : this.stackedJobs) {
+				int[] donated = step.donate();
+				if (donated != null) {
+					return new Checkpoint.Step(step.getSequence(), donated, 0, step.getDeniedExtensions());
+				}
+			}
+			return null;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	// number of extensions left in the steps of our stack, including those
+	// we share with thieves
+	long getPendingExtensions() {
+		long pending = 0;
+		this.lock.readLock().lock();
+		try {
+			for (MiningStep step : this.stackedJobs) {
+				pending += step.getExtensions().length - step.getExtensionsIndex();
+			}
+		} finally {
+			this.lock.readLock().unlock();
+		}
+		return pending;
+	}
+
+	public int getGroupId() {
+		return this.groupId;
+	}
+
+	public long getStealAttempts() {
+		return this.stealAttempts;
+	}
+
+	// approximate as it's read without locking
+	public int getStackSize() {
+		return this.stackedJobs.size();
+	}
+
+	public long getLocalSteals() {
+		return this.localSteals;
+	}
+
+	public long getRemoteSteals() {
+		return this.remoteSteals;
+	}
+
 	@Override
 	public long getId() {
 		return this.id;
@@ -50,36 +141,62 @@ class DepthFirstThread extends Thread {
 
 	@Override
 	public void run() {
-		// no need to readlock, this thread is the only one that can do
-		// writes
+		if (this.groupRoot != null) {
+			try {
+				if (this.buildsGroupRoot) {
+					this.groupRoot.build();
+				}
+				this.queueTask(this.groupRoot.get());
+				this.allRootsReady.await();
+			} catch (InterruptedException | BrokenBarrierException e) {
+				throw new RuntimeException(e);
+			}
+		}
 		boolean exit = false;
 		while (!exit) {
-			MiningStep sj = null;
-			if (!this.stackedJobs.isEmpty()) {
-				sj = this.stackedJobs.get(this.stackedJobs.size() - 1);
-				MiningStep extended = sj.next();
-				// iterator is finished, remove it from the stack
-				if (extended == null) {
-					this.lock.writeLock().lock();
-					this.stackedJobs.remove(this.stackedJobs.size() - 1);
-					this.lock.writeLock().unlock();
-				} else {
-					this.queueTask(extended);
-				}
-
-			} else { // our list was empty, we should steal from another
-						// thread
-				MiningStep stolj = stealJob();
-				if (stolj == null) {
-					exit = true;
-				} else {
-					queueTask(stolj);
+			if (this.checkpointPause != null && this.checkpointPause.isRequested()) {
+				try {
+					this.checkpointPause.pause();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
 				}
 			}
+			exit = this.step();
+		}
+		if (this.checkpointPause != null) {
+			this.checkpointPause.terminate();
 		}
 		// System.out.println(this + " terminated");
 	}
 
+	// @return true when there is nothing left to explore
+	private boolean step() {
+		// no need to readlock, this thread is the only one that can do
+		// writes
+		if (!this.stackedJobs.isEmpty()) {
+			MiningStep sj = this.stackedJobs.get(this.stackedJobs.size() - 1);
+			MiningStep extended = sj.next();
+			// iterator is finished, remove it from the stack
+			if (extended == null) {
+				this.lock.writeLock().lock();
+				this.stackedJobs.remove(this.stackedJobs.size() - 1);
+				this.lock.writeLock().unlock();
+			} else {
+				this.queueTask(extended);
+			}
+			return false;
+		} else { // our list was empty, we should steal from another
+					// thread
+			MiningStep stolj = stealJob();
+			if (stolj == null) {
+				return true;
+			} else {
+				queueTask(stolj);
+				return false;
+			}
+		}
+	}
+
 	private void queueTask(MiningStep state) {
 		this.lock.writeLock().lock();
 		this.stackedJobs.add(state);
@@ -88,10 +205,26 @@ class DepthFirstThread extends Thread {
 
 	private MiningStep stealJob() {
 		// here we need to readlock because the owner thread can write
+		// victims from our group come first, they work on data allocated
+		// close to us
+		this.stealAttempts++;
+		final Object event = MiningEvents.INSTANCE.beginSteal();
+		for (DepthFirstThread victim : this.threads) {
+			if (victim != this && victim.groupId == this.groupId) {
+				MiningStep e = this.stealJob(victim);
+				if (e != null) {
+					this.localSteals++;
+					MiningEvents.INSTANCE.endSteal(event, this.id, victim.id, true, e.getLevel());
+					return e;
+				}
+			}
+		}
 		for (DepthFirstThread victim : this.threads) {
-			if (victim != this) {
+			if (victim.groupId != this.groupId) {
 				MiningStep e = this.stealJob(victim);
 				if (e != null) {
+					this.remoteSteals++;
+					MiningEvents.INSTANCE.endSteal(event, this.id, victim.id, false, e.getLevel());
 					return e;
 				}
 			}
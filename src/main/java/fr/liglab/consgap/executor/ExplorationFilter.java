@@ -0,0 +1,38 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+import fr.liglab.consgap.dataset.Dataset;
+
+/**
+ * Decides which expansions are actually tried, the others being known to lead
+ * to the same results as in a previous run
+ */
+public interface ExplorationFilter {
+
+	/**
+	 * Called concurrently by mining threads
+	 * 
+	 * @return false if expanding parent with extension would only find
+	 *         sequences collected already
+	 */
+	public boolean explore(Dataset parent, int extension);
+}
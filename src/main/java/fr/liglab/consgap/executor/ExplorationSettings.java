@@ -0,0 +1,45 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+/**
+ * Options of a mining run that change how steps are expanded. A root
+ * MiningStep gets them from its executor and its children inherit them, so
+ * that runs sharing the JVM don't see each other's settings.
+ */
+public class ExplorationSettings {
+	public static final ExplorationSettings DEFAULT = new ExplorationSettings(null, true, null);
+
+	// null unless profiling
+	final SearchProfiler profiler;
+	// when disabled, extensions emerging for a step are still tried on its
+	// children, so that all emerging sequences above the thresholds are
+	// reached and not only those which can be minimal
+	final boolean siblingsPruning;
+	// null unless some subtrees don't need to be explored again
+	final ExplorationFilter explorationFilter;
+
+	public ExplorationSettings(SearchProfiler profiler, boolean siblingsPruning, ExplorationFilter explorationFilter) {
+		this.profiler = profiler;
+		this.siblingsPruning = siblingsPruning;
+		this.explorationFilter = explorationFilter;
+	}
+}
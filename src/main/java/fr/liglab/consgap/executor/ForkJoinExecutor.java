@@ -0,0 +1,80 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+import java.util.concurrent.ForkJoinPool;
+
+import fr.liglab.consgap.dataset.Dataset;
+
+/**
+ * Explores the mining tree with fork/join tasks: each node whose step has at
+ * least forkThreshold extensions is forked as its own subtree task, smaller
+ * ones are explored inline by the worker that generated them. A node only
+ * completes once all the subtrees it forked are done. A worker blocking in a
+ * collector or on I/O is lost to the pool meanwhile, see VirtualThreadExecutor
+ * for an executor which isn't affected.
+ */
+public class ForkJoinExecutor implements MiningExecutor {
+	private final int nbThreads;
+	private final int forkThreshold;
+	// pool of the current or last run
+	private volatile ForkJoinPool pool = null;
+	private ExplorationSettings settings = ExplorationSettings.DEFAULT;
+
+	public ForkJoinExecutor(int nbThreads, int forkThreshold) {
+		super();
+		this.nbThreads = nbThreads;
+		this.forkThreshold = forkThreshold;
+	}
+
+	@Override
+	public void setExplorationSettings(ExplorationSettings settings) {
+		this.settings = settings;
+	}
+
+	@Override
+	public ExplorationSettings getExplorationSettings() {
+		return this.settings;
+	}
+
+	@Override
+	public void mine(Dataset d) {
+		this.mine(new MiningStep(d, this.settings));
+	}
+
+	@Override
+	public void mine(MiningStep initState) {
+		ForkJoinPool pool = new ForkJoinPool(this.nbThreads);
+		this.pool = pool;
+		try {
+			pool.invoke(new SubtreeTask(initState, this.forkThreshold));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// can be called while mining, to monitor progress
+	public long getStealCount() {
+		ForkJoinPool current = this.pool;
+		return current == null ? 0 : current.getStealCount();
+	}
+
+}
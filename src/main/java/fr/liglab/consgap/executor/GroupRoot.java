@@ -0,0 +1,67 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+import java.util.concurrent.CountDownLatch;
+
+import fr.liglab.consgap.dataset.Dataset;
+
+/**
+ * Root step of a threads group, exploring its share of the root extensions on
+ * its own copy of the root dataset. The copy is made by one of the group's
+ * threads so that, with -XX:+UseNUMA, it gets allocated on that thread's node.
+ */
+class GroupRoot {
+	private final Dataset original;
+	private final int group;
+	private final int nbGroups;
+	private final ExplorationSettings settings;
+	private final CountDownLatch ready;
+	private MiningStep step;
+
+	public GroupRoot(Dataset original, int group, int nbGroups, ExplorationSettings settings) {
+		this.original = original;
+		this.group = group;
+		this.nbGroups = nbGroups;
+		this.settings = settings;
+		this.ready = new CountDownLatch(1);
+	}
+
+	// must be called by exactly one thread of the group
+	public void build() {
+		try {
+			Dataset d;
+			if (this.group == 0) {
+				d = this.original;
+			} else {
+				d = this.original.replicate();
+			}
+			this.step = new MiningStep(d, this.group, this.nbGroups, this.settings);
+		} finally {
+			this.ready.countDown();
+		}
+	}
+
+	public MiningStep get() throws InterruptedException {
+		this.ready.await();
+		return this.step;
+	}
+}
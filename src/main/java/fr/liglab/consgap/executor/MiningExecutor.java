@@ -23,5 +23,19 @@ package fr.liglab.consgap.executor;
 import fr.liglab.consgap.dataset.Dataset;
 
 public interface MiningExecutor {
+	/**
+	 * Settings given to the root steps built by mine(Dataset),
+	 * ExplorationSettings.DEFAULT unless set
+	 */
+	public void setExplorationSettings(ExplorationSettings settings);
+
+	public ExplorationSettings getExplorationSettings();
+
 	public void mine(Dataset d);
+
+	/**
+	 * Only explores the subtree of root, for example a MiningStep built with
+	 * a part of the root extensions
+	 */
+	public void mine(MiningStep root);
 }
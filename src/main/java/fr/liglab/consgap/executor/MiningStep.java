@@ -24,56 +24,206 @@ import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import fr.liglab.consgap.dataset.AtomicItemSet;
 import fr.liglab.consgap.dataset.Dataset;
 import fr.liglab.consgap.dataset.Dataset.DeadEndException;
 import fr.liglab.consgap.dataset.Dataset.EmergingExpansionException;
 import fr.liglab.consgap.dataset.Dataset.EmergingParentException;
 import fr.liglab.consgap.dataset.Dataset.InfrequentException;
-import gnu.trove.set.TIntSet;
-import gnu.trove.set.hash.TIntHashSet;
+import fr.liglab.consgap.executor.SearchProfiler.Outcome;
+import fr.liglab.consgap.monitor.MiningEvents;
 
 public class MiningStep {
 	static final public AtomicLong loopCounts = new AtomicLong();
+	// length of the longest sequence expanded so far
+	static final public AtomicInteger maxLevel = new AtomicInteger();
+	final private ExplorationSettings settings;
 	final private Dataset dataset;
 	final private AtomicInteger extensionsIndex;
 	final private int[] extensions;
-	final private TIntSet deniedSiblingsExtensions;
+	final private AtomicItemSet deniedSiblingsExtensions;
 
 	public MiningStep(Dataset dataset) {
+		this(dataset, ExplorationSettings.DEFAULT);
+	}
+
+	public MiningStep(Dataset dataset, ExplorationSettings settings) {
+		this.settings = settings;
 		this.dataset = dataset;
 		this.extensions = dataset.getExtensions();
 		Arrays.sort(this.extensions);
 		this.extensionsIndex = new AtomicInteger();
-		this.deniedSiblingsExtensions = new TIntHashSet();
+		this.deniedSiblingsExtensions = newDeniedSet(this.extensions);
+	}
+
+	// only explores the sorted extensions at positions part, part + nbParts,
+	// part + 2 * nbParts ...
+	public MiningStep(Dataset dataset, int part, int nbParts) {
+		this(dataset, part, nbParts, ExplorationSettings.DEFAULT);
+	}
+
+	public MiningStep(Dataset dataset, int part, int nbParts, ExplorationSettings settings) {
+		this.settings = settings;
+		this.dataset = dataset;
+		int[] allExtensions = dataset.getExtensions();
+		Arrays.sort(allExtensions);
+		this.extensions = new int[Math.max(0, (allExtensions.length - part + nbParts - 1) / nbParts)];
+		for (int i = 0; i < this.extensions.length; i++) {
+			this.extensions[i] = allExtensions[part + i * nbParts];
+		}
+		this.extensionsIndex = new AtomicInteger();
+		this.deniedSiblingsExtensions = newDeniedSet(this.extensions);
+	}
+
+	// resumes a step saved in a checkpoint or donated by another worker,
+	// extensions must be sorted, denied extensions may not be among them
+	MiningStep(Dataset dataset, int[] extensions, int extensionsIndex, int[] deniedExtensions,
+			ExplorationSettings settings) {
+		this.settings = settings;
+		this.dataset = dataset;
+		this.extensions = extensions;
+		this.extensionsIndex = new AtomicInteger(extensionsIndex);
+		int capacity = extensions.length == 0 ? 0 : extensions[extensions.length - 1] + 1;
+		for (int denied : deniedExtensions) {
+			capacity = Math.max(capacity, denied + 1);
+		}
+		this.deniedSiblingsExtensions = new AtomicItemSet(capacity);
+		for (int denied : deniedExtensions) {
+			this.deniedSiblingsExtensions.add(denied);
+		}
 	}
 
 	public MiningStep next() {
 		for (int index = this.extensionsIndex.getAndIncrement(); index < extensions.length; index = this.extensionsIndex
 				.getAndIncrement()) {
-			loopCounts.incrementAndGet();
 			final int extension = extensions[index];
+			if (this.settings.explorationFilter != null
+					&& !this.settings.explorationFilter.explore(this.dataset, extension)) {
+				continue;
+			}
+			loopCounts.incrementAndGet();
 			Dataset extDataset = null;
 			try {
-				extDataset = this.dataset.expand(extension, deniedSiblingsExtensions);
+				extDataset = this.expand(extension);
 			} catch (EmergingParentException e) {
 				return null;
 			} catch (EmergingExpansionException e) {
-				synchronized (deniedSiblingsExtensions) {
+				if (this.settings.siblingsPruning) {
 					deniedSiblingsExtensions.add(extension);
 				}
 			} catch (DeadEndException | InfrequentException e) {
 			}
 			if (extDataset != null) {
+				final int level = extDataset.getSequence().length;
+				int currentMax = maxLevel.get();
+				while (level > currentMax && !maxLevel.compareAndSet(currentMax, level)) {
+					currentMax = maxLevel.get();
+				}
 				// if (extDataset.getSequence().length > 3) {
-				// mineInThread(extDataset);
+				// mineInThread(extDataset, this.settings);
 				// } else {
-				return new MiningStep(extDataset);
+				return new MiningStep(extDataset, this.settings);
 				// }
 			}
 		}
 		return null;
 	}
 
+	private Dataset expand(int extension) throws EmergingParentException, EmergingExpansionException,
+			InfrequentException, DeadEndException {
+		final Object event = MiningEvents.INSTANCE.beginExpand();
+		final SearchProfiler profiler = this.settings.profiler;
+		if (profiler == null && event == null) {
+			return this.dataset.expand(extension, this.deniedSiblingsExtensions);
+		}
+		final int depth = this.dataset.getSequence().length + 1;
+		if (profiler != null) {
+			profiler.begin();
+		}
+		try {
+			Dataset expanded = this.dataset.expand(extension, this.deniedSiblingsExtensions);
+			if (profiler != null) {
+				profiler.end(depth, expanded);
+			}
+			MiningEvents.INSTANCE.endExpand(event, depth, extension, Outcome.EXPANDED.name());
+			return expanded;
+		} catch (EmergingParentException e) {
+			this.expandFailed(event, depth, extension, Outcome.EMERGING_PARENT);
+			throw e;
+		} catch (EmergingExpansionException e) {
+			this.expandFailed(event, depth, extension, Outcome.EMERGING_EXPANSION);
+			throw e;
+		} catch (InfrequentException e) {
+			this.expandFailed(event, depth, extension, Outcome.INFREQUENT);
+			throw e;
+		} catch (DeadEndException e) {
+			this.expandFailed(event, depth, extension, Outcome.DEAD_END);
+			throw e;
+		}
+	}
+
+	private void expandFailed(Object event, int depth, int extension, Outcome outcome) {
+		if (this.settings.profiler != null) {
+			this.settings.profiler.end(depth, outcome);
+		}
+		MiningEvents.INSTANCE.endExpand(event, depth, extension, outcome.name());
+	}
+
+	Dataset getDataset() {
+		return this.dataset;
+	}
+
+	int[] getSequence() {
+		return this.dataset.getSequence();
+	}
+
+	int[] getExtensions() {
+		return this.extensions;
+	}
+
+	// index of the next extension to explore, extensions.length once they
+	// have all been claimed
+	int getExtensionsIndex() {
+		return Math.min(this.extensionsIndex.get(), this.extensions.length);
+	}
+
+	/**
+	 * Claims the first half (rounded up) of the unexplored extensions, so that
+	 * another worker explores them
+	 * 
+	 * @return the claimed extensions, null if there is none left
+	 */
+	int[] donate() {
+		int index;
+		int nbDonated;
+		do {
+			index = this.extensionsIndex.get();
+			int remaining = this.extensions.length - index;
+			if (remaining <= 0) {
+				return null;
+			}
+			nbDonated = (remaining + 1) / 2;
+		} while (!this.extensionsIndex.compareAndSet(index, index + nbDonated));
+		return Arrays.copyOfRange(this.extensions, index, index + nbDonated);
+	}
+
+	// siblings may deny more extensions meanwhile, so they're read only once
+	int[] getDeniedExtensions() {
+		int[] denied = new int[this.extensions.length];
+		int nbDenied = 0;
+		for (int extension : this.extensions) {
+			if (this.deniedSiblingsExtensions.contains(extension)) {
+				denied[nbDenied] = extension;
+				nbDenied++;
+			}
+		}
+		return Arrays.copyOf(denied, nbDenied);
+	}
+
+	public int getNbExtensions() {
+		return this.extensions.length;
+	}
+
 	public int getLevel() {
 		return this.dataset.getSequence().length;
 	}
@@ -84,26 +234,38 @@ public class MiningStep {
 				+ this.extensions.length;
 	}
 
-	private static void mineInThread(Dataset dataset) {
+	// extensions must be sorted
+	private static AtomicItemSet newDeniedSet(int[] extensions) {
+		if (extensions.length == 0) {
+			return new AtomicItemSet(0);
+		} else {
+			return new AtomicItemSet(extensions[extensions.length - 1] + 1);
+		}
+	}
+
+	private static void mineInThread(Dataset dataset, ExplorationSettings settings) {
 		final int[] extensions = dataset.getExtensions();
 		Arrays.sort(extensions);
-		final TIntSet deniedSiblingsExtensions = new TIntHashSet();
+		final AtomicItemSet deniedSiblingsExtensions = newDeniedSet(extensions);
 		for (int index = 0; index < extensions.length; index++) {
-			loopCounts.incrementAndGet();
 			final int extension = extensions[index];
+			if (settings.explorationFilter != null && !settings.explorationFilter.explore(dataset, extension)) {
+				continue;
+			}
+			loopCounts.incrementAndGet();
 			Dataset extDataset = null;
 			try {
 				extDataset = dataset.expand(extension, deniedSiblingsExtensions);
 			} catch (EmergingParentException e) {
 				return;
 			} catch (EmergingExpansionException e) {
-				synchronized (deniedSiblingsExtensions) {
+				if (settings.siblingsPruning) {
 					deniedSiblingsExtensions.add(extension);
 				}
 			} catch (DeadEndException | InfrequentException e) {
 			}
 			if (extDataset != null) {
-				mineInThread(extDataset);
+				mineInThread(extDataset, settings);
 			}
 		}
 	}
@@ -0,0 +1,216 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.liglab.consgap.dataset.Dataset;
+
+/**
+ * Statistics of the search tree by depth, the length of expanded sequences:
+ * number of expansions and their outcomes, average supports of the successful
+ * ones, time and bytes allocated while expanding. Each thread records in its
+ * own tables, which are merged when writing the report.
+ */
+public final class SearchProfiler {
+	public static enum Outcome {
+		EXPANDED, INFREQUENT, DEAD_END, EMERGING_EXPANSION, EMERGING_PARENT
+	}
+
+	private static final Outcome[] OUTCOMES = Outcome.values();
+
+	private final List<ThreadStats> allStats;
+	private final ThreadLocal<ThreadStats> localStats;
+	// null if the JVM can't count allocated bytes per thread
+	private final com.sun.management.ThreadMXBean allocations;
+
+	public SearchProfiler() {
+		this.allStats = new ArrayList<ThreadStats>();
+		this.localStats = new ThreadLocal<ThreadStats>() {
+			@Override
+			protected ThreadStats initialValue() {
+				ThreadStats stats = new ThreadStats();
+				synchronized (allStats) {
+					allStats.add(stats);
+				}
+				return stats;
+			}
+		};
+		this.allocations = currentThreadAllocations();
+	}
+
+	// mining threads override getId, so we can only count allocations of the
+	// current thread, which needs Java 14
+	private static com.sun.management.ThreadMXBean currentThreadAllocations() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+			try {
+				allocations.setThreadAllocatedMemoryEnabled(true);
+				allocations.getCurrentThreadAllocatedBytes();
+				return allocations;
+			} catch (NoSuchMethodError e) {
+			}
+		}
+		return null;
+	}
+
+	// call before each expansion, then one of the end methods
+	void begin() {
+		ThreadStats stats = this.localStats.get();
+		stats.startBytes = this.allocatedBytes();
+		stats.startTime = System.nanoTime();
+	}
+
+	void end(int depth, Dataset expanded) {
+		ThreadStats stats = this.end(depth, Outcome.EXPANDED);
+		stats.posSupports[depth] += expanded.getPositiveSupport();
+		stats.negSupports[depth] += expanded.getNegativeSupport();
+	}
+
+	ThreadStats end(int depth, Outcome outcome) {
+		final long time = System.nanoTime();
+		ThreadStats stats = this.localStats.get();
+		stats.ensureDepth(depth);
+		stats.nanos[depth] += time - stats.startTime;
+		stats.bytes[depth] += this.allocatedBytes() - stats.startBytes;
+		stats.outcomes[depth][outcome.ordinal()]++;
+		return stats;
+	}
+
+	private long allocatedBytes() {
+		if (this.allocations == null) {
+			return 0;
+		} else {
+			return this.allocations.getCurrentThreadAllocatedBytes();
+		}
+	}
+
+	/**
+	 * Writes the report as JSON if the file name ends with .json, as CSV
+	 * otherwise. Only call once mining is over.
+	 */
+	public void writeReport(File output) throws IOException {
+		ThreadStats merged = new ThreadStats();
+		synchronized (this.allStats) {
+			for (ThreadStats stats : this.allStats) {
+				merged.add(stats);
+			}
+		}
+		final boolean json = output.getName().endsWith(".json");
+		PrintWriter pw = new PrintWriter(output, "UTF-8");
+		if (json) {
+			pw.println("{\"allocationsCounted\": " + (this.allocations != null) + ", \"depths\": [");
+		} else {
+			StringBuilder header = new StringBuilder("depth,expansions");
+			for (Outcome o : OUTCOMES) {
+				header.append(',').append(o.name().toLowerCase());
+			}
+			header.append(",avg_pos_support,avg_neg_support,expand_ms,avg_expand_us,alloc_bytes,avg_alloc_bytes");
+			pw.println(header);
+		}
+		for (int depth = 1; depth <= merged.maxDepth; depth++) {
+			long expansions = 0;
+			for (long count : merged.outcomes[depth]) {
+				expansions += count;
+			}
+			final long expanded = merged.outcomes[depth][Outcome.EXPANDED.ordinal()];
+			final double avgPos = expanded == 0 ? 0. : (double) merged.posSupports[depth] / expanded;
+			final double avgNeg = expanded == 0 ? 0. : (double) merged.negSupports[depth] / expanded;
+			final double expandMs = merged.nanos[depth] / 1e6;
+			final double avgExpandUs = expansions == 0 ? 0. : merged.nanos[depth] / 1e3 / expansions;
+			final double avgBytes = expansions == 0 ? 0. : (double) merged.bytes[depth] / expansions;
+			if (json) {
+				pw.print("  {\"depth\": " + depth + ", \"expansions\": " + expansions);
+				for (Outcome o : OUTCOMES) {
+					pw.print(", \"" + o.name().toLowerCase() + "\": " + merged.outcomes[depth][o.ordinal()]);
+				}
+				pw.print(", \"avgPosSupport\": " + avgPos + ", \"avgNegSupport\": " + avgNeg + ", \"expandMs\": "
+						+ expandMs + ", \"avgExpandUs\": " + avgExpandUs + ", \"allocBytes\": "
+						+ merged.bytes[depth] + ", \"avgAllocBytes\": " + avgBytes + "}");
+				pw.println(depth == merged.maxDepth ? "" : ",");
+			} else {
+				pw.print(depth + "," + expansions);
+				for (Outcome o : OUTCOMES) {
+					pw.print("," + merged.outcomes[depth][o.ordinal()]);
+				}
+				pw.println("," + avgPos + "," + avgNeg + "," + expandMs + "," + avgExpandUs + "," + merged.bytes[depth]
+						+ "," + avgBytes);
+			}
+		}
+		if (json) {
+			pw.println("]}");
+		}
+		pw.close();
+	}
+
+	// tables indexed by depth, only touched by their thread until merged
+	private static final class ThreadStats {
+		private long startTime;
+		private long startBytes;
+		private int maxDepth = 0;
+		private long[][] outcomes = new long[0][];
+		private long[] posSupports = new long[0];
+		private long[] negSupports = new long[0];
+		private long[] nanos = new long[0];
+		private long[] bytes = new long[0];
+
+		private void ensureDepth(int depth) {
+			this.maxDepth = Math.max(this.maxDepth, depth);
+			if (depth >= this.nanos.length) {
+				final int oldLength = this.nanos.length;
+				final int length = Math.max(depth + 1, oldLength << 1);
+				this.outcomes = Arrays.copyOf(this.outcomes, length);
+				for (int i = oldLength; i < length; i++) {
+					this.outcomes[i] = new long[OUTCOMES.length];
+				}
+				this.posSupports = Arrays.copyOf(this.posSupports, length);
+				this.negSupports = Arrays.copyOf(this.negSupports, length);
+				this.nanos = Arrays.copyOf(this.nanos, length);
+				this.bytes = Arrays.copyOf(this.bytes, length);
+			}
+		}
+
+		private void add(ThreadStats other) {
+			if (other.nanos.length == 0) {
+				return;
+			}
+			this.ensureDepth(other.maxDepth);
+			for (int depth = 0; depth <= other.maxDepth; depth++) {
+				for (int o = 0; o < OUTCOMES.length; o++) {
+					this.outcomes[depth][o] += other.outcomes[depth][o];
+				}
+				this.posSupports[depth] += other.posSupports[depth];
+				this.negSupports[depth] += other.negSupports[depth];
+				this.nanos[depth] += other.nanos[depth];
+				this.bytes[depth] += other.bytes[depth];
+			}
+		}
+	}
+}
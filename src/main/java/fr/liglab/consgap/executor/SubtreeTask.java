@@ -0,0 +1,63 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+class SubtreeTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	private final MiningStep step;
+	private final int forkThreshold;
+
+	public SubtreeTask(MiningStep step, int forkThreshold) {
+		this.step = step;
+		this.forkThreshold = forkThreshold;
+	}
+
+	@Override
+	protected void compute() {
+		List<SubtreeTask> forked = new ArrayList<SubtreeTask>();
+		MiningStep next;
+		while ((next = this.step.next()) != null) {
+			if (next.getNbExtensions() >= this.forkThreshold) {
+				SubtreeTask subtree = new SubtreeTask(next, this.forkThreshold);
+				subtree.fork();
+				forked.add(subtree);
+			} else {
+				mineInline(next);
+			}
+		}
+		// the scope of this node closes once every forked subtree is done
+		for (SubtreeTask subtree : forked) {
+			subtree.join();
+		}
+	}
+
+	private static void mineInline(MiningStep step) {
+		MiningStep next;
+		while ((next = step.next()) != null) {
+			mineInline(next);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+/**
+ * Loads VirtualThreadExecutor, which is only part of jars built with the
+ * vthreads profile, on Java 21 or later
+ */
+public final class VirtualThreads {
+	static final String EXECUTOR_IMPLEMENTATION = "fr.liglab.consgap.executor.VirtualThreadExecutor";
+
+	private VirtualThreads() {
+	}
+
+	public static boolean isAvailable() {
+		try {
+			Class.forName(EXECUTOR_IMPLEMENTATION);
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @throws UnsupportedOperationException
+	 *             if not built with the vthreads profile, or running on Java
+	 *             < 21
+	 */
+	public static MiningExecutor newExecutor(int nbThreads, int forkThreshold) {
+		try {
+			return (MiningExecutor) Class.forName(EXECUTOR_IMPLEMENTATION)
+					.getConstructor(int.class, int.class).newInstance(nbThreads, forkThreshold);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			throw new UnsupportedOperationException(
+					"virtual threads need Java 21 and a jar built with the vthreads profile", e);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.monitor;
+
+/**
+ * Hooks called at interesting points of loading and mining. This default
+ * implementation does nothing, so the JIT removes the calls entirely. When
+ * running on Java 11 or later and the jar was built with the jfr profile,
+ * INSTANCE is a JfrMiningEvents which emits Flight Recorder events.
+ * 
+ * Begin methods return a token that must be given back to the matching end
+ * method, it may be null and end methods must accept it.
+ */
+public class MiningEvents {
+	static final String JFR_IMPLEMENTATION = "fr.liglab.consgap.monitor.JfrMiningEvents";
+
+	public static final MiningEvents INSTANCE = load();
+
+	protected MiningEvents() {
+	}
+
+	private static MiningEvents load() {
+		if (!Boolean.parseBoolean(System.getProperty("consgap.jfr", "true"))) {
+			return new MiningEvents();
+		}
+		try {
+			return (MiningEvents) Class.forName(JFR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// not built with the jfr profile, or running on Java < 11
+			return new MiningEvents();
+		}
+	}
+
+	public Object beginLoadingPhase() {
+		return null;
+	}
+
+	public void endLoadingPhase(Object token, String phase, String file) {
+	}
+
+	public Object beginExpand() {
+		return null;
+	}
+
+	public void endExpand(Object token, int depth, int item, String outcome) {
+	}
+
+	public Object beginSteal() {
+		return null;
+	}
+
+	/**
+	 * only called for successful steals
+	 */
+	public void endSteal(Object token, int thief, int victim, boolean sameGroup, int level) {
+	}
+
+	public Object beginBarrierWait() {
+		return null;
+	}
+
+	public void endBarrierWait(Object token, int thread, String barrier) {
+	}
+
+	public Object beginBatchRebuild() {
+		return null;
+	}
+
+	public void endBatchRebuild(Object token, int batchSize, int kept) {
+	}
+}
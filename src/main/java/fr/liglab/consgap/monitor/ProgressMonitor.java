@@ -0,0 +1,198 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.executor.DepthFirstExecutor;
+import fr.liglab.consgap.executor.ForkJoinExecutor;
+import fr.liglab.consgap.executor.MiningExecutor;
+import fr.liglab.consgap.executor.MiningStep;
+
+/**
+ * Watches a mining run from a daemon thread, which samples the expansion rate
+ * every second and optionally prints a progress line to stderr. Can also be
+ * registered as an MBean so that values can be read from jconsole or other
+ * JMX clients.
+ */
+public class ProgressMonitor implements ProgressMonitorMBean {
+	public static final String OBJECT_NAME = "fr.liglab.consgap:type=ProgressMonitor";
+
+	private final ResultsCollector collector;
+	private final MiningExecutor executor;
+	private final long startTime;
+	private final ScheduledExecutorService scheduler;
+	private ObjectName registeredName = null;
+	private long lastNodes = 0;
+	private volatile double nodesPerSecond = 0.;
+
+	public ProgressMonitor(ResultsCollector collector, MiningExecutor executor) {
+		this.collector = collector;
+		this.executor = executor;
+		this.startTime = System.currentTimeMillis();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "ProgressMonitor");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.scheduler.scheduleAtFixedRate(new Runnable() {
+
+			@Override
+			public void run() {
+				long nodes = getNodes();
+				nodesPerSecond = nodes - lastNodes;
+				lastNodes = nodes;
+			}
+		}, 1, 1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Prints a line to stderr every period seconds until stop is called
+	 */
+	public void startTicker(int period) {
+		this.scheduler.scheduleAtFixedRate(new Runnable() {
+
+			@Override
+			public void run() {
+				System.err.println(ProgressMonitor.this.toString());
+			}
+		}, period, period, TimeUnit.SECONDS);
+	}
+
+	public void registerMBean() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		this.registeredName = new ObjectName(OBJECT_NAME);
+		server.registerMBean(this, this.registeredName);
+	}
+
+	public void stop() throws JMException {
+		this.scheduler.shutdownNow();
+		if (this.registeredName != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.registeredName);
+			this.registeredName = null;
+		}
+	}
+
+	@Override
+	public long getElapsedMillis() {
+		return System.currentTimeMillis() - this.startTime;
+	}
+
+	@Override
+	public long getNodes() {
+		return MiningStep.loopCounts.get();
+	}
+
+	@Override
+	public double getNodesPerSecond() {
+		return this.nodesPerSecond;
+	}
+
+	@Override
+	public int getMaxDepth() {
+		return MiningStep.maxLevel.get();
+	}
+
+	@Override
+	public int[] getStackSizes() {
+		if (this.executor instanceof DepthFirstExecutor) {
+			return ((DepthFirstExecutor) this.executor).getStackSizes();
+		} else {
+			return new int[0];
+		}
+	}
+
+	@Override
+	public int getCollected() {
+		return this.collector.getNbCollected();
+	}
+
+	@Override
+	public long getStealAttempts() {
+		if (this.executor instanceof DepthFirstExecutor) {
+			return ((DepthFirstExecutor) this.executor).getStealAttempts();
+		} else {
+			return -1;
+		}
+	}
+
+	@Override
+	public long getSuccessfulSteals() {
+		if (this.executor instanceof DepthFirstExecutor) {
+			DepthFirstExecutor dfe = (DepthFirstExecutor) this.executor;
+			return dfe.getLocalSteals() + dfe.getRemoteSteals();
+		} else if (this.executor instanceof ForkJoinExecutor) {
+			return ((ForkJoinExecutor) this.executor).getStealCount();
+		} else {
+			return -1;
+		}
+	}
+
+	@Override
+	public double getStealSuccessRate() {
+		long attempts = this.getStealAttempts();
+		if (attempts <= 0) {
+			return -1;
+		}
+		return (double) this.getSuccessfulSteals() / attempts;
+	}
+
+	@Override
+	public long getHeapUsedBytes() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('[').append(this.getElapsedMillis() / 1000).append(" s] ").append(this.getNodes())
+				.append(" nodes (").append((long) this.getNodesPerSecond()).append("/s), max depth ")
+				.append(this.getMaxDepth()).append(", ").append(this.getCollected()).append(" collected");
+		int[] stacks = this.getStackSizes();
+		if (stacks.length > 0) {
+			sb.append(", stacks ").append(Arrays.toString(stacks));
+		}
+		long steals = this.getSuccessfulSteals();
+		if (steals >= 0) {
+			sb.append(", steals ").append(steals);
+			long attempts = this.getStealAttempts();
+			if (attempts >= 0) {
+				sb.append('/').append(attempts);
+			}
+		}
+		sb.append(", heap ").append(this.getHeapUsedBytes() >> 20).append(" MB");
+		return sb.toString();
+	}
+}
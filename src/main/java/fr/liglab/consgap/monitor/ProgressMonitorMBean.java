@@ -0,0 +1,50 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.monitor;
+
+/**
+ * Progress of a mining run, exposed through JMX. Steal related values are -1
+ * when the executor doesn't report them.
+ */
+public interface ProgressMonitorMBean {
+
+	public long getElapsedMillis();
+
+	// expansions tried so far
+	public long getNodes();
+
+	// over the last second
+	public double getNodesPerSecond();
+
+	public int getMaxDepth();
+
+	public int[] getStackSizes();
+
+	public int getCollected();
+
+	public long getStealAttempts();
+
+	public long getSuccessfulSteals();
+
+	public double getStealSuccessRate();
+
+	public long getHeapUsedBytes();
+}
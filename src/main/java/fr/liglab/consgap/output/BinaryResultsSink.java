@@ -0,0 +1,80 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.output;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+
+import fr.liglab.consgap.collector.ResultsSink;
+
+/**
+ * Writes results as big-endian ints, with a dictionary of item names first:
+ * 
+ * <pre>
+ * nbItems, then nbItems names (as in DataOutput.writeUTF)
+ * then for each sequence: length, then length item ids
+ * </pre>
+ * 
+ * Ids are the rebased items, emerging items are appended to the dictionary
+ * after them and written as sequences of length 1. Not thread safe.
+ */
+public class BinaryResultsSink implements ResultsSink {
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final DataOutputStream out;
+
+	public BinaryResultsSink(OutputStream out) {
+		this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+	}
+
+	@Override
+	public void init(String[] rebasing, Collection<String> emergingItems) throws IOException {
+		this.out.writeInt(rebasing.length + emergingItems.size());
+		for (String item : rebasing) {
+			this.out.writeUTF(item);
+		}
+		for (String item : emergingItems) {
+			this.out.writeUTF(item);
+		}
+		int emergingItemId = rebasing.length;
+		for (int i = 0; i < emergingItems.size(); i++) {
+			this.out.writeInt(1);
+			this.out.writeInt(emergingItemId);
+			emergingItemId++;
+		}
+	}
+
+	@Override
+	public void write(int[] seq) throws IOException {
+		this.out.writeInt(seq.length);
+		for (int i = 0; i < seq.length; i++) {
+			this.out.writeInt(seq[i]);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.out.close();
+	}
+}
@@ -0,0 +1,268 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.output;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import fr.liglab.consgap.collector.PostFilteringResultsCollector;
+import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.collector.ResultsSink;
+import fr.liglab.consgap.collector.SummarizingResultsCollector;
+
+/**
+ * Emerging sequences collected by a completed run with their supports, saved
+ * so that a run with a higher MINSUP_IN_POS can be answered without mining.
+ * Gaps make a subsequence's support possibly lower than its supersequence's,
+ * so the saved run keeps every emerging sequence it reaches, without denying
+ * extensions that were emerging for siblings, and minimality is derived again
+ * among the ones which are still frequent enough. A lower MAXSUP_IN_NEG or
+ * another gap has results which the saved run didn't reach. Saved as gzipped
+ * big-endian ints:
+ * 
+ * <pre>
+ * MAGIC, VERSION, signature (as in DataOutput.writeUTF), MINSUP_IN_POS, MAXSUP_IN_NEG
+ * nbItems, then each item name
+ * nbEmergingItems, then for each: name, positive support, negative support
+ * nbSequences, then for each: sequence (length then item ids), positive support, negative support
+ * </pre>
+ */
+public class ResultsSummary {
+	private static final int MAGIC = 0x43534753;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// identifies the datasets and gap, which must be the same
+	private final String signature;
+	private final int posFreqLowerBound;
+	private final int negFreqUpperBound;
+	private final String[] itemNames;
+	private final List<String> emergingItems;
+	private final List<int[]> emergingItemsSupports;
+	private final List<int[]> sequences;
+	private final List<int[]> sequencesSupports;
+
+	public ResultsSummary(String signature, int posFreqLowerBound, int negFreqUpperBound, String[] itemNames,
+			List<String> emergingItems, List<int[]> emergingItemsSupports, List<int[]> sequences,
+			List<int[]> sequencesSupports) {
+		this.signature = signature;
+		this.posFreqLowerBound = posFreqLowerBound;
+		this.negFreqUpperBound = negFreqUpperBound;
+		this.itemNames = itemNames;
+		this.emergingItems = emergingItems;
+		this.emergingItemsSupports = emergingItemsSupports;
+		this.sequences = sequences;
+		this.sequencesSupports = sequencesSupports;
+	}
+
+	public String getSignature() {
+		return this.signature;
+	}
+
+	public int getPosFreqLowerBound() {
+		return this.posFreqLowerBound;
+	}
+
+	public int getNegFreqUpperBound() {
+		return this.negFreqUpperBound;
+	}
+
+	public String[] getItemNames() {
+		return this.itemNames;
+	}
+
+	public List<String> getEmergingItems() {
+		return this.emergingItems;
+	}
+
+	// positive then negative support of each emerging item
+	public List<int[]> getEmergingItemsSupports() {
+		return this.emergingItemsSupports;
+	}
+
+	// item ids are positions in getItemNames
+	public List<int[]> getSequences() {
+		return this.sequences;
+	}
+
+	public List<int[]> getSequencesSupports() {
+		return this.sequencesSupports;
+	}
+
+	/**
+	 * @return true if the results for these thresholds can be filtered from
+	 *         this summary
+	 */
+	public boolean canAnswer(int posFreqLowerBound, int negFreqUpperBound) {
+		return posFreqLowerBound >= this.posFreqLowerBound && negFreqUpperBound == this.negFreqUpperBound;
+	}
+
+	/**
+	 * @return the summary of a run with a higher posFreqLowerBound
+	 */
+	public ResultsSummary filter(int posFreqLowerBound) {
+		if (!this.canAnswer(posFreqLowerBound, this.negFreqUpperBound)) {
+			throw new IllegalArgumentException("can't answer a lower MINSUP_IN_POS than " + this.posFreqLowerBound);
+		}
+		List<String> emergingItems = new ArrayList<String>();
+		List<int[]> emergingItemsSupports = new ArrayList<int[]>();
+		for (int i = 0; i < this.emergingItems.size(); i++) {
+			if (this.emergingItemsSupports.get(i)[0] >= posFreqLowerBound) {
+				emergingItems.add(this.emergingItems.get(i));
+				emergingItemsSupports.add(this.emergingItemsSupports.get(i));
+			}
+		}
+		List<int[]> sequences = new ArrayList<int[]>();
+		List<int[]> sequencesSupports = new ArrayList<int[]>();
+		for (int i = 0; i < this.sequences.size(); i++) {
+			if (this.sequencesSupports.get(i)[0] >= posFreqLowerBound) {
+				sequences.add(this.sequences.get(i));
+				sequencesSupports.add(this.sequencesSupports.get(i));
+			}
+		}
+		return new ResultsSummary(this.signature, posFreqLowerBound, this.negFreqUpperBound, this.itemNames,
+				emergingItems, emergingItemsSupports, sequences, sequencesSupports);
+	}
+
+	/**
+	 * Writes the minimal sequences among the saved ones
+	 * 
+	 * @return the number of sequences written, including emerging items
+	 */
+	public int writeNonRedundant(ResultsSink sink, int nbFilteringThreads) throws IOException {
+		ResultsCollector collector = new PostFilteringResultsCollector(false, nbFilteringThreads);
+		collector.setRebasing(this.itemNames);
+		collector.setEmergingItems(this.emergingItems);
+		for (int[] seq : this.sequences) {
+			collector.collect(Arrays.copyOfRange(seq, 1, seq.length), seq[0]);
+		}
+		return collector.writeNonRedundant(sink);
+	}
+
+	public void write(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+				new FileOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			this.write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	public void write(DataOutput out) throws IOException {
+		out.writeUTF(this.signature);
+		out.writeInt(this.posFreqLowerBound);
+		out.writeInt(this.negFreqUpperBound);
+		out.writeInt(this.itemNames.length);
+		for (String item : this.itemNames) {
+			out.writeUTF(item);
+		}
+		out.writeInt(this.emergingItems.size());
+		for (int i = 0; i < this.emergingItems.size(); i++) {
+			out.writeUTF(this.emergingItems.get(i));
+			out.writeInt(this.emergingItemsSupports.get(i)[0]);
+			out.writeInt(this.emergingItemsSupports.get(i)[1]);
+		}
+		out.writeInt(this.sequences.size());
+		for (int i = 0; i < this.sequences.size(); i++) {
+			int[] seq = this.sequences.get(i);
+			out.writeInt(seq.length);
+			for (int item : seq) {
+				out.writeInt(item);
+			}
+			out.writeInt(this.sequencesSupports.get(i)[0]);
+			out.writeInt(this.sequencesSupports.get(i)[1]);
+		}
+	}
+
+	public static ResultsSummary read(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(
+				file), BUFFER_SIZE), BUFFER_SIZE));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(file + " is not a results summary");
+			}
+			return read(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	public static ResultsSummary read(DataInput in) throws IOException {
+		String signature = in.readUTF();
+		int posFreqLowerBound = in.readInt();
+		int negFreqUpperBound = in.readInt();
+		String[] itemNames = new String[in.readInt()];
+		for (int i = 0; i < itemNames.length; i++) {
+			itemNames[i] = in.readUTF();
+		}
+		int nbEmergingItems = in.readInt();
+		List<String> emergingItems = new ArrayList<String>(nbEmergingItems);
+		List<int[]> emergingItemsSupports = new ArrayList<int[]>(nbEmergingItems);
+		for (int i = 0; i < nbEmergingItems; i++) {
+			emergingItems.add(in.readUTF());
+			emergingItemsSupports.add(new int[] { in.readInt(), in.readInt() });
+		}
+		int nbSequences = in.readInt();
+		List<int[]> sequences = new ArrayList<int[]>(nbSequences);
+		List<int[]> sequencesSupports = new ArrayList<int[]>(nbSequences);
+		for (int i = 0; i < nbSequences; i++) {
+			int[] seq = new int[in.readInt()];
+			for (int j = 0; j < seq.length; j++) {
+				seq[j] = in.readInt();
+			}
+			sequences.add(seq);
+			sequencesSupports.add(new int[] { in.readInt(), in.readInt() });
+		}
+		return new ResultsSummary(signature, posFreqLowerBound, negFreqUpperBound, itemNames, emergingItems,
+				emergingItemsSupports, sequences, sequencesSupports);
+	}
+
+	/**
+	 * @return what collector gathered during a completed run, with the
+	 *         supports datasets counted
+	 */
+	public static ResultsSummary summarize(String signature, int posFreqLowerBound, int negFreqUpperBound,
+			SummarizingResultsCollector collector) {
+		List<String> emergingItems = new ArrayList<String>(collector.getEmergingItems());
+		List<int[]> emergingItemsSupports = new ArrayList<int[]>(collector.getEmergingItemsSupports());
+		List<int[]> sequences = new ArrayList<int[]>(collector.getNbCollected());
+		List<int[]> sequencesSupports = new ArrayList<int[]>(collector.getNbCollected());
+		collector.getCollected(sequences, sequencesSupports);
+		return new ResultsSummary(signature, posFreqLowerBound, negFreqUpperBound, collector.getRebasing(),
+				emergingItems, emergingItemsSupports, sequences, sequencesSupports);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+
+import fr.liglab.consgap.collector.ResultsSink;
+
+/**
+ * Writes one sequence per line, each item followed by a tabulation. Item names
+ * are encoded once, and sequences are copied in a large reusable buffer that is
+ * only written to the stream when full. Not thread safe.
+ */
+public class TextResultsSink implements ResultsSink {
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final OutputStream out;
+	private final Charset charset;
+	private final byte[] lineSeparator;
+	private final byte[] buffer;
+	private int bufferPos;
+	// encoded name of each rebased item, followed by a tabulation
+	private byte[][] encodedItems;
+
+	public TextResultsSink(OutputStream out, Charset charset) {
+		this.out = out;
+		this.charset = charset;
+		this.lineSeparator = System.lineSeparator().getBytes(charset);
+		this.buffer = new byte[BUFFER_SIZE];
+		this.bufferPos = 0;
+	}
+
+	@Override
+	public void init(String[] rebasing, Collection<String> emergingItems) throws IOException {
+		this.encodedItems = new byte[rebasing.length][];
+		for (int i = 0; i < rebasing.length; i++) {
+			this.encodedItems[i] = (rebasing[i] + "\t").getBytes(this.charset);
+		}
+		for (String item : emergingItems) {
+			this.append((item + "\t").getBytes(this.charset));
+			this.append(this.lineSeparator);
+		}
+	}
+
+	@Override
+	public void write(int[] seq) throws IOException {
+		for (int i = 0; i < seq.length; i++) {
+			this.append(this.encodedItems[seq[i]]);
+		}
+		this.append(this.lineSeparator);
+	}
+
+	private void append(byte[] bytes) throws IOException {
+		if (this.bufferPos + bytes.length > this.buffer.length) {
+			this.flushBuffer();
+			if (bytes.length > this.buffer.length) {
+				this.out.write(bytes);
+				return;
+			}
+		}
+		System.arraycopy(bytes, 0, this.buffer, this.bufferPos, bytes.length);
+		this.bufferPos += bytes.length;
+	}
+
+	private void flushBuffer() throws IOException {
+		this.out.write(this.buffer, 0, this.bufferPos);
+		this.bufferPos = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.flushBuffer();
+		this.out.close();
+	}
+}
@@ -0,0 +1,299 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import fr.liglab.consgap.collector.SummarizingResultsCollector;
+import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.executor.ExplorationFilter;
+import fr.liglab.consgap.output.ResultsSummary;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * Index of two datasets that only grow by appending transactions, and the
+ * sequences collected by the last run on them, saved so that the next run
+ * only reads the appended transactions and only explores what they may
+ * change. A sequence which doesn't occur in appended transactions has the same
+ * supports as before, and so does its whole subtree, whose emerging sequences
+ * are already known, unless:
+ * <ul>
+ * <li>one of its suffixes was emerging and isn't anymore, the previous run
+ * stopped there</li>
+ * <li>it contains or can be extended with an item which was emerging by itself
+ * and isn't anymore, the previous run ignored that item</li>
+ * </ul>
+ * Collected sequences which don't occur in appended transactions can't stop
+ * emerging, the others' supports are only counted in appended transactions.
+ * Like summaries, this needs runs collecting all the emerging sequences they
+ * reach. Saved as gzipped big-endian ints:
+ * 
+ * <pre>
+ * MAGIC, VERSION, signature (as in DataOutput.writeUTF), MINSUP_IN_POS, MAXSUP_IN_NEG, MAX_GAP
+ * bytes of the positive then negative dataset already indexed (as longs)
+ * the index, as in DatasetIndex.write
+ * the collected sequences, as in ResultsSummary.write
+ * </pre>
+ */
+public class IncrementalMining implements ExplorationFilter {
+	private static final int MAGIC = 0x43534749;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// identifies the datasets, thresholds, gap and separator
+	private final String signature;
+	private final int posFreqLowerBound;
+	private final int negFreqUpperBound;
+	private final int gapConstraint;
+	private DatasetIndex index;
+	private long positiveLength;
+	private long negativeLength;
+	// null before the first run
+	private final ResultsSummary previous;
+	// first transactions appended since the previous run
+	private int positiveStart;
+	private int negativeStart;
+
+	// the following are set by prepare, with ids rebased for the current run
+	// id in the index of each item
+	private int[] rawItems;
+	// previously collected sequences which aren't emerging anymore
+	private Set<TIntArrayList> flippedSequences = Collections.emptySet();
+	// previously emerging items which aren't anymore
+	private TIntSet flippedItems = new TIntHashSet();
+
+	/**
+	 * Indexes both datasets entirely, for a first run
+	 */
+	public IncrementalMining(String signature, int posFreqLowerBound, int negFreqUpperBound, int gapConstraint,
+			String positiveDataset, String negativeDataset) throws IOException {
+		this.signature = signature;
+		this.posFreqLowerBound = posFreqLowerBound;
+		this.negFreqUpperBound = negFreqUpperBound;
+		this.gapConstraint = gapConstraint;
+		this.positiveLength = new File(positiveDataset).length();
+		this.negativeLength = new File(negativeDataset).length();
+		this.index = DatasetIndex.load(positiveDataset, negativeDataset);
+		this.previous = null;
+		this.positiveStart = this.index.getNbPositive();
+		this.negativeStart = this.index.getNbNegative();
+	}
+
+	private IncrementalMining(String signature, int posFreqLowerBound, int negFreqUpperBound, int gapConstraint,
+			long positiveLength, long negativeLength, DatasetIndex index, ResultsSummary previous) {
+		this.signature = signature;
+		this.posFreqLowerBound = posFreqLowerBound;
+		this.negFreqUpperBound = negFreqUpperBound;
+		this.gapConstraint = gapConstraint;
+		this.positiveLength = positiveLength;
+		this.negativeLength = negativeLength;
+		this.index = index;
+		this.previous = previous;
+		this.positiveStart = index.getNbPositive();
+		this.negativeStart = index.getNbNegative();
+	}
+
+	public String getSignature() {
+		return this.signature;
+	}
+
+	public DatasetIndex getIndex() {
+		return this.index;
+	}
+
+	public int getNbAppendedPositive() {
+		return this.index.getNbPositive() - this.positiveStart;
+	}
+
+	public int getNbAppendedNegative() {
+		return this.index.getNbNegative() - this.negativeStart;
+	}
+
+	/**
+	 * Indexes the transactions appended to both datasets since they were last
+	 * indexed
+	 */
+	public void appendTransactions(String positiveDataset, String negativeDataset) throws IOException {
+		long positiveLength = new File(positiveDataset).length();
+		long negativeLength = new File(negativeDataset).length();
+		if (positiveLength < this.positiveLength || negativeLength < this.negativeLength) {
+			throw new IOException("datasets are shorter than when they were indexed, they must only be appended to");
+		}
+		this.index = this.index.append(positiveDataset, this.positiveLength, negativeDataset, this.negativeLength);
+		this.positiveLength = positiveLength;
+		this.negativeLength = negativeLength;
+	}
+
+	/**
+	 * Collects the previously collected sequences which are still emerging,
+	 * must be called once the root dataset was built from getIndex with
+	 * collector
+	 * 
+	 * @return the filter exploration must use, null on the first run
+	 */
+	public ExplorationFilter prepare(SummarizingResultsCollector collector) {
+		if (this.previous == null) {
+			return null;
+		}
+		String[] rebasing = collector.getRebasing();
+		TObjectIntMap<String> rebasedIds = new TObjectIntHashMap<String>(rebasing.length);
+		this.rawItems = new int[rebasing.length];
+		for (int i = 0; i < rebasing.length; i++) {
+			rebasedIds.put(rebasing[i], i);
+			this.rawItems[i] = this.index.getItemId(rebasing[i]);
+		}
+		// emerging items can only stop emerging, and are then kept
+		Set<String> emergingItems = new HashSet<String>(collector.getEmergingItems());
+		for (String item : this.previous.getEmergingItems()) {
+			if (!emergingItems.contains(item)) {
+				this.flippedItems.add(rebasedIds.get(item));
+			}
+		}
+		this.flippedSequences = new HashSet<TIntArrayList>();
+		String[] itemNames = this.previous.getItemNames();
+		for (int i = 0; i < this.previous.getSequences().size(); i++) {
+			int[] seq = this.previous.getSequences().get(i);
+			String[] names = new String[seq.length];
+			int[] rawSeq = new int[seq.length];
+			int[] rebasedSeq = new int[seq.length];
+			for (int j = 0; j < seq.length; j++) {
+				names[j] = itemNames[seq[j]];
+				rawSeq[j] = this.index.getItemId(names[j]);
+				rebasedSeq[j] = rebasedIds.get(names[j]);
+			}
+			int[] supports = this.previous.getSequencesSupports().get(i).clone();
+			int[] appendedSupports = this.index.getSupports(rawSeq, this.gapConstraint, this.positiveStart,
+					this.negativeStart);
+			supports[0] += appendedSupports[0];
+			supports[1] += appendedSupports[1];
+			if (supports[1] <= this.negFreqUpperBound) {
+				collector.collect(Arrays.copyOfRange(rebasedSeq, 1, rebasedSeq.length), rebasedSeq[0], supports[0],
+						supports[1]);
+			} else {
+				this.flippedSequences.add(TIntArrayList.wrap(rebasedSeq));
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public boolean explore(Dataset parent, int extension) {
+		int[] parentSequence = parent.getSequence();
+		int[] sequence = new int[parentSequence.length + 1];
+		sequence[0] = extension;
+		System.arraycopy(parentSequence, 0, sequence, 1, parentSequence.length);
+		if (!this.flippedItems.isEmpty()) {
+			for (int item : sequence) {
+				if (this.flippedItems.contains(item)) {
+					return true;
+				}
+			}
+			// the expanded sequence's extensions are among its parent's
+			for (int item : parent.getExtensions()) {
+				if (this.flippedItems.contains(item)) {
+					return true;
+				}
+			}
+		}
+		if (!this.flippedSequences.isEmpty()) {
+			for (int i = 0; i < sequence.length; i++) {
+				if (this.flippedSequences.contains(TIntArrayList.wrap(Arrays.copyOfRange(sequence, i,
+						sequence.length)))) {
+					return true;
+				}
+			}
+		}
+		int[] rawSequence = new int[sequence.length];
+		for (int i = 0; i < sequence.length; i++) {
+			rawSequence[i] = this.rawItems[sequence[i]];
+		}
+		return this.index.occursFrom(rawSequence, this.gapConstraint, this.positiveStart, this.negativeStart);
+	}
+
+	/**
+	 * Saves the index and what collector gathered during the run, through a
+	 * temporary file so that a crash leaves the previous state untouched
+	 */
+	public void write(File file, SummarizingResultsCollector collector) throws IOException {
+		ResultsSummary collected = ResultsSummary.summarize(this.signature, this.posFreqLowerBound,
+				this.negFreqUpperBound, collector);
+
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+				new FileOutputStream(tmp), BUFFER_SIZE), BUFFER_SIZE));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(this.signature);
+			out.writeInt(this.posFreqLowerBound);
+			out.writeInt(this.negFreqUpperBound);
+			out.writeInt(this.gapConstraint);
+			out.writeLong(this.positiveLength);
+			out.writeLong(this.negativeLength);
+			this.index.write(out);
+			collected.write(out);
+		} finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static IncrementalMining read(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(
+				file), BUFFER_SIZE), BUFFER_SIZE));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(file + " is not an incremental mining state");
+			}
+			String signature = in.readUTF();
+			int posFreqLowerBound = in.readInt();
+			int negFreqUpperBound = in.readInt();
+			int gapConstraint = in.readInt();
+			long positiveLength = in.readLong();
+			long negativeLength = in.readLong();
+			DatasetIndex index = DatasetIndex.read(in);
+			return new IncrementalMining(signature, posFreqLowerBound, negFreqUpperBound, gapConstraint,
+					positiveLength, negativeLength, index, ResultsSummary.read(in));
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+
+import fr.liglab.consgap.Main;
+import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.collector.ResultsSink;
+import fr.liglab.consgap.collector.TopKResultsCollector;
+import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.executor.ExplorationSettings;
+import fr.liglab.consgap.executor.MiningExecutor;
+import fr.liglab.consgap.executor.MiningStep;
+import fr.liglab.consgap.executor.SearchProfiler;
+
+/**
+ * Serves mining requests on a dataset pair loaded once. Each request is a line
+ * of the usual command line without the datasets, "[OPTIONS] MINSUP_IN_POS
+ * MAXSUP_IN_NEG MAX_GAP", and its root dataset is derived from the in-memory
+ * index. Results go to -out if given, otherwise to the output stream followed
+ * by an empty line, which no result can be since items end with a tabulation.
+ * Statistics and errors are printed to stderr.
+ */
+public class MiningService {
+	// options that make no sense for a single request on a loaded index, or
+	// need the datasets' paths
+	private static final String[] UNSUPPORTED_OPTIONS = { "serve", "worker", "coord", "ckpt", "resume", "sep",
+			"summary", "from", "incr" };
+
+	private final DatasetIndex index;
+
+	public MiningService(DatasetIndex index) {
+		this.index = index;
+	}
+
+	public void serve(InputStream requests, PrintStream out) throws IOException {
+		BufferedReader br = new BufferedReader(new InputStreamReader(requests));
+		String line;
+		while ((line = br.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty()) {
+				continue;
+			}
+			try {
+				this.mine(Main.parse(line.split("\\s+")), out);
+			} catch (ParseException | IllegalArgumentException e) {
+				System.err.println("invalid request \"" + line + "\": " + e.getMessage());
+			}
+			out.println();
+			out.flush();
+		}
+	}
+
+	private void mine(CommandLine cmd, OutputStream out) throws IOException {
+		if (cmd.getArgs().length != 3) {
+			throw new IllegalArgumentException("expected MINSUP_IN_POS MAXSUP_IN_NEG MAX_GAP");
+		}
+		for (String option : UNSUPPORTED_OPTIONS) {
+			if (cmd.hasOption(option)) {
+				throw new IllegalArgumentException("-" + option + " is not available in service mode");
+			}
+		}
+		int posFreqLowerBound = Integer.parseInt(cmd.getArgs()[0]);
+		int negFreqUpperBound = Integer.parseInt(cmd.getArgs()[1]);
+		int gapConstraint = Integer.parseInt(cmd.getArgs()[2]);
+		int nbThreads = Main.getNbThreads(cmd);
+		// the service's output stream outlives the request
+		ResultsSink sink = Main.createSink(cmd, new FilterOutputStream(out) {
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				this.out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				this.flush();
+			}
+		});
+		TopKResultsCollector topK = null;
+		ResultsCollector collector;
+		if (cmd.hasOption("topk")) {
+			if (!Main.supportsTopK(cmd)) {
+				throw new IllegalArgumentException("-topk collects sequences with their supports, "
+						+ "without -i, -f, -spill or -p");
+			}
+			topK = new TopKResultsCollector(Integer.parseInt(cmd.getOptionValue("topk")), this.index,
+					posFreqLowerBound, negFreqUpperBound, gapConstraint, cmd.hasOption('n'), nbThreads);
+			collector = topK;
+		} else {
+			collector = Main.createCollector(cmd, sink, nbThreads);
+		}
+		SearchProfiler profiler = null;
+		if (cmd.hasOption("prof")) {
+			profiler = new SearchProfiler();
+		}
+		MiningExecutor executor = Main.createExecutor(cmd, nbThreads);
+		// a sibling may only emerge for a threshold lower than top-k's final one
+		executor.setExplorationSettings(new ExplorationSettings(profiler, topK == null, null));
+		MiningStep.loopCounts.set(0);
+		long startTime = System.currentTimeMillis();
+		Dataset dataset = Main.createDataset(cmd, collector, this.index, posFreqLowerBound, negFreqUpperBound,
+				gapConstraint);
+		executor.mine(dataset);
+		long removeRedundantStart = System.currentTimeMillis();
+		int nbMinimalEmerging = collector.writeNonRedundant(sink);
+		sink.close();
+		long endTime = System.currentTimeMillis();
+		System.err.println("total minimal emerging sequences = " + nbMinimalEmerging
+				+ "\ntotal sequences collected = " + collector.getNbCollected());
+		if (topK != null) {
+			System.err.println("top-" + cmd.getOptionValue("topk") + " reached MINSUP_IN_POS = "
+					+ topK.getPosFreqLowerBound());
+		}
+		System.err.println("execution time " + (endTime - startTime) + " ms including "
+				+ (endTime - removeRedundantStart) + " ms removing redundant results, performed "
+				+ MiningStep.loopCounts.get() + " iterations");
+		if (profiler != null) {
+			profiler.writeReport(new File(cmd.getOptionValue("prof")));
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+import fr.liglab.consgap.Main;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Writes random positive and negative datasets in the format read by Main.
+ * Items follow a Zipf law, transaction lengths are uniform, and patterns can
+ * be planted with gaps up to a given size, at a different rate in each
+ * dataset so that they become emerging.
+ */
+public class ContrastDatasetGenerator {
+	private final Random rnd;
+	// cumulated item frequencies, item i has frequency 1/(i+1)^skew
+	private final double[] cumulatedFrequencies;
+	private final int minLength;
+	private final int maxLength;
+	private final int[][] patterns;
+	private final int patternGap;
+
+	/**
+	 * @param skew
+	 *            exponent of the Zipf law, 0 for uniform items
+	 * @param patternGap
+	 *            at most this many items are inserted between consecutive
+	 *            items of planted patterns
+	 */
+	public ContrastDatasetGenerator(long seed, int nbItems, double skew, int minLength, int maxLength,
+			int nbPatterns, int patternLength, int patternGap) {
+		if (minLength < 0 || maxLength < minLength) {
+			throw new IllegalArgumentException("invalid length range [" + minLength + ", " + maxLength + "]");
+		}
+		this.rnd = new Random(seed);
+		this.cumulatedFrequencies = new double[nbItems];
+		double total = 0.;
+		for (int i = 0; i < nbItems; i++) {
+			total += Math.pow(i + 1, -skew);
+			this.cumulatedFrequencies[i] = total;
+		}
+		this.minLength = minLength;
+		this.maxLength = maxLength;
+		this.patternGap = patternGap;
+		// uniform items so that patterns are not made of frequent items only
+		this.patterns = new int[nbPatterns][patternLength];
+		for (int[] pattern : this.patterns) {
+			for (int i = 0; i < patternLength; i++) {
+				pattern[i] = this.rnd.nextInt(nbItems);
+			}
+		}
+	}
+
+	public int[][] getPatterns() {
+		return this.patterns;
+	}
+
+	/**
+	 * @param plantRate
+	 *            probability for each transaction to receive each pattern
+	 */
+	public void write(File output, int nbTransactions, double plantRate, String separator) throws IOException {
+		BufferedWriter bw = new BufferedWriter(new FileWriter(output));
+		for (int t = 0; t < nbTransactions; t++) {
+			TIntList transaction = this.randomTransaction();
+			for (int[] pattern : this.patterns) {
+				if (this.rnd.nextDouble() < plantRate) {
+					this.plant(pattern, transaction);
+				}
+			}
+			for (int i = 0; i < transaction.size(); i++) {
+				if (i > 0) {
+					bw.write(separator);
+				}
+				bw.write(Integer.toString(transaction.get(i)));
+			}
+			bw.newLine();
+		}
+		bw.close();
+	}
+
+	private TIntList randomTransaction() {
+		final int length = this.minLength + this.rnd.nextInt(this.maxLength - this.minLength + 1);
+		final double total = this.cumulatedFrequencies[this.cumulatedFrequencies.length - 1];
+		TIntList transaction = new TIntArrayList(length);
+		for (int i = 0; i < length; i++) {
+			int item = Arrays.binarySearch(this.cumulatedFrequencies, this.rnd.nextDouble() * total);
+			if (item < 0) {
+				item = -(item + 1);
+			}
+			transaction.add(item);
+		}
+		return transaction;
+	}
+
+	// inserts the pattern's items, leaving up to patternGap existing items
+	// between them
+	private void plant(int[] pattern, TIntList transaction) {
+		int pos = this.rnd.nextInt(transaction.size() + 1);
+		for (int i = 0; i < pattern.length; i++) {
+			if (i > 0) {
+				pos += 1 + this.rnd.nextInt(Math.min(this.patternGap, transaction.size() - pos - 1) + 1);
+			}
+			transaction.insert(pos, pattern[i]);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		Options options = new Options();
+		CommandLineParser parser = new PosixParser();
+
+		options.addOption("h", false, "Show help");
+		options.addOption("seed", true, "Random seed (defaults to 0)");
+		options.addOption("items", true, "Alphabet size (defaults to 1000)");
+		options.addOption("skew", true, "Exponent of the Zipf law of items frequencies, 0 for uniform (defaults to 1)");
+		options.addOption("minlen", true, "Minimum length of transactions, before planting patterns (defaults to 10)");
+		options.addOption("maxlen", true, "Maximum length of transactions, before planting patterns (defaults to 30)");
+		options.addOption("patterns", true, "How many patterns are planted (defaults to 10)");
+		options.addOption("plen", true, "Length of planted patterns (defaults to 4)");
+		options.addOption("pgap", true, "Maximum gap between items of planted patterns (defaults to 2)");
+		options.addOption("ppos", true,
+				"Probability for each positive transaction to receive each pattern (defaults to 0.1)");
+		options.addOption("pneg", true,
+				"Probability for each negative transaction to receive each pattern (defaults to 0.01)");
+		options.addOption("pout", true, "Also write planted patterns to this file");
+		options.addOption("sep", true, "separator in the dataset files (defaults to tabulation)");
+		try {
+			CommandLine cmd = parser.parse(options, args);
+
+			if (cmd.getArgs().length != 4 || cmd.hasOption('h')) {
+				printMan(options);
+			} else {
+				standalone(cmd);
+			}
+		} catch (ParseException e) {
+			printMan(options);
+		}
+	}
+
+	private static void printMan(Options options) {
+		String syntax = "java fr.liglab.consgap.tools.ContrastDatasetGenerator [OPTIONS] OUTPUT_POS_DATASET OUTPUT_NEG_DATASET NB_POS_TRANSACTIONS NB_NEG_TRANSACTIONS";
+		String header = "\nOptions are :";
+
+		HelpFormatter formatter = new HelpFormatter();
+		formatter.printHelp(80, syntax, header, options, "");
+	}
+
+	private static void standalone(CommandLine cmd) throws IOException {
+		String separator = cmd.getOptionValue("sep", Main.separator);
+		ContrastDatasetGenerator generator = new ContrastDatasetGenerator(Long.parseLong(cmd.getOptionValue("seed",
+				"0")), Integer.parseInt(cmd.getOptionValue("items", "1000")), Double.parseDouble(cmd.getOptionValue(
+				"skew", "1")), Integer.parseInt(cmd.getOptionValue("minlen", "10")), Integer.parseInt(cmd
+				.getOptionValue("maxlen", "30")), Integer.parseInt(cmd.getOptionValue("patterns", "10")),
+				Integer.parseInt(cmd.getOptionValue("plen", "4")), Integer.parseInt(cmd.getOptionValue("pgap", "2")));
+		generator.write(new File(cmd.getArgs()[0]), Integer.parseInt(cmd.getArgs()[2]),
+				Double.parseDouble(cmd.getOptionValue("ppos", "0.1")), separator);
+		generator.write(new File(cmd.getArgs()[1]), Integer.parseInt(cmd.getArgs()[3]),
+				Double.parseDouble(cmd.getOptionValue("pneg", "0.01")), separator);
+		if (cmd.hasOption("pout")) {
+			BufferedWriter bw = new BufferedWriter(new FileWriter(cmd.getOptionValue("pout")));
+			for (int[] pattern : generator.getPatterns()) {
+				for (int i = 0; i < pattern.length; i++) {
+					if (i > 0) {
+						bw.write(separator);
+					}
+					bw.write(Integer.toString(pattern[i]));
+				}
+				bw.newLine();
+			}
+			bw.close();
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Random inputs and brute force references shared by tests
+ */
+public final class Fixtures {
+
+	public interface ThreadTask {
+		public void run(int threadId) throws Exception;
+	}
+
+	private Fixtures() {
+	}
+
+	public static List<int[]> randomSequences(Random random, int nbSequences, int minLength, int maxLength,
+			int nbItems) {
+		List<int[]> sequences = new ArrayList<int[]>(nbSequences);
+		for (int i = 0; i < nbSequences; i++) {
+			int[] seq = new int[minLength + random.nextInt(maxLength - minLength + 1)];
+			for (int j = 0; j < seq.length; j++) {
+				seq[j] = random.nextInt(nbItems);
+			}
+			sequences.add(seq);
+		}
+		return sequences;
+	}
+
+	public static List<Integer> asList(int[] seq) {
+		List<Integer> list = new ArrayList<Integer>(seq.length);
+		for (int item : seq) {
+			list.add(item);
+		}
+		return list;
+	}
+
+	public static Set<List<Integer>> asSet(Collection<int[]> sequences) {
+		Set<List<Integer>> set = new HashSet<List<Integer>>();
+		for (int[] seq : sequences) {
+			set.add(asList(seq));
+		}
+		return set;
+	}
+
+	// as written by ResultsCollector.getNonRedundant or read from a results
+	// file
+	public static Set<List<String>> asNamedSet(Collection<String[]> sequences) {
+		Set<List<String>> set = new HashSet<List<String>>();
+		for (String[] seq : sequences) {
+			set.add(Arrays.asList(seq));
+		}
+		return set;
+	}
+
+	public static boolean isSubsequence(List<Integer> sub, List<Integer> seq) {
+		int subPos = 0;
+		for (int i = 0; i < seq.size() && subPos < sub.size(); i++) {
+			if (seq.get(i).equals(sub.get(subPos))) {
+				subPos++;
+			}
+		}
+		return subPos == sub.size();
+	}
+
+	/**
+	 * @return the sequences which don't have another one as subsequence
+	 */
+	public static Set<List<Integer>> minimal(Set<List<Integer>> sequences) {
+		Set<List<Integer>> minimal = new HashSet<List<Integer>>();
+		for (List<Integer> seq : sequences) {
+			boolean isMinimal = true;
+			for (List<Integer> other : sequences) {
+				if (other.size() < seq.size() && isSubsequence(other, seq)) {
+					isMinimal = false;
+					break;
+				}
+			}
+			if (isMinimal) {
+				minimal.add(seq);
+			}
+		}
+		return minimal;
+	}
+
+	/**
+	 * Runs task on nbThreads threads, rethrowing the first failure once they
+	 * are all done
+	 */
+	public static void runConcurrently(int nbThreads, final ThreadTask task) throws Exception {
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>(nbThreads);
+		for (int t = 0; t < nbThreads; t++) {
+			final int threadId = t;
+			threads.add(new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						task.run(threadId);
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			});
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+
+	/**
+	 * Writes nbTransactions positive then negative transactions over nbItems
+	 * items to dir, 9 positive and 1 negative transaction out of 10 contain
+	 * one of 10 planted patterns
+	 * 
+	 * @return the positive then negative dataset files
+	 */
+	public static File[] writeDatasets(File dir, Random random, int nbTransactions, int nbItems) throws IOException {
+		int[][] patterns = new int[10][];
+		for (int i = 0; i < patterns.length; i++) {
+			patterns[i] = randomSequences(random, 1, 3, 5, nbItems).get(0);
+		}
+		File[] files = new File[] { new File(dir, "pos.txt"), new File(dir, "neg.txt") };
+		for (File file : files) {
+			PrintWriter out = new PrintWriter(file);
+			for (int i = 0; i < nbTransactions; i++) {
+				int[] transaction = randomSequences(random, 1, 8, 16, nbItems).get(0);
+				if (random.nextInt(10) < (file == files[0] ? 9 : 1)) {
+					int[] pattern = patterns[random.nextInt(patterns.length)];
+					int start = random.nextInt(transaction.length - pattern.length);
+					System.arraycopy(pattern, 0, transaction, start, pattern.length);
+				}
+				StringBuilder line = new StringBuilder();
+				for (int item : transaction) {
+					line.append(item).append('\t');
+				}
+				out.println(line.substring(0, line.length() - 1));
+			}
+			out.close();
+		}
+		return files;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fr.liglab.consgap.Fixtures;
+
+public class ConcurrentSequenceTrieTest {
+	private static final int NB_THREADS = 4;
+	private static final int NB_ITEMS = 6;
+
+	@Test
+	public void concurrentInsertsKeepSequencesWithoutInsertedSuffix() throws Exception {
+		final ConcurrentSequenceTrie trie = new ConcurrentSequenceTrie();
+		final List<List<int[]>> inserted = new ArrayList<List<int[]>>();
+		for (int t = 0; t < NB_THREADS; t++) {
+			inserted.add(Fixtures.randomSequences(new Random(t), 500, 3, 7, NB_ITEMS));
+		}
+		Fixtures.runConcurrently(NB_THREADS, new Fixtures.ThreadTask() {
+
+			@Override
+			public void run(int threadId) {
+				for (int[] seq : inserted.get(threadId)) {
+					trie.insert(seq);
+					// either seq or one of its subsequences is in the trie
+					assertTrue(trie.subsetCheck(seq) >= 0);
+				}
+			}
+		});
+
+		Set<List<Integer>> all = new HashSet<List<Integer>>();
+		for (List<int[]> sequences : inserted) {
+			all.addAll(Fixtures.asSet(sequences));
+		}
+		// a sequence stops at the first terminal node on its path, which is
+		// one of its suffixes
+		Set<List<Integer>> expected = new HashSet<List<Integer>>();
+		for (List<Integer> seq : all) {
+			boolean hasSuffix = false;
+			for (int i = 1; i < seq.size(); i++) {
+				if (all.contains(seq.subList(i, seq.size()))) {
+					hasSuffix = true;
+				}
+			}
+			if (!hasSuffix) {
+				expected.add(seq);
+			}
+		}
+		List<int[]> stored = new ArrayList<int[]>();
+		trie.getAll(stored);
+		assertEquals(stored.size(), Fixtures.asSet(stored).size());
+		assertEquals(expected, Fixtures.asSet(stored));
+
+		for (int[] query : Fixtures.randomSequences(new Random(NB_THREADS), 2000, 1, 9, NB_ITEMS)) {
+			boolean hasSubsequence = false;
+			for (List<Integer> seq : expected) {
+				if (Fixtures.isSubsequence(seq, Fixtures.asList(query))) {
+					hasSubsequence = true;
+				}
+			}
+			int lastPos = trie.subsetCheck(query);
+			assertEquals(Arrays.toString(query), hasSubsequence, lastPos >= 0);
+			int expansionItem = query[0];
+			assertEquals(lastPos, trie.subsetCheck(Arrays.copyOfRange(query, 1, query.length), expansionItem));
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fr.liglab.consgap.Fixtures;
+
+/**
+ * Every collector must write the same minimal sequences as the original
+ * PostFilteringResultsCollector, whatever the filter and however sequences
+ * are collected
+ */
+public class NonRedundantFilteringTest {
+	private static final int NB_ITEMS = 12;
+	private static final int NB_THREADS = 4;
+
+	private static String[] rebasing;
+	// with duplicates, in random order
+	private static List<int[]> sequences;
+	private static Set<List<String>> expected;
+
+	@BeforeClass
+	public static void generate() {
+		Random random = new Random(31);
+		sequences = new ArrayList<int[]>();
+		for (int[] seq : Fixtures.randomSequences(random, 6000, 3, 7, NB_ITEMS)) {
+			sequences.add(seq);
+			if (random.nextInt(10) == 0) {
+				sequences.add(seq.clone());
+			}
+		}
+		Collections.shuffle(sequences, random);
+		rebasing = itemNames(NB_ITEMS);
+		expected = named(Fixtures.minimal(Fixtures.asSet(sequences)), rebasing);
+		expected.add(Arrays.asList("emerging"));
+	}
+
+	@Test
+	public void postFilteringWithTrie() throws Exception {
+		check(new PostFilteringResultsCollector(), 1);
+	}
+
+	@Test
+	public void postFilteringWithTrieInParallel() throws Exception {
+		check(new PostFilteringResultsCollector(false, NB_THREADS), NB_THREADS);
+	}
+
+	@Test
+	public void postFilteringWithInvertedIndex() throws Exception {
+		check(new PostFilteringResultsCollector(true, 1), 1);
+	}
+
+	@Test
+	public void postFilteringWithInvertedIndexInParallel() throws Exception {
+		check(new PostFilteringResultsCollector(true, NB_THREADS), NB_THREADS);
+	}
+
+	@Test
+	public void incrementalFiltering() throws Exception {
+		check(new IncrementalFilteringResultsCollector(NB_THREADS), NB_THREADS);
+	}
+
+	@Test
+	public void batchFiltering() throws Exception {
+		check(new BatchFilteringResultsCollector(100, NB_THREADS), NB_THREADS);
+	}
+
+	@Test
+	public void batchFilteringWithSignatures() throws Exception {
+		check(new BatchFilteringResultsCollector(100, NB_THREADS, true), NB_THREADS);
+	}
+
+	static String[] itemNames(int nbItems) {
+		String[] names = new String[nbItems];
+		for (int i = 0; i < nbItems; i++) {
+			names[i] = "i" + i;
+		}
+		return names;
+	}
+
+	static Set<List<String>> named(Set<List<Integer>> sequences, String[] rebasing) {
+		Set<List<String>> named = new HashSet<List<String>>();
+		for (List<Integer> seq : sequences) {
+			List<String> names = new ArrayList<String>(seq.size());
+			for (int item : seq) {
+				names.add(rebasing[item]);
+			}
+			named.add(names);
+		}
+		return named;
+	}
+
+	/**
+	 * Collects sequences from nbThreads threads, then checks the written
+	 * results
+	 */
+	static void check(final ResultsCollector collector, final int nbThreads) throws Exception {
+		collector.setRebasing(rebasing);
+		collector.setEmergingItems(Arrays.asList("emerging"));
+		Fixtures.runConcurrently(nbThreads, new Fixtures.ThreadTask() {
+
+			@Override
+			public void run(int threadId) {
+				for (int i = threadId; i < sequences.size(); i += nbThreads) {
+					int[] seq = sequences.get(i);
+					// sequences grow by prepending
+					collector.collect(Arrays.copyOfRange(seq, 1, seq.length), seq[0]);
+				}
+			}
+		});
+		List<String[]> written = collector.getNonRedundant();
+		assertEquals("duplicates written", written.size(), Fixtures.asNamedSet(written).size());
+		assertEquals(expected, Fixtures.asNamedSet(written));
+	}
+}
@@ -0,0 +1,78 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import fr.liglab.consgap.Fixtures;
+
+public class SequenceInternerTest {
+	private static final int NB_THREADS = 4;
+	private static final int NB_ITEMS = 6;
+
+	@Test
+	public void concurrentAddsKeepEachSequenceOnce() throws Exception {
+		final SequenceInterner interner = new SequenceInterner();
+		final AtomicInteger nbAdded = new AtomicInteger();
+		final List<List<int[]>> added = new ArrayList<List<int[]>>();
+		Set<List<Integer>> all = new HashSet<List<Integer>>();
+		for (int t = 0; t < NB_THREADS; t++) {
+			// threads share many sequences, enough to rehash every segment
+			added.add(Fixtures.randomSequences(new Random(t % 2), 20000, 1, 5, NB_ITEMS));
+			all.addAll(Fixtures.asSet(added.get(t)));
+		}
+		Fixtures.runConcurrently(NB_THREADS, new Fixtures.ThreadTask() {
+
+			@Override
+			public void run(int threadId) {
+				for (int[] seq : added.get(threadId)) {
+					if (interner.add(Arrays.copyOfRange(seq, 1, seq.length), seq[0])) {
+						nbAdded.incrementAndGet();
+					}
+					assertTrue(interner.contains(Arrays.copyOfRange(seq, 1, seq.length), seq[0]));
+				}
+			}
+		});
+
+		assertEquals(all.size(), nbAdded.get());
+		assertEquals(all.size(), interner.size());
+		List<int[]> stored = new ArrayList<int[]>();
+		interner.getAll(stored);
+		assertEquals(stored.size(), Fixtures.asSet(stored).size());
+		assertEquals(all, Fixtures.asSet(stored));
+
+		for (int[] query : Fixtures.randomSequences(new Random(NB_THREADS), 20000, 1, 6, NB_ITEMS)) {
+			assertEquals(all.contains(Fixtures.asList(query)),
+					interner.contains(Arrays.copyOfRange(query, 1, query.length), query[0]));
+		}
+	}
+}
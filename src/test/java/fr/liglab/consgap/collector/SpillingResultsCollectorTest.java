@@ -0,0 +1,114 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.liglab.consgap.Fixtures;
+
+/**
+ * With a budget of a few sequences, results are spilled in hundreds of runs
+ * per length, which need several merge passes
+ */
+public class SpillingResultsCollectorTest {
+	private static final int NB_ITEMS = 12;
+	private static final int NB_THREADS = 4;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void manyRunsMergeLikePostFiltering() throws Exception {
+		check(400, 4);
+	}
+
+	@Test
+	public void fewRunsMergeLikePostFiltering() throws Exception {
+		check(1 << 16, 64);
+	}
+
+	private void check(long memoryBudget, int maxFanIn) throws Exception {
+		final List<int[]> sequences = Fixtures.randomSequences(new Random(35), 6000, 3, 7, NB_ITEMS);
+		// duplicates land in different runs
+		sequences.addAll(sequences.subList(0, 1000));
+		String[] rebasing = NonRedundantFilteringTest.itemNames(NB_ITEMS);
+		Collection<String> emerging = Arrays.asList("emerging");
+
+		PostFilteringResultsCollector reference = new PostFilteringResultsCollector();
+		reference.setRebasing(rebasing);
+		reference.setEmergingItems(emerging);
+		for (int[] seq : sequences) {
+			reference.collect(Arrays.copyOfRange(seq, 1, seq.length), seq[0]);
+		}
+
+		File spillDir = this.folder.newFolder();
+		final SpillingResultsCollector collector = new SpillingResultsCollector(spillDir, memoryBudget, NB_THREADS,
+				maxFanIn);
+		collector.setRebasing(rebasing);
+		collector.setEmergingItems(emerging);
+		Fixtures.runConcurrently(NB_THREADS, new Fixtures.ThreadTask() {
+
+			@Override
+			public void run(int threadId) {
+				for (int i = threadId; i < sequences.size(); i += NB_THREADS) {
+					int[] seq = sequences.get(i);
+					collector.collect(Arrays.copyOfRange(seq, 1, seq.length), seq[0]);
+				}
+			}
+		});
+		assertEquals(sequences.size(), collector.getNbCollected());
+
+		final List<int[]> written = new ArrayList<int[]>();
+		int nbWritten = collector.writeNonRedundant(new ResultsSink() {
+
+			@Override
+			public void init(String[] rebasing, Collection<String> emergingItems) {
+			}
+
+			@Override
+			public void write(int[] seq) {
+				written.add(seq);
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+		assertEquals(emerging.size() + written.size(), nbWritten);
+		assertEquals("duplicates written", written.size(), Fixtures.asSet(written).size());
+		Set<List<String>> expected = Fixtures.asNamedSet(reference.getNonRedundant());
+		expected.remove(Arrays.asList("emerging"));
+		assertEquals(expected, NonRedundantFilteringTest.named(Fixtures.asSet(written), rebasing));
+		assertEquals("runs left in " + spillDir, 0, spillDir.list().length);
+	}
+}
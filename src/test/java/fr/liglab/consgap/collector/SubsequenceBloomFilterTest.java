@@ -0,0 +1,87 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.liglab.consgap.Fixtures;
+
+public class SubsequenceBloomFilterTest {
+
+	@Test
+	public void findsAllAddedSubsequences() {
+		Random random = new Random(38);
+		List<int[]> added = Fixtures.randomSequences(random, 300, 2, 4, 30);
+		SubsequenceBloomFilter filter = new SubsequenceBloomFilter(added.size());
+		for (int[] seq : added) {
+			filter.add(seq);
+		}
+		int nbContaining = 0;
+		for (int[] query : Fixtures.randomSequences(random, 3000, 1, 8, 30)) {
+			if (containsOne(query, added)) {
+				nbContaining++;
+				assertTrue(Arrays.toString(query), mightContain(filter, query));
+			}
+		}
+		assertTrue(nbContaining > 100);
+	}
+
+	@Test
+	public void falsePositiveRateOnceFull() {
+		Random random = new Random(38);
+		SubsequenceBloomFilter filter = new SubsequenceBloomFilter(4096);
+		List<int[]> added = Fixtures.randomSequences(random, filter.getCapacity(), 3, 5, 1000);
+		for (int[] seq : added) {
+			filter.add(seq);
+		}
+		int nbQueries = 0;
+		int nbFalsePositives = 0;
+		for (int[] query : Fixtures.randomSequences(random, 10000, 6, 6, 1000)) {
+			if (!containsOne(query, added)) {
+				nbQueries++;
+				if (mightContain(filter, query)) {
+					nbFalsePositives++;
+				}
+			}
+		}
+		// about 27%, 10% having the first and last items of an added sequence
+		assertTrue(nbFalsePositives + " false positives out of " + nbQueries, nbFalsePositives < nbQueries / 3);
+	}
+
+	private static boolean mightContain(SubsequenceBloomFilter filter, int[] query) {
+		return filter.mightContainSubsequence(Arrays.copyOfRange(query, 1, query.length), query[0]);
+	}
+
+	private static boolean containsOne(int[] query, List<int[]> added) {
+		for (int[] seq : added) {
+			if (InvertedIndexFilter.isSubsequence(seq, query)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
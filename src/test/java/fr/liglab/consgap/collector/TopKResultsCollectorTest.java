@@ -0,0 +1,98 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.collector;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.liglab.consgap.Fixtures;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.dataset.consgapstyle.BitSetDataset;
+import fr.liglab.consgap.executor.DepthFirstExecutor;
+import fr.liglab.consgap.executor.ExplorationSettings;
+
+/**
+ * Top-k results must be those of a full run with the highest threshold giving
+ * at least k of them, which we find by trying all thresholds from the top
+ */
+public class TopKResultsCollectorTest {
+	private static final int NB_TRANSACTIONS = 200;
+	private static final int POS_FREQ_LOWER_BOUND = 4;
+	private static final int NEG_FREQ_UPPER_BOUND = 3;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DatasetIndex index;
+
+	@Before
+	public void generate() throws Exception {
+		File[] datasets = Fixtures.writeDatasets(this.folder.getRoot(), new Random(50), NB_TRANSACTIONS, 20);
+		this.index = DatasetIndex.load(datasets[0].getPath(), datasets[1].getPath());
+	}
+
+	@Test
+	public void contiguous() throws Exception {
+		this.check(0, 1, 3, 10, 40, 200);
+	}
+
+	@Test
+	public void withGaps() throws Exception {
+		this.check(2, 1, 3, 10, 40, 200);
+	}
+
+	private void check(int gapConstraint, int... ks) throws Exception {
+		for (int k : ks) {
+			int threshold = NB_TRANSACTIONS;
+			Set<List<String>> expected = this.mine(threshold, gapConstraint);
+			while (expected.size() < k && threshold > POS_FREQ_LOWER_BOUND) {
+				threshold--;
+				expected = this.mine(threshold, gapConstraint);
+			}
+
+			TopKResultsCollector collector = new TopKResultsCollector(k, this.index, POS_FREQ_LOWER_BOUND,
+					NEG_FREQ_UPPER_BOUND, gapConstraint, false, 1);
+			DepthFirstExecutor executor = new DepthFirstExecutor(2);
+			executor.setExplorationSettings(new ExplorationSettings(null, false, null));
+			executor.mine(new BitSetDataset(collector, this.index, POS_FREQ_LOWER_BOUND, NEG_FREQ_UPPER_BOUND,
+					gapConstraint));
+			Set<List<String>> topK = Fixtures.asNamedSet(collector.getNonRedundant());
+			assertEquals("k = " + k + ", gap = " + gapConstraint, threshold, collector.getPosFreqLowerBound());
+			assertEquals("k = " + k + ", gap = " + gapConstraint, expected, topK);
+		}
+	}
+
+	private Set<List<String>> mine(int posFreqLowerBound, int gapConstraint) throws Exception {
+		PostFilteringResultsCollector collector = new PostFilteringResultsCollector();
+		new DepthFirstExecutor(1).mine(new BitSetDataset(collector, this.index, posFreqLowerBound,
+				NEG_FREQ_UPPER_BOUND, gapConstraint));
+		return Fixtures.asNamedSet(collector.getNonRedundant());
+	}
+}
@@ -0,0 +1,107 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.distributed;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.liglab.consgap.Fixtures;
+import fr.liglab.consgap.collector.PostFilteringResultsCollector;
+import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.consgapstyle.BitSetDataset;
+import fr.liglab.consgap.executor.DepthFirstExecutor;
+
+/**
+ * Workers, run as threads of this JVM, must send everything a single process
+ * would find, whatever the number of parts
+ */
+public class DistributedMiningTest {
+	private static final int POS_FREQ_LOWER_BOUND = 6;
+	private static final int NEG_FREQ_UPPER_BOUND = 3;
+	private static final int GAP_CONSTRAINT = 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File[] datasets;
+	private Set<List<String>> expected;
+
+	@Before
+	public void generate() throws Exception {
+		this.datasets = Fixtures.writeDatasets(this.folder.getRoot(), new Random(45), 200, 20);
+		PostFilteringResultsCollector collector = new PostFilteringResultsCollector();
+		new DepthFirstExecutor(2).mine(this.newDataset(collector));
+		this.expected = Fixtures.asNamedSet(collector.getNonRedundant());
+	}
+
+	@Test
+	public void singleWorker() throws Exception {
+		this.check(1, 2);
+	}
+
+	@Test
+	public void severalWorkers() throws Exception {
+		this.check(3, 2);
+	}
+
+	// some parts get no root extension at all
+	@Test
+	public void moreWorkersThanExtensions() throws Exception {
+		this.check(30, 1);
+	}
+
+	private void check(int nbWorkers, int nbThreads) throws Exception {
+		PostFilteringResultsCollector collector = new PostFilteringResultsCollector();
+		Dataset dataset = this.newDataset(collector);
+		String[] args = new String[] { "-t", Integer.toString(nbThreads), this.datasets[0].getPath(),
+				this.datasets[1].getPath(), Integer.toString(POS_FREQ_LOWER_BOUND),
+				Integer.toString(NEG_FREQ_UPPER_BOUND), Integer.toString(GAP_CONSTRAINT) };
+		final Coordinator coordinator = new Coordinator(0, nbWorkers, args, collector);
+		Fixtures.runConcurrently(nbWorkers + 1, new Fixtures.ThreadTask() {
+
+			@Override
+			public void run(int threadId) throws Exception {
+				if (threadId == 0) {
+					coordinator.mine();
+				} else {
+					Worker.run("localhost:" + coordinator.getPort());
+				}
+			}
+		});
+		assertEquals(nbWorkers + " workers", this.expected,
+				Fixtures.asNamedSet(dataset.getResultsCollector().getNonRedundant()));
+	}
+
+	// as workers build it
+	private Dataset newDataset(PostFilteringResultsCollector collector) throws Exception {
+		return new BitSetDataset(collector, this.datasets[0].getPath(), this.datasets[1].getPath(),
+				POS_FREQ_LOWER_BOUND, NEG_FREQ_UPPER_BOUND, GAP_CONSTRAINT);
+	}
+}
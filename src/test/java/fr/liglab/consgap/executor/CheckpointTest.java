@@ -0,0 +1,125 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.liglab.consgap.Fixtures;
+import fr.liglab.consgap.collector.PostFilteringResultsCollector;
+import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.dataset.consgapstyle.BitSetDataset;
+
+/**
+ * A run stopped after any number of steps, saved then resumed, must find the
+ * same results as an uninterrupted one
+ */
+public class CheckpointTest {
+	private static final int POS_FREQ_LOWER_BOUND = 6;
+	private static final int NEG_FREQ_UPPER_BOUND = 3;
+	private static final int GAP_CONSTRAINT = 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DatasetIndex index;
+
+	@Before
+	public void generate() throws IOException {
+		File[] datasets = Fixtures.writeDatasets(this.folder.getRoot(), new Random(44), 200, 20);
+		this.index = DatasetIndex.load(datasets[0].getPath(), datasets[1].getPath());
+	}
+
+	@Test
+	public void resumesFromAnyStep() throws Exception {
+		PostFilteringResultsCollector uninterrupted = new PostFilteringResultsCollector();
+		new DepthFirstExecutor(2).mine(this.newDataset(uninterrupted));
+		Set<List<String>> expected = Fixtures.asNamedSet(uninterrupted.getNonRedundant());
+
+		for (int nbSteps : new int[] { 0, 1, 10, 50, 100, 200, 300, 400, 100000 }) {
+			// explores like a single depth first thread, stopped after nbSteps
+			PostFilteringResultsCollector collector = new PostFilteringResultsCollector();
+			Deque<MiningStep> stack = new ArrayDeque<MiningStep>();
+			stack.push(new MiningStep(this.newDataset(collector)));
+			for (int i = 0; i < nbSteps && !stack.isEmpty(); i++) {
+				MiningStep next = stack.peek().next();
+				if (next == null) {
+					stack.pop();
+				} else {
+					stack.push(next);
+				}
+			}
+			List<Checkpoint.Step> steps = new ArrayList<Checkpoint.Step>();
+			for (MiningStep step : stack) {
+				if (step.getExtensionsIndex() < step.getExtensions().length) {
+					steps.add(new Checkpoint.Step(step));
+				}
+			}
+			List<int[]> results = new ArrayList<int[]>();
+			collector.getCollected(results);
+			File file = new File(this.folder.getRoot(), "checkpoint" + nbSteps);
+			new Checkpoint("signature", steps, results).write(file);
+
+			Checkpoint read = Checkpoint.read(file);
+			assertEquals("signature", read.getSignature());
+			assertEquals(steps.size(), read.getNbSteps());
+			assertEquals(results.size(), read.getNbResults());
+			PostFilteringResultsCollector resumed = new PostFilteringResultsCollector();
+			List<MiningStep> restored = read.restore(this.newDataset(resumed), ExplorationSettings.DEFAULT);
+			assertEquals(steps.size(), restored.size());
+			for (int i = 0; i < steps.size(); i++) {
+				Checkpoint.Step step = new Checkpoint.Step(restored.get(i));
+				// restored steps are sorted by length
+				Checkpoint.Step saved = steps.get(steps.size() - 1 - i);
+				assertArrayEquals(saved.sequence, step.sequence);
+				assertArrayEquals(saved.extensions, step.extensions);
+				assertEquals(saved.extensionsIndex, step.extensionsIndex);
+				assertArrayEquals(saved.deniedExtensions, step.deniedExtensions);
+			}
+
+			resumed = new PostFilteringResultsCollector();
+			DepthFirstExecutor executor = new DepthFirstExecutor(2);
+			executor.setResume(read);
+			executor.mine(this.newDataset(resumed));
+			assertEquals("resumed after " + nbSteps + " steps", expected, Fixtures.asNamedSet(resumed.getNonRedundant()));
+		}
+	}
+
+	private Dataset newDataset(ResultsCollector collector) {
+		return new BitSetDataset(collector, this.index, POS_FREQ_LOWER_BOUND, NEG_FREQ_UPPER_BOUND, GAP_CONSTRAINT);
+	}
+}
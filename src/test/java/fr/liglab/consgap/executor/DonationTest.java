@@ -0,0 +1,123 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.liglab.consgap.Fixtures;
+import fr.liglab.consgap.collector.PostFilteringResultsCollector;
+import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.dataset.consgapstyle.BitSetDataset;
+
+/**
+ * A worker which donates half of each step of its stack after any number of
+ * steps, as DepthFirstThread.donate does, and another which replays them on
+ * its own root must together find the same results as a single run
+ */
+public class DonationTest {
+	private static final int POS_FREQ_LOWER_BOUND = 6;
+	private static final int NEG_FREQ_UPPER_BOUND = 3;
+	private static final int GAP_CONSTRAINT = 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DatasetIndex index;
+
+	@Before
+	public void generate() throws IOException {
+		File[] datasets = Fixtures.writeDatasets(this.folder.getRoot(), new Random(46), 200, 20);
+		this.index = DatasetIndex.load(datasets[0].getPath(), datasets[1].getPath());
+	}
+
+	@Test
+	public void donatesAfterAnyStep() throws Exception {
+		PostFilteringResultsCollector single = new PostFilteringResultsCollector();
+		new DepthFirstExecutor(2).mine(this.newDataset(single));
+		Set<List<String>> expected = Fixtures.asNamedSet(single.getNonRedundant());
+
+		for (int nbSteps : new int[] { 0, 1, 10, 50, 100, 200, 400 }) {
+			PostFilteringResultsCollector donor = new PostFilteringResultsCollector();
+			Deque<MiningStep> stack = new ArrayDeque<MiningStep>();
+			stack.push(new MiningStep(this.newDataset(donor)));
+			explore(stack, nbSteps);
+			List<Checkpoint.Step> donated = new ArrayList<Checkpoint.Step>();
+			for (MiningStep step : stack) {
+				int[] extensions = step.donate();
+				if (extensions != null) {
+					donated.add(new Checkpoint.Step(step.getSequence(), extensions, 0, step.getDeniedExtensions()));
+				}
+			}
+			explore(stack, Integer.MAX_VALUE);
+
+			PostFilteringResultsCollector receiver = new PostFilteringResultsCollector();
+			Dataset receiverRoot = this.newDataset(receiver);
+			List<MiningStep> replayed = Checkpoint.replay(receiverRoot, donated, ExplorationSettings.DEFAULT);
+			assertEquals(donated.size(), replayed.size());
+			new DepthFirstExecutor(2).mine(replayed);
+
+			// both roots were rebased the same way
+			PostFilteringResultsCollector merged = new PostFilteringResultsCollector();
+			this.newDataset(merged);
+			List<int[]> collected = new ArrayList<int[]>();
+			donor.getCollected(collected);
+			receiver.getCollected(collected);
+			for (int[] seq : collected) {
+				merged.collect(Arrays.copyOfRange(seq, 1, seq.length), seq[0]);
+			}
+			assertEquals("donated after " + nbSteps + " steps", expected,
+					Fixtures.asNamedSet(merged.getNonRedundant()));
+		}
+	}
+
+	// as a single depth first thread
+	private static void explore(Deque<MiningStep> stack, int nbSteps) {
+		for (int i = 0; i < nbSteps && !stack.isEmpty(); i++) {
+			MiningStep next = stack.peek().next();
+			if (next == null) {
+				stack.pop();
+			} else {
+				stack.push(next);
+			}
+		}
+	}
+
+	private Dataset newDataset(ResultsCollector collector) {
+		return new BitSetDataset(collector, this.index, POS_FREQ_LOWER_BOUND, NEG_FREQ_UPPER_BOUND, GAP_CONSTRAINT);
+	}
+}
@@ -0,0 +1,76 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.liglab.consgap.Fixtures;
+import fr.liglab.consgap.collector.PostFilteringResultsCollector;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.dataset.consgapstyle.BitSetDataset;
+
+/**
+ * Only runs when built with the vthreads profile
+ */
+public class VirtualThreadExecutorTest {
+	private static final int POS_FREQ_LOWER_BOUND = 6;
+	private static final int NEG_FREQ_UPPER_BOUND = 3;
+	private static final int GAP_CONSTRAINT = 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DatasetIndex index;
+
+	@Before
+	public void generate() throws Exception {
+		Assume.assumeTrue(VirtualThreads.isAvailable());
+		File[] datasets = Fixtures.writeDatasets(this.folder.getRoot(), new Random(26), 200, 20);
+		this.index = DatasetIndex.load(datasets[0].getPath(), datasets[1].getPath());
+	}
+
+	@Test
+	public void findsTheSameResultsAsDepthFirst() throws Exception {
+		Set<List<String>> expected = this.mine(new DepthFirstExecutor(1));
+		for (int forkThreshold : new int[] { 0, 2, 5, 1000 }) {
+			assertEquals("fork threshold " + forkThreshold, expected,
+					this.mine(VirtualThreads.newExecutor(4, forkThreshold)));
+		}
+	}
+
+	private Set<List<String>> mine(MiningExecutor executor) throws Exception {
+		PostFilteringResultsCollector collector = new PostFilteringResultsCollector();
+		executor.mine(new BitSetDataset(collector, this.index, POS_FREQ_LOWER_BOUND, NEG_FREQ_UPPER_BOUND,
+				GAP_CONSTRAINT));
+		return Fixtures.asNamedSet(collector.getNonRedundant());
+	}
+}
@@ -0,0 +1,150 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.liglab.consgap.Fixtures;
+import fr.liglab.consgap.collector.PostFilteringResultsCollector;
+import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.collector.ResultsSink;
+import fr.liglab.consgap.collector.SummarizingResultsCollector;
+import fr.liglab.consgap.dataset.Dataset;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.dataset.consgapstyle.BitSetDataset;
+import fr.liglab.consgap.dataset.lcmstyle.TransBasedListDataset;
+import fr.liglab.consgap.executor.DepthFirstExecutor;
+import fr.liglab.consgap.executor.ExplorationSettings;
+
+/**
+ * Supports recorded while mining must be those counted in the datasets, and a
+ * summary filtered for a higher threshold must give the results of a run with
+ * that threshold
+ */
+public class ResultsSummaryTest {
+	private static final int POS_FREQ_LOWER_BOUND = 6;
+	private static final int NEG_FREQ_UPPER_BOUND = 3;
+	private static final int GAP_CONSTRAINT = 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DatasetIndex index;
+
+	@Before
+	public void generate() throws Exception {
+		File[] datasets = Fixtures.writeDatasets(this.folder.getRoot(), new Random(48), 200, 20);
+		this.index = DatasetIndex.load(datasets[0].getPath(), datasets[1].getPath());
+	}
+
+	@Test
+	public void tidBased() throws Exception {
+		this.check(false);
+	}
+
+	@Test
+	public void transactionsBased() throws Exception {
+		this.check(true);
+	}
+
+	private void check(boolean transactionsBased) throws Exception {
+		SummarizingResultsCollector collector = new SummarizingResultsCollector(false, 2);
+		DepthFirstExecutor executor = new DepthFirstExecutor(2);
+		// as in Main, summaries need all the emerging sequences
+		executor.setExplorationSettings(new ExplorationSettings(null, false, null));
+		executor.mine(this.newDataset(transactionsBased, collector, POS_FREQ_LOWER_BOUND));
+		ResultsSummary summary = ResultsSummary.summarize("test", POS_FREQ_LOWER_BOUND, NEG_FREQ_UPPER_BOUND,
+				collector);
+
+		for (int i = 0; i < summary.getEmergingItems().size(); i++) {
+			String item = summary.getEmergingItems().get(i);
+			assertArrayEquals(item, this.index.getSupports(new String[] { item }, GAP_CONSTRAINT), summary
+					.getEmergingItemsSupports().get(i));
+		}
+		assertEquals(collector.getNbCollected(), summary.getSequences().size());
+		for (int i = 0; i < summary.getSequences().size(); i++) {
+			int[] seq = summary.getSequences().get(i);
+			String[] names = new String[seq.length];
+			for (int j = 0; j < seq.length; j++) {
+				names[j] = summary.getItemNames()[seq[j]];
+			}
+			assertArrayEquals(this.index.getSupports(names, GAP_CONSTRAINT), summary.getSequencesSupports().get(i));
+		}
+
+		for (int posFreqLowerBound = POS_FREQ_LOWER_BOUND; posFreqLowerBound <= 30; posFreqLowerBound += 4) {
+			PostFilteringResultsCollector full = new PostFilteringResultsCollector();
+			new DepthFirstExecutor(1).mine(this.newDataset(transactionsBased, full, posFreqLowerBound));
+			NamedSink answer = new NamedSink();
+			summary.filter(posFreqLowerBound).writeNonRedundant(answer, 2);
+			assertEquals("MINSUP_IN_POS " + posFreqLowerBound, Fixtures.asNamedSet(full.getNonRedundant()),
+					Fixtures.asNamedSet(answer.sequences));
+		}
+	}
+
+	private Dataset newDataset(boolean transactionsBased, ResultsCollector collector, int posFreqLowerBound) {
+		if (transactionsBased) {
+			return new TransBasedListDataset(collector, this.index, posFreqLowerBound, NEG_FREQ_UPPER_BOUND,
+					GAP_CONSTRAINT);
+		} else {
+			return new BitSetDataset(collector, this.index, posFreqLowerBound, NEG_FREQ_UPPER_BOUND,
+					GAP_CONSTRAINT);
+		}
+	}
+
+	// as ResultsCollector.getNonRedundant
+	private static class NamedSink implements ResultsSink {
+		private final List<String[]> sequences = new ArrayList<String[]>();
+		private String[] rebasing;
+
+		@Override
+		public void init(String[] rebasing, Collection<String> emergingItems) {
+			this.rebasing = rebasing;
+			for (String item : emergingItems) {
+				this.sequences.add(new String[] { item });
+			}
+		}
+
+		@Override
+		public void write(int[] seq) {
+			String[] names = new String[seq.length];
+			for (int i = 0; i < seq.length; i++) {
+				names[i] = this.rebasing[seq[i]];
+			}
+			this.sequences.add(names);
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
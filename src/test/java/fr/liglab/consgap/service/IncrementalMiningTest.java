@@ -0,0 +1,137 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.liglab.consgap.Fixtures;
+import fr.liglab.consgap.collector.PostFilteringResultsCollector;
+import fr.liglab.consgap.collector.SummarizingResultsCollector;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.dataset.consgapstyle.BitSetDataset;
+import fr.liglab.consgap.executor.DepthFirstExecutor;
+import fr.liglab.consgap.executor.ExplorationSettings;
+
+/**
+ * After each batch of transactions appended to either dataset, a run resumed
+ * from the saved state must find the same results as a full run on the
+ * datasets so far
+ */
+public class IncrementalMiningTest {
+	private static final int POS_FREQ_LOWER_BOUND = 6;
+	private static final int NEG_FREQ_UPPER_BOUND = 3;
+	private static final int GAP_CONSTRAINT = 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private List<String> positive;
+	private List<String> negative;
+
+	@Before
+	public void generate() throws Exception {
+		File[] datasets = Fixtures.writeDatasets(this.folder.newFolder(), new Random(49), 300, 20);
+		this.positive = Files.readAllLines(datasets[0].toPath(), Charset.defaultCharset());
+		this.negative = Files.readAllLines(datasets[1].toPath(), Charset.defaultCharset());
+	}
+
+	@Test
+	public void followsAppendedTransactions() throws Exception {
+		// cumulative numbers of positive and negative transactions
+		int[][] batches = new int[][] { { 150, 150 }, { 200, 150 }, { 200, 200 }, { 200, 200 }, { 260, 280 },
+				{ 300, 300 } };
+		File positiveFile = new File(this.folder.getRoot(), "positive.txt");
+		File negativeFile = new File(this.folder.getRoot(), "negative.txt");
+		File stateFile = new File(this.folder.getRoot(), "state");
+		for (int[] batch : batches) {
+			append(positiveFile, this.positive, batch[0]);
+			append(negativeFile, this.negative, batch[1]);
+			IncrementalMining incremental;
+			if (stateFile.exists()) {
+				incremental = IncrementalMining.read(stateFile);
+				incremental.appendTransactions(positiveFile.getPath(), negativeFile.getPath());
+			} else {
+				incremental = new IncrementalMining("test", POS_FREQ_LOWER_BOUND, NEG_FREQ_UPPER_BOUND,
+						GAP_CONSTRAINT, positiveFile.getPath(), negativeFile.getPath());
+			}
+			// as Main does
+			SummarizingResultsCollector collector = new SummarizingResultsCollector(false, 1);
+			BitSetDataset root = new BitSetDataset(collector, incremental.getIndex(), POS_FREQ_LOWER_BOUND,
+					NEG_FREQ_UPPER_BOUND, GAP_CONSTRAINT);
+			DepthFirstExecutor executor = new DepthFirstExecutor(2);
+			executor.setExplorationSettings(new ExplorationSettings(null, false, incremental.prepare(collector)));
+			executor.mine(root);
+			incremental.write(stateFile, collector);
+
+			PostFilteringResultsCollector full = new PostFilteringResultsCollector();
+			DatasetIndex index = DatasetIndex.load(positiveFile.getPath(), negativeFile.getPath());
+			new DepthFirstExecutor(2).mine(new BitSetDataset(full, index, POS_FREQ_LOWER_BOUND,
+					NEG_FREQ_UPPER_BOUND, GAP_CONSTRAINT));
+			Set<List<String>> expected = Fixtures.asNamedSet(full.getNonRedundant());
+			assertEquals(batch[0] + " positive and " + batch[1] + " negative transactions", expected,
+					Fixtures.asNamedSet(collector.getNonRedundant()));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void refusesShorterDatasets() throws Exception {
+		File positiveFile = new File(this.folder.getRoot(), "positive.txt");
+		File negativeFile = new File(this.folder.getRoot(), "negative.txt");
+		append(positiveFile, this.positive, 100);
+		append(negativeFile, this.negative, 100);
+		IncrementalMining incremental = new IncrementalMining("test", POS_FREQ_LOWER_BOUND, NEG_FREQ_UPPER_BOUND,
+				GAP_CONSTRAINT, positiveFile.getPath(), negativeFile.getPath());
+		positiveFile.delete();
+		append(positiveFile, this.positive, 50);
+		incremental.appendTransactions(positiveFile.getPath(), negativeFile.getPath());
+	}
+
+	// appends lines so that file holds the first nbLines
+	private static void append(File file, List<String> lines, int nbLines) throws IOException {
+		int start = 0;
+		if (file.exists()) {
+			start = Files.readAllLines(file.toPath(), Charset.defaultCharset()).size();
+		}
+		Writer out = new FileWriter(file, true);
+		try {
+			for (int i = start; i < nbLines; i++) {
+				out.write(lines.get(i) + "\n");
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+	This file is part of jConSGapMiner - see https://github.com/slide-lig/jConSGapMiner
+	
+	Copyright 2014 Vincent Leroy, Université Joseph Fourier and CNRS
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	 http://www.apache.org/licenses/LICENSE-2.0
+	 
+	or see the LICENSE.txt file joined with this program.
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+
+package fr.liglab.consgap.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.liglab.consgap.Fixtures;
+import fr.liglab.consgap.collector.PostFilteringResultsCollector;
+import fr.liglab.consgap.collector.ResultsCollector;
+import fr.liglab.consgap.collector.TopKResultsCollector;
+import fr.liglab.consgap.dataset.DatasetIndex;
+import fr.liglab.consgap.dataset.consgapstyle.BitSetDataset;
+import fr.liglab.consgap.executor.DepthFirstExecutor;
+import fr.liglab.consgap.executor.ExplorationSettings;
+
+/**
+ * Each request served on an index loaded once must get the results of a run
+ * with its own thresholds, followed by an empty line even when it's invalid
+ */
+public class MiningServiceTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DatasetIndex index;
+
+	@Before
+	public void generate() throws Exception {
+		File[] datasets = Fixtures.writeDatasets(this.folder.getRoot(), new Random(47), 200, 20);
+		this.index = DatasetIndex.load(datasets[0].getPath(), datasets[1].getPath());
+	}
+
+	@Test
+	public void servesSuccessiveRequests() throws Exception {
+		String requests = "6 3 2\n" + "-l -t 2 10 3 2\n" + "\n" + "-ckpt state 6 3 2\n" + "6 3\n" + "-s 8 5 0\n"
+				+ "-topk 5 6 3 2\n";
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(output);
+		new MiningService(this.index).serve(new ByteArrayInputStream(requests.getBytes()), out);
+		out.close();
+		List<Set<List<String>>> responses = parse(output.toString());
+
+		assertEquals(6, responses.size());
+		assertEquals(this.mine(6, 3, 2), responses.get(0));
+		assertEquals(this.mine(10, 3, 2), responses.get(1));
+		// invalid requests only get the empty line
+		assertEquals(new HashSet<List<String>>(), responses.get(2));
+		assertEquals(new HashSet<List<String>>(), responses.get(3));
+		assertEquals(this.mine(8, 5, 0), responses.get(4));
+		TopKResultsCollector topK = new TopKResultsCollector(5, this.index, 6, 3, 2, false, 1);
+		DepthFirstExecutor executor = new DepthFirstExecutor(2);
+		executor.setExplorationSettings(new ExplorationSettings(null, false, null));
+		executor.mine(new BitSetDataset(topK, this.index, 6, 3, 2));
+		assertEquals(Fixtures.asNamedSet(topK.getNonRedundant()), responses.get(5));
+	}
+
+	private Set<List<String>> mine(int posFreqLowerBound, int negFreqUpperBound, int gapConstraint) {
+		ResultsCollector collector = new PostFilteringResultsCollector();
+		new DepthFirstExecutor(2).mine(new BitSetDataset(collector, this.index, posFreqLowerBound,
+				negFreqUpperBound, gapConstraint));
+		return Fixtures.asNamedSet(collector.getNonRedundant());
+	}
+
+	// one set per response, each line holds items followed by tabulations
+	private static List<Set<List<String>>> parse(String output) throws IOException {
+		List<Set<List<String>>> responses = new ArrayList<Set<List<String>>>();
+		Set<List<String>> current = new HashSet<List<String>>();
+		BufferedReader br = new BufferedReader(new StringReader(output));
+		String line;
+		while ((line = br.readLine()) != null) {
+			if (line.isEmpty()) {
+				responses.add(current);
+				current = new HashSet<List<String>>();
+			} else {
+				current.add(Arrays.asList(line.split("\t")));
+			}
+		}
+		return responses;
+	}
+}